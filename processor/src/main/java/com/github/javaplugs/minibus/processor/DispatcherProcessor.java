@@ -0,0 +1,255 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates dispatcher class for each handler marked with GenerateDispatcher
+ * and one DispatcherIndex service listing all of them.
+ *
+ * Index class name can be set with processor option -Aminibus.index=com.example.MyIndex,
+ * by default it is MinibusDispatcherIndex in package of first handler.
+ * Set different names if several modules with generated dispatchers share one classpath package.
+ */
+public class DispatcherProcessor extends AbstractProcessor {
+
+    static final String PACKAGE = "com.github.javaplugs.minibus";
+
+    static final String ANNOTATION = PACKAGE + ".GenerateDispatcher";
+
+    static final String HANDLER = PACKAGE + ".EventBusHandler";
+
+    static final String INDEX_OPTION = "minibus.index";
+
+    private final List<String> dispatchers = new ArrayList<>();
+
+    private String indexPackage;
+
+    private boolean indexWritten;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION);
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(INDEX_OPTION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        int before = dispatchers.size();
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation != null) {
+            for (Element e : round.getElementsAnnotatedWith(annotation)) {
+                if (e.getKind() == ElementKind.CLASS) {
+                    generateDispatcher((TypeElement)e);
+                } else {
+                    error(e, "@GenerateDispatcher is applicable to EventBusHandler classes only");
+                }
+            }
+        }
+        // Index is written in the first round without new handlers, which is not the last one
+        // when dispatchers were generated, so compiler does not warn about sources created in last round
+        if (dispatchers.size() > before) {
+            if (indexWritten) {
+                error(null, "Handlers with @GenerateDispatcher appeared after DispatcherIndex was generated");
+            }
+        } else if (!indexWritten && !dispatchers.isEmpty()) {
+            indexWritten = true;
+            generateIndex();
+        }
+        return true;
+    }
+
+    private void generateDispatcher(TypeElement handler) {
+        if (handler.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(handler, "Handler with generated dispatcher can not be abstract");
+            return;
+        }
+        for (Element e = handler; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                error(handler, "Handler with generated dispatcher and its outer classes can not be private");
+                return;
+            }
+        }
+        if (handler.getNestingKind() == NestingKind.MEMBER && !handler.getModifiers().contains(Modifier.STATIC)) {
+            error(handler, "Handler with generated dispatcher can not be inner class, make it static");
+            return;
+        }
+        if (!handler.getTypeParameters().isEmpty()) {
+            error(handler, "Handler with generated dispatcher can not have type parameters");
+            return;
+        }
+
+        TypeMirror event = findEventType(handler.asType());
+        if (event == null) {
+            error(handler, "Can not resolve event class, handler should extend EventBusHandler<ConcreteEvent>");
+            return;
+        }
+
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(handler);
+        String packageName = pkg.getQualifiedName().toString();
+        String handlerName = handler.getQualifiedName().toString();
+        String simpleName = (packageName.isEmpty() ? handlerName : handlerName.substring(packageName.length() + 1))
+            .replace('.', '_') + "_Dispatcher";
+        String eventName = processingEnv.getTypeUtils().erasure(event).toString();
+
+        StringBuilder src = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("/**\n * Generated by minibus-processor for {@link ").append(handlerName).append("}.\n */\n")
+            .append("public final class ").append(simpleName)
+            .append(" implements ").append(PACKAGE).append(".HandlerDispatcher<").append(eventName).append("> {\n\n")
+            .append("    @Override\n")
+            .append("    public Class<").append(handlerName).append("> getHandlerClass() {\n")
+            .append("        return ").append(handlerName).append(".class;\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public Class<").append(eventName).append("> getEventClass() {\n")
+            .append("        return ").append(eventName).append(".class;\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public void dispatch(").append(PACKAGE).append(".EventBusHandler<").append(eventName)
+            .append("> handler, ").append(PACKAGE).append(".EventBusEvent event) {\n")
+            .append("        ((").append(handlerName).append(")handler).handle((").append(eventName).append(")event);\n")
+            .append("    }\n")
+            .append("}\n");
+
+        String qualified = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        if (write(qualified, src.toString(), handler)) {
+            dispatchers.add(qualified);
+            if (indexPackage == null) {
+                indexPackage = packageName;
+            }
+        }
+    }
+
+    /**
+     * Walk superclasses until EventBusHandler and return its resolved type argument.
+     */
+    private TypeMirror findEventType(TypeMirror type) {
+        TypeMirror t = type;
+        while (t.getKind() == TypeKind.DECLARED) {
+            DeclaredType declared = (DeclaredType)t;
+            TypeElement element = (TypeElement)declared.asElement();
+            if (element.getQualifiedName().contentEquals(HANDLER)) {
+                List<? extends TypeMirror> args = declared.getTypeArguments();
+                return args.size() == 1 && args.get(0).getKind() == TypeKind.DECLARED ? args.get(0) : null;
+            }
+            List<? extends TypeMirror> supertypes = processingEnv.getTypeUtils().directSupertypes(t);
+            if (supertypes.isEmpty()) {
+                return null;
+            }
+            // First direct supertype of class is its superclass
+            t = supertypes.get(0);
+        }
+        return null;
+    }
+
+    private void generateIndex() {
+        String index = processingEnv.getOptions().get(INDEX_OPTION);
+        if (index == null) {
+            index = indexPackage.isEmpty() ? "MinibusDispatcherIndex" : indexPackage + ".MinibusDispatcherIndex";
+        }
+        int dot = index.lastIndexOf('.');
+        String packageName = dot < 0 ? "" : index.substring(0, dot);
+        String simpleName = index.substring(dot + 1);
+
+        StringBuilder src = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("/**\n * Generated by minibus-processor.\n */\n")
+            .append("public final class ").append(simpleName)
+            .append(" implements ").append(PACKAGE).append(".DispatcherIndex {\n\n")
+            .append("    @Override\n")
+            .append("    public java.util.List<").append(PACKAGE).append(".HandlerDispatcher<?>> getDispatchers() {\n")
+            .append("        return java.util.Arrays.<").append(PACKAGE).append(".HandlerDispatcher<?>>asList(\n");
+        for (int i = 0; i < dispatchers.size(); i++) {
+            src.append("            new ").append(dispatchers.get(i)).append("()")
+                .append(i < dispatchers.size() - 1 ? ",\n" : ");\n");
+        }
+        src.append("    }\n}\n");
+
+        if (!write(index, src.toString(), null)) {
+            return;
+        }
+        try {
+            FileObject services = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                "META-INF/services/" + PACKAGE + ".DispatcherIndex");
+            try (Writer w = services.openWriter()) {
+                w.write(index);
+                w.write('\n');
+            }
+        } catch (IOException ex) {
+            error(null, "Can not write DispatcherIndex service file. " + ex.getMessage());
+        }
+    }
+
+    private boolean write(String className, String source, Element origin) {
+        Filer filer = processingEnv.getFiler();
+        try (Writer w = (origin == null ? filer.createSourceFile(className) : filer.createSourceFile(className, origin))
+            .openWriter()) {
+            w.write(source);
+            return true;
+        } catch (IOException ex) {
+            error(origin, "Can not write " + className + ". " + ex.getMessage());
+            return false;
+        }
+    }
+
+    private void error(Element e, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+    }
+}
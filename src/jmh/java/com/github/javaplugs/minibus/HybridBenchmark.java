@@ -0,0 +1,120 @@
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mixed cost workload: several cheap handlers and one expensive handler for the same event.
+ * Each invocation publishes a batch and waits until all handlers are done,
+ * so result is time per event including both publisher and handler costs.
+ * Run with: gradle jmh -Pjmh.include=HybridBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HybridBenchmark {
+
+    private static final int BATCH = 100;
+
+    @Param({"SIMPLE", "ASYNC", "HYBRID"})
+    public String bus;
+
+    @Param("8")
+    public int cheapHandlers;
+
+    /**
+     * Work of expensive handler in {@link Blackhole#consumeCPU} tokens.
+     */
+    @Param("20000")
+    public long expensiveTokens;
+
+    private EventBus<EventBusEvent> eventBus;
+
+    private ExecutorService executor;
+
+    private Handler[] handlers;
+
+    private final LongAdder handled = new LongAdder();
+
+    private long expected;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        switch (bus) {
+            case "SIMPLE":
+                eventBus = new EventBusSimple<>();
+                break;
+            case "ASYNC":
+                eventBus = new EventBusAsync<>(executor);
+                break;
+            default:
+                eventBus = new EventBusHybrid<>(executor);
+        }
+        handlers = new Handler[cheapHandlers + 1];
+        for (int i = 0; i < cheapHandlers; i++) {
+            handlers[i] = new Handler(0);
+        }
+        handlers[cheapHandlers] = new Handler(expensiveTokens);
+        for (Handler h : handlers) {
+            eventBus.subscribe(h);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void publishAndDrain() {
+        for (int i = 0; i < BATCH; i++) {
+            eventBus.publish(new MixedEvent());
+        }
+        expected += (long)BATCH * handlers.length;
+        while (handled.sum() < expected) {
+            Thread.yield();
+        }
+    }
+
+    public static class MixedEvent implements EventBusEvent {
+    }
+
+    private class Handler extends EventBusHandler<MixedEvent> {
+
+        private final long tokens;
+
+        Handler(long tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        void handle(MixedEvent event) {
+            if (tokens > 0) {
+                Blackhole.consumeCPU(tokens);
+            }
+            handled.increment();
+        }
+    }
+}
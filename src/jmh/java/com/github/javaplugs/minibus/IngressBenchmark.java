@@ -0,0 +1,89 @@
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Publishing throughput of events queue with growing count of producer threads:
+ * shared {@link ConcurrentLinkedQueue} versus {@link PerProducerQueue}.
+ * One background thread drains the queue like bus dispatcher does.
+ * Run with: gradle jmh -Pjmh.include=IngressBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class IngressBenchmark {
+
+    @Param({"SHARED", "PER_PRODUCER"})
+    public EventBusAsync.Ingress ingress;
+
+    private IngressQueue<EventBusEvent> queue;
+
+    private volatile boolean running;
+
+    private Thread consumer;
+
+    private final EventBusEvent event = new EventBusEvent() {
+    };
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        queue = ingress == EventBusAsync.Ingress.PER_PRODUCER
+            ? new PerProducerQueue<>()
+            : IngressQueue.shared();
+        running = true;
+        consumer = new Thread(() -> {
+            while (running || !queue.isEmpty()) {
+                queue.poll();
+            }
+        }, "Ingress consumer");
+        consumer.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        consumer.join();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void producers01() {
+        queue.offer(event);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void producers04() {
+        queue.offer(event);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void producers16() {
+        queue.offer(event);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void producers32() {
+        queue.offer(event);
+    }
+}
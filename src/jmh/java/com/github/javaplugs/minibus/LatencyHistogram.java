@@ -0,0 +1,103 @@
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * High dynamic range histogram of nanosecond values, same layout as HdrHistogram:
+ * values are grouped by power of two and each group is split into linear sub buckets,
+ * so relative error is below 1% from nanoseconds to hours with fixed small footprint.
+ * Recording is lock free and can be done from many threads.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BITS = 8;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private static final int HALF_BITS = SUB_BITS - 1;
+
+    private static final AtomicLongFieldUpdater<LatencyHistogram> MAX =
+        AtomicLongFieldUpdater.newUpdater(LatencyHistogram.class, "max");
+
+    private final AtomicLongArray counts = new AtomicLongArray(index(Long.MAX_VALUE) + 1);
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private volatile long max;
+
+    void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(index(v));
+        total.increment();
+        sum.add(v);
+        long m;
+        while (v > (m = max)) {
+            if (MAX.compareAndSet(this, m, v)) {
+                break;
+            }
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max = 0;
+    }
+
+    long getCount() {
+        return total.sum();
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    double getMean() {
+        long n = total.sum();
+        return n == 0 ? 0 : sum.sum() / (double)n;
+    }
+
+    /**
+     * @param percentile From 0 to 100
+     * @return Value at or above given part of recorded values
+     */
+    long getValueAtPercentile(double percentile) {
+        long n = total.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long)Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(max, highestEquivalent(i));
+            }
+        }
+        return max;
+    }
+
+    static int index(long v) {
+        if (v < SUB_COUNT) {
+            return (int)v;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(v) - HALF_BITS;
+        return (shift << HALF_BITS) + (int)(v >>> shift);
+    }
+
+    static long highestEquivalent(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index >>> HALF_BITS) - 1;
+        long low = (long)(index - (shift << HALF_BITS)) << shift;
+        return low + (1L << shift) - 1;
+    }
+}
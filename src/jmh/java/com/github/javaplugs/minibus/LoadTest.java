@@ -0,0 +1,483 @@
+package com.github.javaplugs.minibus;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Open loop load test of {@link EventBusAsync}.
+ * Producers publish events at fixed total rate and handlers record end to end latency.
+ * Latency is measured from time when event was intended to be sent by schedule,
+ * so stalls of producers or bus are not hidden (coordinated omission correction).
+ * Latency from actual publish time is reported too for comparison.
+ *
+ * Run with: gradle loadTest -PloadTestArgs="rate=100000 duration=60s mix=70,20,10 cost=0,10us,exp:200us"
+ *
+ * Arguments:
+ * <ul>
+ * <li>duration, warmup - measured and warm up time, 60s and 10s by default</li>
+ * <li>rate - total events per second, 50000 by default</li>
+ * <li>producers - publishing threads count, 2 by default</li>
+ * <li>mix - comma separated weights of event classes, up to 4 classes, 1 by default</li>
+ * <li>cost - comma separated handler cost for each class: busy spin time like 10us,
+ * exp:10us for exponentially distributed spin with given mean or sleep:1ms</li>
+ * <li>executor - cached, fixed:N or adaptive:MIN:MAX, cached by default</li>
+ * <li>out - report file, build/reports/load-test.txt by default</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private static final EventKind[] EVENTS = {
+        new EventKind("EventA", EventA.class, EventA::new),
+        new EventKind("EventB", EventB.class, EventB::new),
+        new EventKind("EventC", EventC.class, EventC::new),
+        new EventKind("EventD", EventD.class, EventD::new)
+    };
+
+    private final Map<String, String> config = new LinkedHashMap<>();
+
+    private final long durationNanos;
+
+    private final long warmupNanos;
+
+    private final long rate;
+
+    private final int producers;
+
+    private final double[] mix;
+
+    private final Cost[] costs;
+
+    private final LatencyHistogram[] corrected;
+
+    private final LatencyHistogram[] raw;
+
+    private final LatencyHistogram totalCorrected = new LatencyHistogram();
+
+    private final LatencyHistogram totalRaw = new LatencyHistogram();
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder handled = new LongAdder();
+
+    private final List<Long> gcPauses = new ArrayList<>();
+
+    LoadTest(String[] args) {
+        config.put("duration", "60s");
+        config.put("warmup", "10s");
+        config.put("rate", "50000");
+        config.put("producers", "2");
+        config.put("mix", "1");
+        config.put("cost", "0");
+        config.put("executor", "cached");
+        config.put("out", "build/reports/load-test.txt");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !config.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Unknown argument " + arg + ", expected one of " + config.keySet());
+            }
+            config.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        durationNanos = parseNanos(config.get("duration"));
+        warmupNanos = parseNanos(config.get("warmup"));
+        rate = Long.parseLong(config.get("rate"));
+        producers = Integer.parseInt(config.get("producers"));
+        if (producers < 1) {
+            throw new IllegalArgumentException("Producers count should be positive: " + producers);
+        }
+        // Each producer needs at least one nanosecond between events
+        if (rate < 1 || rate > TimeUnit.SECONDS.toNanos(1) * producers) {
+            throw new IllegalArgumentException("Rate should be in [1, " + TimeUnit.SECONDS.toNanos(1) * producers
+                + "] for " + producers + " producers: " + rate);
+        }
+
+        String[] weights = config.get("mix").split(",");
+        if (weights.length > EVENTS.length) {
+            throw new IllegalArgumentException("At most " + EVENTS.length + " event classes are supported");
+        }
+        mix = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += Double.parseDouble(weights[i]);
+            mix[i] = sum;
+        }
+        for (int i = 0; i < mix.length; i++) {
+            mix[i] /= sum;
+        }
+
+        String[] c = config.get("cost").split(",");
+        costs = new Cost[mix.length];
+        corrected = new LatencyHistogram[mix.length];
+        raw = new LatencyHistogram[mix.length];
+        for (int i = 0; i < mix.length; i++) {
+            costs[i] = new Cost(c[Math.min(i, c.length - 1)]);
+            corrected[i] = new LatencyHistogram();
+            raw[i] = new LatencyHistogram();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(args).run();
+    }
+
+    void run() throws Exception {
+        watchGc();
+        ExecutorService executor = executor(config.get("executor"));
+        EventBusAsync<LoadEvent> bus = new EventBusAsync<>(executor);
+        List<Handler> handlers = new ArrayList<>();
+        for (int i = 0; i < mix.length; i++) {
+            Handler h = new Handler(i);
+            handlers.add(h);
+            bus.subscribe(h);
+        }
+
+        System.out.println("Load test " + config);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        long end = start + warmupNanos + durationNanos;
+        long period = TimeUnit.SECONDS.toNanos(1) * producers / rate;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long first = start + period * p / producers;
+            Thread th = new Thread(() -> produce(bus, first, period, end), "Load producer " + p);
+            th.start();
+            threads.add(th);
+        }
+
+        LockSupport.parkNanos(start + warmupNanos - System.nanoTime());
+        reset();
+        long sentBefore = sent.sum();
+        long handledBefore = handled.sum();
+        long gcCount = gcCount();
+        long gcTime = gcTime();
+        long measureStart = System.nanoTime();
+
+        for (Thread th : threads) {
+            th.join();
+        }
+        long measureEnd = System.nanoTime();
+        long sentCount = sent.sum() - sentBefore;
+        long handledCount = handled.sum() - handledBefore;
+        gcCount = gcCount() - gcCount;
+        gcTime = gcTime() - gcTime;
+
+        // Let handlers finish queued events so their latency is reported too
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (handled.sum() < sent.sum() && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        String report = report(sentCount, handledCount, measureEnd - measureStart, gcCount, gcTime);
+        System.out.println(report);
+        Path out = Paths.get(config.get("out"));
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        Files.write(out, report.getBytes(StandardCharsets.UTF_8));
+        System.out.println("Report written to " + out.toAbsolutePath());
+        executor.shutdownNow();
+        handlers.clear();
+    }
+
+    private void produce(EventBusAsync<LoadEvent> bus, long first, long period, long end) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (long intended = first; intended < end; intended += period) {
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                long left = intended - now;
+                if (left > 100_000) {
+                    LockSupport.parkNanos(left - 50_000);
+                } else {
+                    Thread.yield();
+                }
+            }
+            double r = rnd.nextDouble();
+            int kind = 0;
+            while (kind < mix.length - 1 && r >= mix[kind]) {
+                kind++;
+            }
+            LoadEvent event = EVENTS[kind].create(intended);
+            sent.increment();
+            bus.publish(event);
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < mix.length; i++) {
+            corrected[i].reset();
+            raw[i].reset();
+        }
+        totalCorrected.reset();
+        totalRaw.reset();
+        synchronized (gcPauses) {
+            gcPauses.clear();
+        }
+    }
+
+    private String report(long sentCount, long handledCount, long elapsed, long gcCount, long gcTime) {
+        StringWriter sw = new StringWriter();
+        PrintWriter out = new PrintWriter(sw);
+        double seconds = elapsed / 1e9;
+        out.println("Configuration: " + config);
+        out.printf(Locale.ROOT, "Measured: %.1f s, sent %d, handled %d%n", seconds, sentCount, handledCount);
+        out.printf(Locale.ROOT, "Throughput: offered %.0f ev/s, handled %.0f ev/s%n",
+            sentCount / seconds, handledCount / seconds);
+        out.println();
+        out.printf(Locale.ROOT, "%-28s %10s %10s %10s %10s %10s %10s %10s %10s%n",
+            "Latency, us", "count", "mean", "p50", "p90", "p99", "p99.9", "p99.99", "max");
+        for (int i = 0; i < mix.length; i++) {
+            String name = EVENTS[i].name + " (" + costs[i] + ")";
+            line(out, name, corrected[i]);
+            line(out, "  from publish", raw[i]);
+        }
+        line(out, "All events", totalCorrected);
+        line(out, "  from publish", totalRaw);
+        out.println();
+
+        long maxPause;
+        long totalPause;
+        int pauses;
+        synchronized (gcPauses) {
+            pauses = gcPauses.size();
+            maxPause = gcPauses.stream().mapToLong(Long::longValue).max().orElse(0);
+            totalPause = gcPauses.stream().mapToLong(Long::longValue).sum();
+        }
+        out.printf(Locale.ROOT, "GC: %d collections, %d ms total, %d pauses, %d ms paused, max pause %d ms%n",
+            gcCount, gcTime, pauses, totalPause, maxPause);
+        out.flush();
+        return sw.toString();
+    }
+
+    private static void line(PrintWriter out, String name, LatencyHistogram h) {
+        out.printf(Locale.ROOT, "%-28s %10d %10.1f", name, h.getCount(), h.getMean() / 1000);
+        for (double p : PERCENTILES) {
+            out.printf(Locale.ROOT, " %10.1f", h.getValueAtPercentile(p) / 1000.0);
+        }
+        out.printf(Locale.ROOT, " %10.1f%n", h.getMax() / 1000.0);
+    }
+
+    private void watchGc() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter)) {
+                continue;
+            }
+            ((NotificationEmitter)gc).addNotificationListener((n, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(n.getType())) {
+                    GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData)n.getUserData());
+                    if (isPause(info)) {
+                        synchronized (gcPauses) {
+                            gcPauses.add(info.getGcInfo().getDuration());
+                        }
+                    }
+                }
+            }, null, null);
+        }
+    }
+
+    /**
+     * Concurrent collector cycles (G1 concurrent mark, ZGC and Shenandoah cycles) run along
+     * with application threads, their duration is not a pause.
+     */
+    private static boolean isPause(GarbageCollectionNotificationInfo info) {
+        String name = info.getGcName();
+        String action = info.getGcAction();
+        return !action.contains("concurrent") && !name.contains("Concurrent") && !name.endsWith("Cycles");
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    private static ExecutorService executor(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "cached":
+                return Executors.newCachedThreadPool();
+            case "fixed":
+                return Executors.newFixedThreadPool(Integer.parseInt(parts[1]));
+            case "adaptive":
+                return new AdaptiveExecutor(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            default:
+                throw new IllegalArgumentException("Unknown executor " + spec);
+        }
+    }
+
+    static long parseNanos(String value) {
+        String v = value.trim();
+        int i = 0;
+        while (i < v.length() && (Character.isDigit(v.charAt(i)) || v.charAt(i) == '.')) {
+            i++;
+        }
+        double n = Double.parseDouble(v.substring(0, i));
+        switch (v.substring(i)) {
+            case "":
+            case "ns":
+                return (long)n;
+            case "us":
+                return (long)(n * 1e3);
+            case "ms":
+                return (long)(n * 1e6);
+            case "s":
+                return (long)(n * 1e9);
+            case "m":
+                return (long)(n * 60e9);
+            default:
+                throw new IllegalArgumentException("Bad duration " + value);
+        }
+    }
+
+    /**
+     * Handler cost profile.
+     */
+    private static class Cost {
+
+        private final String spec;
+
+        private final boolean exponential;
+
+        private final boolean sleep;
+
+        private final long nanos;
+
+        Cost(String spec) {
+            this.spec = spec;
+            exponential = spec.startsWith("exp:");
+            sleep = spec.startsWith("sleep:");
+            nanos = parseNanos(spec.substring(spec.indexOf(':') + 1));
+        }
+
+        void spend() {
+            long t = exponential
+                ? (long)(-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * nanos)
+                : nanos;
+            if (t <= 0) {
+                return;
+            }
+            if (sleep) {
+                LockSupport.parkNanos(t);
+                return;
+            }
+            long until = System.nanoTime() + t;
+            while (System.nanoTime() < until) {
+                // busy spin to emulate CPU bound handler
+            }
+        }
+
+        @Override
+        public String toString() {
+            return spec;
+        }
+    }
+
+    private class Handler extends EventBusHandler<LoadEvent> {
+
+        private final int kind;
+
+        Handler(int kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        Class<LoadEvent> getTypeClass() {
+            return (Class<LoadEvent>)EVENTS[kind].cls;
+        }
+
+        @Override
+        void handle(LoadEvent event) {
+            costs[kind].spend();
+            long now = System.nanoTime();
+            handled.increment();
+            corrected[kind].record(now - event.intended);
+            raw[kind].record(now - event.published);
+            totalCorrected.record(now - event.intended);
+            totalRaw.record(now - event.published);
+        }
+    }
+
+    static class LoadEvent implements EventBusEvent {
+
+        final long intended;
+
+        final long published = System.nanoTime();
+
+        LoadEvent(long intended) {
+            this.intended = intended;
+        }
+    }
+
+    static class EventA extends LoadEvent {
+
+        EventA(long intended) {
+            super(intended);
+        }
+    }
+
+    static class EventB extends LoadEvent {
+
+        EventB(long intended) {
+            super(intended);
+        }
+    }
+
+    static class EventC extends LoadEvent {
+
+        EventC(long intended) {
+            super(intended);
+        }
+    }
+
+    static class EventD extends LoadEvent {
+
+        EventD(long intended) {
+            super(intended);
+        }
+    }
+
+    private static class EventKind {
+
+        final String name;
+
+        final Class<? extends LoadEvent> cls;
+
+        private final LongFunction<LoadEvent> factory;
+
+        EventKind(String name, Class<? extends LoadEvent> cls, LongFunction<LoadEvent> factory) {
+            this.name = name;
+            this.cls = cls;
+            this.factory = factory;
+        }
+
+        LoadEvent create(long intended) {
+            return factory.apply(intended);
+        }
+    }
+}
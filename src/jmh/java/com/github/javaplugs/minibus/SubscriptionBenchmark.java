@@ -0,0 +1,148 @@
+package com.github.javaplugs.minibus;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Subscribe/unsubscribe churn of short lived handlers running concurrently with publishing
+ * while {@link EventBusAsync} holds 1M live subscribers.
+ * Handlers are run on dispatcher thread, so publishing cost includes dispatch.
+ * Run with: gradle jmh -Pjmh.include=SubscriptionBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Group)
+public class SubscriptionBenchmark {
+
+    @Param("1000000")
+    public int subscribers;
+
+    private EventBusAsync<EventBusEvent> bus;
+
+    private Handler[] live;
+
+    private final LongAdder handled = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        bus = new EventBusAsync<>(new DirectExecutor());
+        live = new Handler[subscribers];
+        // Most subscribers listen to other classes, so registry is big but dispatch is cheap
+        for (int i = 0; i < subscribers; i++) {
+            live[i] = new Handler(i % 16 == 0 ? HotEvent.class : ColdEvent.class);
+            bus.subscribe(live[i]);
+        }
+        bus.publish(new HotEvent());
+        while (handled.sum() == 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException {
+        while (bus.hasPendingEvents()) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(4)
+    public void subscribeUnsubscribe() {
+        Handler h = new Handler(HotEvent.class);
+        bus.subscribe(h);
+        bus.unsubscribe(h);
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public void publish() {
+        bus.publish(new HotEvent());
+    }
+
+    public static class HotEvent implements EventBusEvent {
+    }
+
+    public static class ColdEvent implements EventBusEvent {
+    }
+
+    private class Handler extends EventBusHandler<EventBusEvent> {
+
+        private final Class<EventBusEvent> cls;
+
+        Handler(Class<? extends EventBusEvent> cls) {
+            this.cls = (Class<EventBusEvent>)cls;
+        }
+
+        @Override
+        Class<EventBusEvent> getTypeClass() {
+            return cls;
+        }
+
+        @Override
+        public void handleEvent(EventBusEvent event) {
+            handle(event);
+        }
+
+        @Override
+        void handle(EventBusEvent event) {
+            handled.increment();
+        }
+    }
+
+    /**
+     * Runs handlers on dispatcher thread.
+     */
+    private static class DirectExecutor extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return null;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.javaplugs.minibus.old;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memory footprint of queued events: compact {@link Event} properties
+ * versus HashMap based storage used before.
+ * Run with: gradle eventFootprint
+ */
+public class EventFootprintBenchmark {
+
+    private static final int EVENTS = 1_000_000;
+
+    private static final String[] REGIONS = {"EU", "US", "APAC"};
+
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : EVENTS;
+
+        measure("HashMap properties", events, i -> {
+            Map<String, Object> m = new HashMap<>(8);
+            m.put("id", i);
+            m.put("ts", 1_500_000_000_000L + i);
+            m.put("amount", i * 0.5);
+            m.put("region", REGIONS[i % REGIONS.length]);
+            m.put("source", "web");
+            return m;
+        });
+
+        measure("Event properties", events, i -> {
+            Event e = new Event("ORDER_CREATED");
+            e.setInt("id", i);
+            e.setLong("ts", 1_500_000_000_000L + i);
+            e.setDouble("amount", i * 0.5);
+            e.set("region", REGIONS[i % REGIONS.length]);
+            e.set("source", "web");
+            return e;
+        });
+    }
+
+    private static void measure(String name, int events, Factory factory) {
+        Object[] holder = new Object[events];
+        long before = usedMemory();
+        for (int i = 0; i < events; i++) {
+            holder[i] = factory.create(i);
+        }
+        long after = usedMemory();
+        System.out.printf("%-20s %,d events, %,d bytes, %.1f bytes per event%n",
+            name, events, after - before, (after - before) / (double)events);
+        if (holder[events - 1] == null) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private interface Factory {
+
+        Object create(int i);
+    }
+}
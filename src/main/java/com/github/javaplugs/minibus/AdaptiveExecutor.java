@@ -0,0 +1,465 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded executor for event handlers which changes its workers count depending on load.
+ * Every sample interval it checks how long tasks wait in queue, how long handlers run,
+ * how busy workers are and how busy CPU is. CPU load is taken from {@code com.sun.management.OperatingSystemMXBean}
+ * when JVM provides it, otherwise it is estimated as one minute system load average per processor,
+ * which reacts slowly and only prevents growth of already overloaded system.
+ * Pool grows if tasks wait longer than target and CPU is not saturated,
+ * and shrinks one worker at a time when it is idle for several intervals in a row.
+ * Growth is limited to doubling per interval and measurements are smoothed,
+ * so short bursts do not cause oscillation.
+ */
+public class AdaptiveExecutor extends AbstractExecutorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveExecutor.class);
+
+    /**
+     * Weight of last sample in smoothed measurements.
+     */
+    private static final double ALPHA = 0.3;
+
+    /**
+     * Workers count is estimated by Little's law with this reserve.
+     */
+    private static final double HEADROOM = 1.25;
+
+    /**
+     * Pool is idle if workers are busy less than this part of time.
+     */
+    private static final double LOW_UTILIZATION = 0.5;
+
+    /**
+     * Count of idle intervals in a row before worker is removed.
+     */
+    private static final int SHRINK_AFTER = 5;
+
+    private static final OperatingSystemMXBean OS = ManagementFactory.getOperatingSystemMXBean();
+
+    private static final boolean CPU_LOAD_AVAILABLE = cpuLoadAvailable();
+
+    private final int minThreads;
+
+    private final int maxThreads;
+
+    private volatile long targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private volatile double maxCpuLoad = 0.9;
+
+    private volatile long intervalNanos = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private volatile Consumer<SizingDecision> listener;
+
+    private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger poolSize = new AtomicInteger();
+
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    private volatile int targetSize;
+
+    private volatile boolean shutdown;
+
+    private final Thread controller;
+
+    private final DoubleSupplier cpuLoad;
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    private final LongAdder runNanos = new LongAdder();
+
+    private final LongAdder grown = new LongAdder();
+
+    private final LongAdder shrunk = new LongAdder();
+
+    private volatile SizingDecision lastDecision;
+
+    // Controller thread state
+    private double wait;
+
+    private double latency;
+
+    private int idleIntervals;
+
+    /**
+     * @param minThreads Workers count to keep even without load, at least 1
+     * @param maxThreads Workers count limit
+     */
+    public AdaptiveExecutor(int minThreads, int maxThreads) {
+        this(minThreads, maxThreads, AdaptiveExecutor::systemLoad, true);
+    }
+
+    /**
+     * @param cpuLoad CPU load source, negative value means unknown
+     * @param autoResize If false there is no controller thread and {@link #resize} should be called manually
+     */
+    AdaptiveExecutor(int minThreads, int maxThreads, DoubleSupplier cpuLoad, boolean autoResize) {
+        if (minThreads < 1 || maxThreads < minThreads) {
+            throw new IllegalArgumentException("Bad pool bounds " + minThreads + ".." + maxThreads);
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.targetSize = minThreads;
+        this.cpuLoad = cpuLoad;
+        startWorkers();
+        if (autoResize) {
+            controller = new Thread(this::control, "EventBus executor controller");
+            controller.setDaemon(true);
+            controller.start();
+        } else {
+            controller = null;
+        }
+    }
+
+    /**
+     * Set queue wait time pool tries to keep, 1 ms by default.
+     */
+    public void setTargetWait(long time, TimeUnit unit) {
+        targetWaitNanos = unit.toNanos(time);
+    }
+
+    /**
+     * Set CPU load from 0 to 1 above which pool will not grow, 0.9 by default.
+     */
+    public void setMaxCpuLoad(double maxCpuLoad) {
+        this.maxCpuLoad = maxCpuLoad;
+    }
+
+    /**
+     * Set how often pool size is reconsidered, 50 ms by default.
+     */
+    public void setSampleInterval(long time, TimeUnit unit) {
+        intervalNanos = Math.max(1, unit.toNanos(time));
+    }
+
+    /**
+     * Set listener which is called from controller thread on each resize.
+     */
+    public void setSizingListener(Consumer<SizingDecision> listener) {
+        this.listener = listener;
+    }
+
+    public int getMinThreads() {
+        return minThreads;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * @return Current workers count
+     */
+    public int getPoolSize() {
+        return poolSize.get();
+    }
+
+    /**
+     * @return Workers count pool is moving to
+     */
+    public int getTargetSize() {
+        return targetSize;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getCompletedTaskCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return Count of decisions to add workers
+     */
+    public long getGrowCount() {
+        return grown.sum();
+    }
+
+    /**
+     * @return Count of decisions to remove workers
+     */
+    public long getShrinkCount() {
+        return shrunk.sum();
+    }
+
+    /**
+     * @return Last resize or null if pool was never resized
+     */
+    public SizingDecision getLastDecision() {
+        return lastDecision;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        Task task = new Task(command);
+        queue.add(task);
+        // Workers may have retired on concurrent shutdown, if task is still queued nobody takes it
+        if (shutdown && queue.remove(task)) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        submitted.increment();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (controller != null) {
+            controller.interrupt();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Task> tasks = new ArrayList<>();
+        queue.drainTo(tasks);
+        workers.forEach(Thread::interrupt);
+        List<Runnable> result = new ArrayList<>(tasks.size());
+        tasks.forEach(t -> result.add(t.command));
+        return result;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && poolSize.get() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (poolSize) {
+            while (!isTerminated()) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(poolSize, left);
+            }
+        }
+        return true;
+    }
+
+    private void startWorkers() {
+        int n;
+        while ((n = poolSize.get()) < targetSize && !shutdown) {
+            if (poolSize.compareAndSet(n, n + 1)) {
+                Thread th = new Thread(this::work, "EventBus handler " + threadNumber.incrementAndGet());
+                th.setDaemon(true);
+                workers.add(th);
+                th.start();
+            }
+        }
+    }
+
+    /**
+     * Atomically remove current worker from pool if there are more workers than needed.
+     */
+    private boolean retire() {
+        int n;
+        while ((n = poolSize.get()) > targetSize || (shutdown && queue.isEmpty())) {
+            if (poolSize.compareAndSet(n, n - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void work() {
+        boolean retired = false;
+        try {
+            while (!(retired = retire())) {
+                Task task = queue.poll(intervalNanos, TimeUnit.NANOSECONDS);
+                if (task == null) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                waitNanos.add(start - task.enqueued);
+                try {
+                    task.command.run();
+                } catch (Throwable th) {
+                    logger.error("Task fail. " + th.getMessage(), th);
+                }
+                runNanos.add(System.nanoTime() - start);
+                completed.increment();
+            }
+        } catch (InterruptedException ex) {
+            // shutdownNow
+        } finally {
+            if (!retired) {
+                poolSize.decrementAndGet();
+            }
+            workers.remove(Thread.currentThread());
+            if (shutdown) {
+                synchronized (poolSize) {
+                    poolSize.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void control() {
+        long last = System.nanoTime();
+        while (!shutdown) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(intervalNanos);
+            } catch (InterruptedException ex) {
+                break;
+            }
+            long now = System.nanoTime();
+            resize(now - last, now);
+            last = now;
+        }
+    }
+
+    void resize(long elapsed, long now) {
+        long done = completed.sumThenReset();
+        long waited = waitNanos.sumThenReset();
+        long run = runNanos.sumThenReset();
+        long arrived = submitted.sumThenReset();
+
+        // Tasks stuck in queue are not counted in completed ones yet, so take age of oldest one too
+        Task head = queue.peek();
+        long headAge = head == null ? 0 : now - head.enqueued;
+        wait = smooth(wait, Math.max(done == 0 ? 0 : waited / done, headAge));
+        if (done > 0) {
+            latency = smooth(latency, run / done);
+        }
+        int size = poolSize.get();
+        double utilization = size == 0 ? 0 : Math.min(1.0, (double)run / ((double)size * elapsed));
+        double cpu = cpuLoad.getAsDouble();
+
+        int current = targetSize;
+        int next = current;
+        // Little's law: workers = arrival rate * time in handler
+        int needed = (int)Math.ceil(arrived * latency / elapsed * HEADROOM);
+        if (wait > targetWaitNanos && (cpu < 0 || cpu < maxCpuLoad)) {
+            idleIntervals = 0;
+            next = Math.min(maxThreads, Math.max(current + 1, Math.min(needed, current * 2)));
+        } else if (wait < targetWaitNanos / 2 && utilization < LOW_UTILIZATION) {
+            if (++idleIntervals >= SHRINK_AFTER) {
+                idleIntervals = 0;
+                next = Math.max(minThreads, Math.max(needed, current - 1));
+            }
+        } else {
+            idleIntervals = 0;
+        }
+
+        if (next != current) {
+            targetSize = next;
+            (next > current ? grown : shrunk).increment();
+            SizingDecision decision = new SizingDecision(current, next, (long)wait, (long)latency,
+                queue.size(), utilization, cpu);
+            lastDecision = decision;
+            logger.debug("Handlers executor {}", decision);
+            Consumer<SizingDecision> l = listener;
+            if (l != null) {
+                try {
+                    l.accept(decision);
+                } catch (Throwable th) {
+                    logger.error("Sizing listener fail. " + th.getMessage(), th);
+                }
+            }
+        }
+        startWorkers();
+    }
+
+    /**
+     * @return Recent CPU load of system, or of this process if system one is not known, from 0 to 1,
+     * one minute system load average per processor if JVM does not provide them, or -1 if it is not available
+     */
+    static double systemLoad() {
+        if (CPU_LOAD_AVAILABLE) {
+            com.sun.management.OperatingSystemMXBean os = (com.sun.management.OperatingSystemMXBean)OS;
+            double load = os.getSystemCpuLoad();
+            if (load < 0) {
+                load = os.getProcessCpuLoad();
+            }
+            if (load >= 0) {
+                return load;
+            }
+        }
+        double load = OS.getSystemLoadAverage();
+        return load < 0 ? -1 : load / OS.getAvailableProcessors();
+    }
+
+    private static boolean cpuLoadAvailable() {
+        try {
+            return OS instanceof com.sun.management.OperatingSystemMXBean;
+        } catch (LinkageError er) {
+            // JVM without com.sun.management
+            return false;
+        }
+    }
+
+    private static double smooth(double prev, double sample) {
+        return prev + ALPHA * (sample - prev);
+    }
+
+    private static class Task {
+
+        final Runnable command;
+
+        final long enqueued = System.nanoTime();
+
+        Task(Runnable command) {
+            this.command = command;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for handlers with {@link HandlerAffinity}.
+ */
+class AffinityExecutors {
+
+    private final Map<WeakHandler, ExecutorService> pinned = new ConcurrentHashMap<>();
+
+    private final Map<WeakHandler, Executor> serial = new ConcurrentHashMap<>();
+
+    private final Map<String, Loop> loops = new ConcurrentHashMap<>();
+
+    private final Map<WeakHandler, Loop> loopUsers = new ConcurrentHashMap<>();
+
+    /**
+     * Return executor for subscribed handler.
+     *
+     * @return Executor or null if handler should use bus executor
+     */
+    Executor acquire(WeakHandler wh, EventBusHandler handler) {
+        HandlerAffinity affinity = handler.getAffinity();
+        if (affinity == null) {
+            return null;
+        }
+        switch (affinity.getKind()) {
+            case PINNED:
+                return pinned.computeIfAbsent(wh,
+                    k -> singleThread("EventBus pinned " + handler.getClass().getSimpleName()));
+            case EVENT_LOOP:
+                return joinLoop(wh, affinity.getName());
+            default:
+                return serial.computeIfAbsent(wh, k -> new SerialExecutor(affinity.getExecutor()));
+        }
+    }
+
+    /**
+     * Release executor of unsubscribed or collected handler.
+     */
+    void release(WeakHandler wh) {
+        ExecutorService ex = pinned.remove(wh);
+        if (ex != null) {
+            ex.shutdown();
+        }
+        serial.remove(wh);
+        Loop loop = loopUsers.remove(wh);
+        if (loop != null) {
+            leaveLoop(loop);
+        }
+    }
+
+    private synchronized Executor joinLoop(WeakHandler wh, String name) {
+        Loop loop = loopUsers.get(wh);
+        if (loop == null) {
+            loop = loops.computeIfAbsent(name, n -> new Loop(n, singleThread("EventBus loop " + n)));
+            loop.users++;
+            loopUsers.put(wh, loop);
+        }
+        return loop.executor;
+    }
+
+    /**
+     * Event loop thread is stopped when last handler using it is released.
+     */
+    private synchronized void leaveLoop(Loop loop) {
+        if (--loop.users == 0) {
+            loops.remove(loop.name, loop);
+            loop.executor.shutdown();
+        }
+    }
+
+    int getLoopCount() {
+        return loops.size();
+    }
+
+    private static ExecutorService singleThread(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread th = new Thread(r, name);
+            th.setDaemon(true);
+            return th;
+        });
+    }
+
+    private static class Loop {
+
+        final String name;
+
+        final ExecutorService executor;
+
+        int users;
+
+        Loop(String name, ExecutorService executor) {
+            this.name = name;
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link ErrorHandler} which groups failures by handler class, event class and exception class.
+ * First failure of each group is logged with stack trace, after that failures are only counted
+ * and groups with new failures are logged as one summary per interval.
+ * So error storm costs a map lookup and a few counters per failure instead of formatting
+ * and writing stack trace each time.
+ *
+ * Summary is written by first failing thread after interval is over, there is no own thread.
+ * Use {@link #logSummary()} to flush counters, for example on shutdown.
+ */
+public class AggregatingErrorHandler implements ErrorHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AggregatingErrorHandler.class);
+
+    private final ConcurrentHashMap<Key, ErrorAggregate> aggregates = new ConcurrentHashMap<>();
+
+    private final long intervalNanos;
+
+    private final AtomicLong nextSummary;
+
+    public AggregatingErrorHandler() {
+        this(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @param summaryInterval Minimal interval between summaries
+     * @param unit Interval time unit
+     */
+    public AggregatingErrorHandler(long summaryInterval, TimeUnit unit) {
+        if (summaryInterval <= 0) {
+            throw new IllegalArgumentException("Summary interval should be positive");
+        }
+        this.intervalNanos = unit.toNanos(summaryInterval);
+        this.nextSummary = new AtomicLong(System.nanoTime() + intervalNanos);
+    }
+
+    @Override
+    public void onError(EventBusHandler<?> handler, EventBusEvent event, Throwable error, int attempt, boolean retry) {
+        Key key = new Key(handler == null ? null : handler.getClass(), event.getClass(), error.getClass());
+        ErrorAggregate agg = aggregates.get(key);
+        if (agg == null) {
+            ErrorAggregate created = new ErrorAggregate(key.handler, key.event, key.error);
+            agg = aggregates.putIfAbsent(key, created);
+            if (agg == null) {
+                agg = created;
+                logFirst(key, error, retry);
+            }
+        }
+        agg.add(error, retry);
+
+        long next = nextSummary.get();
+        long now = System.nanoTime();
+        if (now - next >= 0 && nextSummary.compareAndSet(next, now + intervalNanos)) {
+            logSummary();
+        }
+    }
+
+    /**
+     * Log aggregates which got new failures since previous summary.
+     */
+    public void logSummary() {
+        synchronized (this) {
+            for (ErrorAggregate agg : aggregates.values()) {
+                long count = agg.getCount();
+                long delta = count - agg.reported;
+                if (delta > 0) {
+                    agg.reported = count;
+                    logger.error("Handler failures: +" + delta + " " + agg);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Snapshot of all aggregates
+     */
+    public List<ErrorAggregate> getAggregates() {
+        return new ArrayList<>(aggregates.values());
+    }
+
+    /**
+     * Return aggregate for exact classes.
+     *
+     * @param handlerClass Handler class or null for dispatching failures
+     * @return Aggregate or null if there was no such failures
+     */
+    public ErrorAggregate getAggregate(Class<?> handlerClass, Class<?> eventClass, Class<?> errorClass) {
+        return aggregates.get(new Key(handlerClass, eventClass, errorClass));
+    }
+
+    /**
+     * @return Total count of failures
+     */
+    public long getTotal() {
+        long total = 0;
+        for (ErrorAggregate agg : aggregates.values()) {
+            total += agg.getCount();
+        }
+        return total;
+    }
+
+    /**
+     * Remove all aggregates, next failure of each group will be logged with stack trace again.
+     */
+    public void reset() {
+        aggregates.clear();
+    }
+
+    private void logFirst(Key key, Throwable error, boolean retry) {
+        String msg = (key.handler == null ? "Event processing fail " : "Handler " + key.handler.getSimpleName() + " fail on event ")
+            + key.event.getSimpleName() + (retry ? ", will be retried. " : ". ") + error.getMessage()
+            + ". Further failures of the same kind are reported in summaries.";
+        if (retry) {
+            logger.warn(msg, error);
+        } else {
+            logger.error(msg, error);
+        }
+    }
+
+    private static class Key {
+
+        final Class<?> handler;
+
+        final Class<?> event;
+
+        final Class<?> error;
+
+        final int hash;
+
+        Key(Class<?> handler, Class<?> event, Class<?> error) {
+            this.handler = handler;
+            this.event = event;
+            this.error = error;
+            this.hash = (Objects.hashCode(handler) * 31 + event.hashCode()) * 31 + error.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key)obj;
+            return handler == k.handler && event == k.event && error == k.error;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps handlers with pure {@link EventBusHandler#canHandle} and memoize their results per event class.
+ * Memoized results are dropped on any subscription change.
+ */
+class CanHandleCache<E extends EventBusEvent> {
+
+    private final Set<WeakHandler<EventBusHandler<E>>> handlers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private volatile Map<Class, List<WeakHandler<EventBusHandler<E>>>> matched = new ConcurrentHashMap<>();
+
+    void add(WeakHandler<EventBusHandler<E>> wh) {
+        if (handlers.add(wh)) {
+            matched = new ConcurrentHashMap<>();
+        }
+    }
+
+    void remove(WeakHandler<EventBusHandler<E>> wh) {
+        if (handlers.remove(wh)) {
+            matched = new ConcurrentHashMap<>();
+        }
+    }
+
+    boolean contains(WeakHandler<EventBusHandler<E>> wh) {
+        return handlers.contains(wh);
+    }
+
+    /**
+     * True if any handler can handle events of provided class, memoized like {@link #get}.
+     */
+    boolean has(Class<? extends EventBusEvent> cls) {
+        return !handlers.isEmpty() && !get(cls).isEmpty();
+    }
+
+    /**
+     * Return handlers which can handle events of provided class.
+     */
+    List<WeakHandler<EventBusHandler<E>>> get(Class<? extends EventBusEvent> cls) {
+        Map<Class, List<WeakHandler<EventBusHandler<E>>>> m = matched;
+        List<WeakHandler<EventBusHandler<E>>> list = m.get(cls);
+        if (list == null) {
+            list = resolve(cls);
+            m.put(cls, list);
+        }
+        return list;
+    }
+
+    private List<WeakHandler<EventBusHandler<E>>> resolve(Class<? extends EventBusEvent> cls) {
+        List<WeakHandler<EventBusHandler<E>>> list = new ArrayList<>();
+        for (WeakHandler<EventBusHandler<E>> wh : handlers) {
+            EventBusHandler<E> eh = wh.get();
+            if (eh != null && eh.canHandle(cls)) {
+                list.add(wh);
+            }
+        }
+        return list.isEmpty() ? Collections.emptyList() : list;
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Event bus scoped to part of application, for example tenant or session,
+ * connected to parent bus.
+ *
+ * Events published to parent are delivered to child handlers if they match receive filter.
+ * Child does not subscribe its handlers to parent, instead it subscribes one forwarding
+ * handler per event class which has subscribers in child, so parent never checks classes
+ * child is not interested in and never scans child handlers.
+ *
+ * Events published to child which match forward filter go to parent, and come back to child
+ * through parent if they match receive filter too. Other events are delivered to child
+ * handlers only.
+ *
+ * Child handlers are called from thread which delivers event to child, i.e. parent
+ * handler thread or publisher thread. {@link #close()} removes all child subscriptions
+ * from parent at once. Forwarders of collected child handlers are removed from parent
+ * on next subscription change or event passing through child.
+ */
+public class ChildBus<E extends EventBusEvent> implements EventBus<E>, PublishListeners.Source<E>, AutoCloseable {
+
+    private final EventBus<E> parent;
+
+    private final Class<?> receive;
+
+    private final Class<?> forward;
+
+    private final EventBusSimple<E> local = new EventBusSimple<>();
+
+    private final PublishListeners<E> publishListeners = new PublishListeners<>();
+
+    private final ReferenceQueue gcQueue = new ReferenceQueue();
+
+    private final Map<Class, Set<WeakHandler>> typed = new HashMap<>();
+
+    private final Set<WeakHandler> untyped = new HashSet<>();
+
+    /**
+     * Copy of untyped handlers for {@link Forwarder#canHandle} called from parent threads.
+     */
+    private volatile WeakHandler[] untypedHandlers = new WeakHandler[0];
+
+    private final Map<Class, Forwarder> forwarders = new ConcurrentHashMap<>();
+
+    private final Forwarder anyForwarder = new Forwarder(null);
+
+    private volatile boolean closed;
+
+    /**
+     * Create child which receives all events from parent and does not forward its own events.
+     */
+    public ChildBus(EventBus<E> parent) {
+        this(parent, EventBusEvent.class, null);
+    }
+
+    /**
+     * @param parent Parent bus
+     * @param receive Events of this class and subclasses published to parent are delivered to child,
+     * null to receive nothing
+     * @param forward Events of this class and subclasses published to child are published to parent,
+     * null to forward nothing
+     */
+    public ChildBus(EventBus<E> parent, Class<? extends EventBusEvent> receive,
+        Class<? extends EventBusEvent> forward) {
+        this.parent = parent;
+        this.receive = receive;
+        this.forward = forward;
+    }
+
+    public EventBus<E> getParent() {
+        return parent;
+    }
+
+    @Override
+    public synchronized void subscribe(EventBusHandler<? extends E> subscriber) {
+        if (closed) {
+            throw new IllegalStateException("Child bus is closed");
+        }
+        expunge();
+        local.subscribe(subscriber);
+        WeakHandler wh = new WeakHandler(subscriber, gcQueue);
+        Class cls = wh.getHandlerTypeClass();
+        if (cls == null) {
+            if (untyped.add(wh)) {
+                untypedHandlers = untyped.toArray(new WeakHandler[0]);
+                if (untyped.size() == 1 && receive != null) {
+                    parent.subscribe(anyForwarder);
+                }
+            }
+        } else {
+            Set<WeakHandler> set = typed.computeIfAbsent(cls, c -> new HashSet<>());
+            if (set.add(wh) && set.size() == 1 && isReceived(cls)) {
+                Forwarder f = new Forwarder(cls);
+                forwarders.put(cls, f);
+                parent.subscribe(f);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void unsubscribe(EventBusHandler<? extends E> subscriber) {
+        local.unsubscribe(subscriber);
+        remove(new WeakHandler(subscriber, null));
+        expunge();
+    }
+
+    @Override
+    public void publish(E event) {
+        if (event == null) {
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("Child bus is closed");
+        }
+        expungeCollected();
+        publishListeners.published(event);
+        if (forward != null && forward.isInstance(event)) {
+            parent.publish(event);
+            if (isReceived(event.getClass())) {
+                // Will come back from parent
+                return;
+            }
+        }
+        local.publish(event);
+    }
+
+    @Override
+    public boolean hasSubscribers(Class<? extends E> cls) {
+        return local.hasSubscribers(cls)
+            || (forward != null && forward.isAssignableFrom(cls) && parent.hasSubscribers(cls));
+    }
+
+    /**
+     * Add listener called in publishing thread for each event passed to publish,
+     * before event is queued, rate limited or delivered.
+     * Events received from parent are not passed to child listeners. Listener should be fast
+     * and not throw, its failures are logged.
+     *
+     * @param listener Listener, same instance should be passed to {@link #removePublishListener}
+     */
+    @Override
+    public void addPublishListener(Consumer<? super E> listener) {
+        publishListeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Remove listener added by {@link #addPublishListener}, unknown listener is ignored.
+     */
+    @Override
+    public void removePublishListener(Consumer<? super E> listener) {
+        publishListeners.remove(listener);
+    }
+
+    @Override
+    public void setDeliveryListener(Consumer<? super E> listener) {
+        local.setDeliveryListener(listener);
+    }
+
+    @Override
+    public boolean hasPendingEvents() {
+        return local.hasPendingEvents();
+    }
+
+    /**
+     * Remove all child forwarding handlers from parent and drop child subscriptions.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        forwarders.values().forEach(parent::unsubscribe);
+        forwarders.clear();
+        if (!untyped.isEmpty() && receive != null) {
+            parent.unsubscribe(anyForwarder);
+        }
+        for (WeakHandler wh : untyped) {
+            unsubscribeLocal(wh);
+        }
+        for (Set<WeakHandler> set : typed.values()) {
+            set.forEach(this::unsubscribeLocal);
+        }
+        untyped.clear();
+        untypedHandlers = new WeakHandler[0];
+        typed.clear();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private boolean isReceived(Class cls) {
+        return receive != null && receive.isAssignableFrom(cls);
+    }
+
+    private void unsubscribeLocal(WeakHandler wh) {
+        EventBusHandler h = (EventBusHandler)wh.get();
+        if (h != null) {
+            local.unsubscribe(h);
+        }
+    }
+
+    /**
+     * Remove subscriptions of collected handlers.
+     */
+    private void expunge() {
+        WeakHandler wh;
+        while ((wh = (WeakHandler)gcQueue.poll()) != null) {
+            remove(wh);
+        }
+    }
+
+    /**
+     * Remove subscriptions of collected handlers from publishing or parent handler thread,
+     * lock is taken only if there are any.
+     */
+    private void expungeCollected() {
+        WeakHandler wh = (WeakHandler)gcQueue.poll();
+        if (wh != null) {
+            synchronized (this) {
+                remove(wh);
+                expunge();
+            }
+        }
+    }
+
+    private void remove(WeakHandler wh) {
+        Class cls = wh.getHandlerTypeClass();
+        if (cls == null) {
+            if (untyped.remove(wh)) {
+                untypedHandlers = untyped.toArray(new WeakHandler[0]);
+                if (untyped.isEmpty() && receive != null) {
+                    parent.unsubscribe(anyForwarder);
+                }
+            }
+        } else {
+            Set<WeakHandler> set = typed.get(cls);
+            if (set != null && set.remove(wh) && set.isEmpty()) {
+                typed.remove(cls);
+                Forwarder f = forwarders.remove(cls);
+                if (f != null) {
+                    parent.unsubscribe(f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handler subscribed to parent on behalf of child handlers of one event class,
+     * or of all child handlers using {@link EventBusHandler#canHandle} if class is null.
+     */
+    private class Forwarder extends EventBusHandler<E> {
+
+        private final Class<E> cls;
+
+        Forwarder(Class<E> cls) {
+            this.cls = cls;
+        }
+
+        @Override
+        Class<E> getTypeClass() {
+            return cls;
+        }
+
+        @Override
+        public boolean canHandle(Class<? extends EventBusEvent> eventClass) {
+            // Classes with typed handlers in child are delivered by their own forwarders
+            if (!isReceived(eventClass) || forwarders.containsKey(eventClass)) {
+                return false;
+            }
+            for (WeakHandler wh : untypedHandlers) {
+                EventBusHandler h = (EventBusHandler)wh.get();
+                if (h != null && h.canHandle(eventClass)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Type argument is a type variable, so event is passed as is without reflective type lookup.
+         */
+        @Override
+        public void handleEvent(EventBusEvent event) {
+            handle((E)event);
+        }
+
+        @Override
+        void handle(E event) {
+            expungeCollected();
+            local.publish(event);
+        }
+    }
+}
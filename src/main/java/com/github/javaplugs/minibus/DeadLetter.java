@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+/**
+ * Event delivery that failed after all retry attempts.
+ */
+public final class DeadLetter<E extends EventBusEvent> {
+
+    private final E event;
+
+    private final EventBusHandler<E> handler;
+
+    /**
+     * Subscription of handler, its executor is used on redrive.
+     */
+    final WeakHandler<EventBusHandler<E>> subscription;
+
+    private final Throwable error;
+
+    private final int attempts;
+
+    private final long timestamp = System.currentTimeMillis();
+
+    DeadLetter(E event, EventBusHandler<E> handler, WeakHandler<EventBusHandler<E>> subscription,
+        Throwable error, int attempts) {
+        this.event = event;
+        this.handler = handler;
+        this.subscription = subscription;
+        this.error = error;
+        this.attempts = attempts;
+    }
+
+    public E getEvent() {
+        return event;
+    }
+
+    public EventBusHandler<E> getHandler() {
+        return handler;
+    }
+
+    /**
+     * @return Error thrown by handler on last attempt
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return Time when event was dead lettered in milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "DeadLetter{" + event.getClass().getSimpleName() + " -> " + handler.getClass().getSimpleName()
+            + ", attempts " + attempts + ", " + error + "}";
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Bounded store of failed deliveries. When store is full the oldest dead letter is evicted.
+ * Keep in mind that dead letters keep strong links to events and handlers.
+ */
+public class DeadLetterStore<E extends EventBusEvent> {
+
+    private final int capacity;
+
+    private final Deque<DeadLetter<E>> letters = new ArrayDeque<>();
+
+    private long evicted;
+
+    public DeadLetterStore(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity should be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    synchronized void add(DeadLetter<E> letter) {
+        if (letters.size() == capacity) {
+            letters.pollFirst();
+            evicted++;
+        }
+        letters.addLast(letter);
+    }
+
+    /**
+     * @return Copy of stored dead letters, oldest first
+     */
+    public synchronized List<DeadLetter<E>> getAll() {
+        return new ArrayList<>(letters);
+    }
+
+    /**
+     * Remove and return all stored dead letters, oldest first.
+     */
+    public synchronized List<DeadLetter<E>> drain() {
+        List<DeadLetter<E>> list = new ArrayList<>(letters);
+        letters.clear();
+        return list;
+    }
+
+    public synchronized boolean remove(DeadLetter<E> letter) {
+        return letters.remove(letter);
+    }
+
+    public synchronized int size() {
+        return letters.size();
+    }
+
+    /**
+     * @return Count of dead letters evicted because store was full
+     */
+    public synchronized long getEvicted() {
+        return evicted;
+    }
+}
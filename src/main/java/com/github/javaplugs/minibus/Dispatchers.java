@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of generated dispatchers from all {@link DispatcherIndex} services on classpath.
+ * Indexes are loaded once on first access.
+ */
+final class Dispatchers {
+
+    private static final Logger logger = LoggerFactory.getLogger(Dispatchers.class);
+
+    private Dispatchers() {
+    }
+
+    /**
+     * @return Dispatcher generated for exact handler class or null
+     */
+    static <E extends EventBusEvent> HandlerDispatcher<E> find(Class<?> handlerClass) {
+        return (HandlerDispatcher<E>)Holder.dispatchers.get(handlerClass);
+    }
+
+    private static class Holder {
+
+        static final Map<Class<?>, HandlerDispatcher<?>> dispatchers = load();
+
+        private static Map<Class<?>, HandlerDispatcher<?>> load() {
+            Map<Class<?>, HandlerDispatcher<?>> map = new HashMap<>();
+            try {
+                for (DispatcherIndex index : ServiceLoader.load(DispatcherIndex.class, Dispatchers.class.getClassLoader())) {
+                    for (HandlerDispatcher<?> d : index.getDispatchers()) {
+                        map.put(d.getHandlerClass(), d);
+                    }
+                }
+            } catch (Throwable th) {
+                logger.error("Can not load generated dispatchers. " + th.getMessage(), th);
+            }
+            return map.isEmpty() ? Collections.emptyMap() : map;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of failures with the same handler class, event class and exception class.
+ */
+public class ErrorAggregate {
+
+    private final Class<?> handlerClass;
+
+    private final Class<?> eventClass;
+
+    private final Class<?> errorClass;
+
+    private final long firstSeen = System.currentTimeMillis();
+
+    private volatile long lastSeen;
+
+    private volatile String lastMessage;
+
+    final LongAdder count = new LongAdder();
+
+    final LongAdder retried = new LongAdder();
+
+    /**
+     * Count at the moment of last summary, used to report only changed aggregates.
+     */
+    long reported;
+
+    ErrorAggregate(Class<?> handlerClass, Class<?> eventClass, Class<?> errorClass) {
+        this.handlerClass = handlerClass;
+        this.eventClass = eventClass;
+        this.errorClass = errorClass;
+    }
+
+    void add(Throwable error, boolean retry) {
+        count.increment();
+        if (retry) {
+            retried.increment();
+        }
+        lastSeen = System.currentTimeMillis();
+        lastMessage = error.getMessage();
+    }
+
+    /**
+     * @return Handler class or null for dispatching failures
+     */
+    public Class<?> getHandlerClass() {
+        return handlerClass;
+    }
+
+    public Class<?> getEventClass() {
+        return eventClass;
+    }
+
+    public Class<?> getErrorClass() {
+        return errorClass;
+    }
+
+    /**
+     * @return Count of failures
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return Count of failures which were retried
+     */
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    /**
+     * @return Time of first failure in milliseconds
+     */
+    public long getFirstSeen() {
+        return firstSeen;
+    }
+
+    /**
+     * @return Time of last failure in milliseconds
+     */
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    @Override
+    public String toString() {
+        return (handlerClass == null ? "dispatch" : handlerClass.getName())
+            + " on " + eventClass.getName() + ": " + errorClass.getName()
+            + " x" + getCount() + " (retried " + getRetried() + "), last: " + lastMessage;
+    }
+}
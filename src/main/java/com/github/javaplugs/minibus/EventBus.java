@@ -25,6 +25,7 @@ package com.github.javaplugs.minibus;
 
 import java.util.Collection;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * Generic event bus interface.
@@ -62,6 +63,43 @@ public interface EventBus<E extends EventBusEvent> {
      */
     void publish(E event);
 
+    /**
+     * Publish several events at once. Implementations can pass whole batch to their queue
+     * in one step, by default events are published one by one.
+     *
+     * @param events Events to publish in order
+     */
+    default void publishAll(Collection<? extends E> events) {
+        for (E event : events) {
+            publish(event);
+        }
+    }
+
+    /**
+     * Check if event of exactly provided class would be passed to at least one handler.
+     * Implementations should answer without scanning handlers and may return true
+     * when they can not tell, by default always true.
+     *
+     * @param cls Event class
+     * @return False if nobody would receive such event
+     */
+    default boolean hasSubscribers(Class<? extends E> cls) {
+        return true;
+    }
+
+    /**
+     * Publish event created by supplier only if there is a handler for its class,
+     * so building events nobody listens to costs nothing.
+     *
+     * @param cls Class of event supplier returns
+     * @param supplier Event factory, called at most once from current thread
+     */
+    default <T extends E> void publish(Class<T> cls, Supplier<? extends T> supplier) {
+        if (hasSubscribers(cls)) {
+            publish(supplier.get());
+        }
+    }
+
     /**
      * Indicates whether the bus has pending events to publish. Since message/event
      * delivery can be asynchronous (on other threads), the method can be used to
@@ -23,39 +23,108 @@
  */
 package com.github.javaplugs.minibus;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import java.lang.ref.ReferenceQueue;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Map;
-import java.util.Queue;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 /**
  * Async event bus that will run each event/handler call in separate thread.
  * By default using CachedThreadPool to run handlers.
+ * Delayed events are kept in timing wheel with 1ms resolution driven by events queue thread.
  */
-public class EventBusAsync<E extends EventBusEvent> implements EventBus<E> {
+public class EventBusAsync<E extends EventBusEvent> implements EventBus<E>, PublishListeners.Source<E> {
+
+    /**
+     * Kind of queue for published events.
+     */
+    public enum Ingress {
 
-    private static final Logger logger = LoggerFactory.getLogger(EventBusAsync.class);
+        /**
+         * One lock free queue shared by all publishers, events are dispatched in publishing order.
+         */
+        SHARED,
+
+        /**
+         * Each publisher thread gets own single producer queue, so publishers do not contend
+         * with each other. Queues are drained round robin, order is kept for events published
+         * from one thread only.
+         */
+        PER_PRODUCER,
+
+        /**
+         * Each event class gets own sub-queue and sub-queues are drained with deficit round robin
+         * using weights set by {@link #setFairShare}, so hot event class can not starve others.
+         * Order is kept for events of one class only.
+         * Use {@link #setMaxHandlersInFlight} to keep handler executor queue short,
+         * otherwise fair order can be lost in executor queue.
+         */
+        FAIR
+    }
 
     private final Thread eventQueueThread;
 
-    private final Queue<E> eventsQueue = new ConcurrentLinkedQueue<>();
+    private final IngressQueue<EventBusEvent> eventsQueue;
 
     private final ReferenceQueue gcQueue = new ReferenceQueue();
 
-    private final Map<Class, Set<WeakHandler<EventBusHandler<E>>>> handlersCls = new ConcurrentHashMap<>();
+    private final SubscriptionRegistry handlersCls = new SubscriptionRegistry();
 
     private final Set<WeakHandler<EventBusHandler<E>>> handlers = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    private final CanHandleCache<E> pureHandlers = new CanHandleCache<>();
+
     private final ExecutorService handlersExecutor;
 
+    /**
+     * Events delayed by rate limits, publish listeners already got them.
+     */
+    private final TimingWheel<EventBusEvent> delayed = new TimingWheel<>(TimeUnit.MILLISECONDS.toNanos(1), this::dispatch);
+
+    /**
+     * Events scheduled with {@link #publishAfter}, publish listeners get them when they are due.
+     */
+    private final TimingWheel<EventBusEvent> scheduled = new TimingWheel<>(TimeUnit.MILLISECONDS.toNanos(1),
+        this::dispatchScheduled);
+
+    private final RateLimiter rateLimiter = new RateLimiter();
+
+    private volatile EventTracer tracer;
+
+    private final PublishListeners<E> publishListeners = new PublishListeners<>();
+
+    private volatile Consumer<? super E> deliveryListener;
+
+    private volatile ErrorHandler errorHandler = new AggregatingErrorHandler();
+
+    private final Retries<E> retries = new Retries<>(this::retry);
+
+    private final AffinityExecutors affinity = new AffinityExecutors();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int maxInFlight = Integer.MAX_VALUE;
+
+    /**
+     * Set by events queue thread while it is parked until handler in flight finishes.
+     */
+    private volatile boolean awaitingSlot;
+
+    private volatile StallWatchdog.Monitor monitor;
+
     /**
      * Create new EventBus instance with default presets.
      */
@@ -63,13 +132,40 @@ public class EventBusAsync<E extends EventBusEvent> implements EventBus<E> {
         this(Executors.newCachedThreadPool());
     }
 
+    /**
+     * Create instance which runs handlers on {@link AdaptiveExecutor} sized within provided bounds.
+     *
+     * @param minHandlerThreads Handler threads to keep without load
+     * @param maxHandlerThreads Handler threads limit
+     */
+    public EventBusAsync(int minHandlerThreads, int maxHandlerThreads) {
+        this(new AdaptiveExecutor(minHandlerThreads, maxHandlerThreads));
+    }
+
     /**
      * Create instance with customer ExecutorService for event handlers.
      *
      * @param handlersExecutor Will be used to run event handler processing for each event
      */
     public EventBusAsync(ExecutorService handlersExecutor) {
+        this(handlersExecutor, Ingress.SHARED);
+    }
+
+    /**
+     * Create instance with customer ExecutorService for event handlers and events queue kind.
+     *
+     * @param handlersExecutor Will be used to run event handler processing for each event
+     * @param ingress How published events are queued before dispatching
+     */
+    public EventBusAsync(ExecutorService handlersExecutor, Ingress ingress) {
         this.handlersExecutor = handlersExecutor;
+        if (ingress == Ingress.PER_PRODUCER) {
+            this.eventsQueue = new PerProducerQueue<>();
+        } else if (ingress == Ingress.FAIR) {
+            this.eventsQueue = new FairQueue();
+        } else {
+            this.eventsQueue = IngressQueue.shared();
+        }
         eventQueueThread = new Thread(this::eventsQueue, "EventQueue handlers thread");
         eventQueueThread.setDaemon(true);
         eventQueueThread.start();
@@ -78,99 +174,568 @@ public class EventBusAsync<E extends EventBusEvent> implements EventBus<E> {
     @Override
     public void subscribe(EventBusHandler<? extends E> subscriber) {
         Class<? extends E> cls = subscriber.getTypeClass();
+        WeakHandler<EventBusHandler<E>> wh = new WeakHandler(subscriber, gcQueue);
+        wh.setExecutor(affinity.acquire(wh, subscriber));
         if (cls == null) {
-            handlers.add(new WeakHandler(subscriber, gcQueue));
-        } else {
-            synchronized (this) {
-                Set<WeakHandler<EventBusHandler<E>>> hs = handlersCls.get(cls);
-                if (hs == null) {
-                    hs = Collections.newSetFromMap(new ConcurrentHashMap<>());
-                    handlersCls.put(cls, hs);
-                }
-                hs.add(new WeakHandler(subscriber, gcQueue));
+            if (wh.isCanHandlePure()) {
+                pureHandlers.add(wh);
+            } else {
+                handlers.add(wh);
             }
+        } else {
+            handlersCls.add(wh);
         }
     }
 
     @Override
     public void unsubscribe(EventBusHandler<? extends E> subscriber) {
-        Class cls = subscriber.getTypeClass();
+        removeHandler(new WeakHandler(subscriber, gcQueue));
+    }
+
+    private void removeHandler(WeakHandler<EventBusHandler<E>> wh) {
+        Class cls = wh.getHandlerTypeClass();
         if (cls == null) {
-            handlers.remove(new WeakHandler(subscriber, gcQueue));
-        } else {
-            Set<WeakHandler<EventBusHandler<E>>> set = handlersCls.get(cls);
-            if (set != null) {
-                set.remove(new WeakHandler(subscriber, gcQueue));
+            if (wh.isCanHandlePure()) {
+                pureHandlers.remove(wh);
+            } else {
+                handlers.remove(wh);
             }
+        } else {
+            handlersCls.remove(wh);
         }
+        // Released at once, not when registry applies removal, so handler subscribed again
+        // before that gets new executor instead of one which is going to be shut down
+        affinity.release(wh);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws EventRejectedException If rate limit for event class is exceeded and
+     * limit policy is {@link RateLimit.Policy#REJECT}
+     */
     @Override
-    public void publish(E event) {
-        if (event == null) {
+    public void publish(E event) throws EventRejectedException {
+        if (event == null || UnitOfWork.buffer(this, event)) {
             return;
         }
-        eventsQueue.add(event);
+        publishListeners.published(event);
+
+        long delay = rateLimiter.acquire(event.getClass());
+        if (delay == RateLimiter.PASS) {
+            eventsQueue.offer(trace(event));
+        } else if (delay > 0) {
+            delayed.schedule(trace(event), delay);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Events passed through rate limits are appended to events queue at once.
+     *
+     * @throws EventRejectedException If rate limit for event class is exceeded and
+     * limit policy is {@link RateLimit.Policy#REJECT}, events before rejected one are published
+     */
+    @Override
+    public void publishAll(Collection<? extends E> events) throws EventRejectedException {
+        if (UnitOfWork.buffer(this, events)) {
+            return;
+        }
+
+        List<EventBusEvent> batch = new ArrayList<>(events.size());
+        try {
+            for (E event : events) {
+                if (event == null) {
+                    continue;
+                }
+                publishListeners.published(event);
+                long delay = rateLimiter.acquire(event.getClass());
+                if (delay == RateLimiter.PASS) {
+                    batch.add(trace(event));
+                } else if (delay > 0) {
+                    delayed.schedule(trace(event), delay);
+                }
+            }
+        } finally {
+            eventsQueue.offerAll(batch);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Handlers with not pure {@link EventBusHandler#canHandle} are not asked, if there is any
+     * such handler or subscription change is not applied by events queue thread yet, result is true.
+     */
+    @Override
+    public boolean hasSubscribers(Class<? extends E> cls) {
+        return handlersCls.count(cls) > 0
+            || handlersCls.hasPending()
+            || !handlers.isEmpty()
+            || pureHandlers.has(cls);
     }
 
+    /**
+     * Add listener called in publishing thread for each event passed to publish,
+     * before event is queued, rate limited or delivered.
+     * Events scheduled with {@link #publishAfter} are passed to listener when they are due. Listener should be fast
+     * and not throw, its failures are logged.
+     *
+     * @param listener Listener, same instance should be passed to {@link #removePublishListener}
+     */
+    @Override
+    public void addPublishListener(Consumer<? super E> listener) {
+        publishListeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Remove listener added by {@link #addPublishListener}, unknown listener is ignored.
+     */
+    @Override
+    public void removePublishListener(Consumer<? super E> listener) {
+        publishListeners.remove(listener);
+    }
+
+    @Override
+    public void setDeliveryListener(Consumer<? super E> listener) {
+        this.deliveryListener = listener;
+    }
+
+    /**
+     * Set tracer for sampled causality tracing.
+     *
+     * @param tracer Tracer or null to disable tracing
+     */
+    public void setTracer(EventTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    private EventBusEvent trace(E event) {
+        EventTracer t = tracer;
+        if (t == null) {
+            return event;
+        }
+        TraceContext ctx = t.onPublish(event);
+        return ctx == null ? event : new TracedEvent(event, ctx);
+    }
+
+    /**
+     * Set handler for failures of event handlers, by default {@link AggregatingErrorHandler} is used.
+     */
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = Objects.requireNonNull(errorHandler);
+    }
+
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    /**
+     * Set rate limit for publishing events of provided class.
+     * Limit is applied to exact event class only, subclasses are not limited.
+     *
+     * @param cls Event class
+     * @param limit Rate limit or null to remove limit
+     */
+    public void setRateLimit(Class<? extends E> cls, RateLimit limit) {
+        rateLimiter.set(Objects.requireNonNull(cls), limit);
+    }
+
+    /**
+     * Return counters for rate limited event class.
+     *
+     * @param cls Event class
+     * @return Counters or null if there is no rate limit for this class
+     */
+    public RateLimitCounters getRateLimitCounters(Class<? extends E> cls) {
+        return rateLimiter.getCounters(cls);
+    }
+
+    /**
+     * Publish event after provided delay.
+     * Publish listeners are called from events queue thread when event is due.
+     *
+     * @param event Event to publish
+     * @param delay Delay before event will be passed to handlers,
+     * not positive delay means as soon as possible
+     * @param unit Delay time unit
+     * @return Handle that can be used to cancel publishing
+     */
+    public ScheduledEvent publishAfter(E event, long delay, TimeUnit unit) {
+        Objects.requireNonNull(event);
+        return scheduled.schedule(trace(event), unit.toNanos(delay));
+    }
+
+    /**
+     * Publish event at provided time.
+     * If time is in the past event will be published as soon as possible.
+     *
+     * @param event Event to publish
+     * @param instant Time to publish at
+     * @return Handle that can be used to cancel publishing
+     */
+    public ScheduledEvent publishAt(E event, Instant instant) {
+        long at;
+        try {
+            at = instant.toEpochMilli();
+        } catch (ArithmeticException ex) {
+            at = instant.isAfter(Instant.EPOCH) ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+        long now = System.currentTimeMillis();
+        long delayMillis = at > now ? at - now : 0;
+        return publishAfter(event, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Events scheduled with {@link #publishAfter} and {@link #publishAt} are also treated as pending.
+     */
     @Override
     public boolean hasPendingEvents() {
-        return !eventsQueue.isEmpty();
+        return !eventsQueue.isEmpty() || !delayed.isEmpty() || !scheduled.isEmpty() || !retries.isEmpty();
+    }
+
+    /**
+     * Set default retry policy for failed handlers.
+     * Retries are scheduled on events queue thread timer, so waiting for retry does not block
+     * events queue or other handlers.
+     *
+     * @param policy Policy, null means no retries
+     */
+    public void setRetryPolicy(RetryPolicy policy) {
+        retries.setPolicy(policy);
+    }
+
+    /**
+     * Set weight of event class in {@link Ingress#FAIR} mode, by default each class has weight 1.
+     * Class with weight 3 gets up to three times more dispatching turns than class with weight 1
+     * when both have queued events.
+     *
+     * @param cls Event class
+     * @param weight Positive weight
+     * @throws IllegalStateException If bus is not in fair mode
+     */
+    public void setFairShare(Class<? extends E> cls, int weight) {
+        fairQueue().setWeight(Objects.requireNonNull(cls), weight);
+    }
+
+    /**
+     * Return queue counters of event class in {@link Ingress#FAIR} mode.
+     *
+     * @return Counters or null if there was no events of this class
+     * @throws IllegalStateException If bus is not in fair mode
+     */
+    public FairQueueCounters getFairQueueCounters(Class<? extends E> cls) {
+        return fairQueue().getCounters(cls);
+    }
+
+    private FairQueue fairQueue() {
+        if (!(eventsQueue instanceof FairQueue)) {
+            throw new IllegalStateException("Bus is not in fair ingress mode");
+        }
+        return (FairQueue)eventsQueue;
+    }
+
+    /**
+     * Limit count of dispatched handler calls which are not finished yet.
+     * When limit is reached events stay in events queue, so with {@link Ingress#FAIR}
+     * handler threads are shared between event classes according to their weights
+     * instead of executor queue order. Limit slightly above executor threads count works best.
+     * Retries, redelivered dead letters and inline handlers of {@link EventBusHybrid} are not counted.
+     *
+     * @param max Limit, {@link Integer#MAX_VALUE} for no limit
+     */
+    public void setMaxHandlersInFlight(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Limit should be positive: " + max);
+        }
+        this.maxInFlight = max;
+    }
+
+    /**
+     * @return False if bus already has monitor
+     */
+    synchronized boolean attachMonitor(StallWatchdog.Monitor monitor) {
+        if (this.monitor != null) {
+            return false;
+        }
+        this.monitor = monitor;
+        return true;
+    }
+
+    synchronized void detachMonitor(StallWatchdog.Monitor monitor) {
+        if (this.monitor == monitor) {
+            this.monitor = null;
+        }
+    }
+
+    Thread getEventQueueThread() {
+        return eventQueueThread;
+    }
+
+    /**
+     * Return executor used for handlers without affinity.
+     */
+    public ExecutorService getHandlersExecutor() {
+        return handlersExecutor;
+    }
+
+    /**
+     * Return store with deliveries failed after all retries.
+     *
+     * @return Store or null if dead letters are not kept
+     */
+    public DeadLetterStore<E> getDeadLetters() {
+        return retries.getDeadLetters();
+    }
+
+    /**
+     * Set store for deliveries failed after all retries. There is no store by default,
+     * since dead letters keep strong links to events and handlers.
+     *
+     * @param store Store or null to stop keeping dead letters
+     */
+    public void setDeadLetterStore(DeadLetterStore<E> store) {
+        retries.setDeadLetters(store);
+    }
+
+    /**
+     * Remove all dead letters from store and submit them again to their handlers
+     * with fresh retry attempts. Handlers with {@link HandlerAffinity} run on executor
+     * of subscription which failed, if it was unsubscribed since then rejection is passed to error handler.
+     *
+     * @return Count of redelivered events
+     */
+    public int redriveDeadLetters() {
+        DeadLetterStore<E> store = retries.getDeadLetters();
+        if (store == null) {
+            return 0;
+        }
+        List<DeadLetter<E>> letters = store.drain();
+        for (DeadLetter<E> dl : letters) {
+            EventBusHandler<E> eh = dl.getHandler();
+            WeakHandler<EventBusHandler<E>> wh = dl.subscription;
+            try {
+                execute(wh.getExecutor(), () -> runHandlerWrapper(wh, eh, dl.getEvent(), null, 1));
+            } catch (RejectedExecutionException ex) {
+                errorHandler.onError(eh, dl.getEvent(), ex, 1, false);
+            }
+        }
+        return letters.size();
     }
 
     private void eventsQueue() {
         while (true) {
+            long now = System.nanoTime();
+            StallWatchdog.Monitor m = monitor;
+            if (m != null) {
+                m.loopStarted(now);
+            }
+
             WeakHandler wh;
             while ((wh = (WeakHandler)gcQueue.poll()) != null) {
-                Class cls = wh.getHandlerTypeClass();
-                if (cls == null) {
-                    handlers.remove(wh);
-                } else {
-                    Set<WeakHandler<EventBusHandler<E>>> set = handlersCls.get(cls);
-                    if (set != null) {
-                        set.remove(wh);
-                    }
-                }
+                removeHandler(wh);
             }
+            handlersCls.apply();
 
-            E event = eventsQueue.poll();
+            delayed.advance(now);
+            scheduled.advance(now);
+            retries.advance(now);
+
+            EventBusEvent event = null;
+            if (inFlight.get() < maxInFlight) {
+                event = eventsQueue.poll();
+            } else {
+                awaitSlot();
+            }
             if (event != null) {
-                notifySubscribers(event);
+                // Subscriptions made before event was published must be visible for it
+                handlersCls.apply();
+                dispatch(event);
             }
+            if (m != null) {
+                m.loopFinished();
+            }
+        }
+    }
+
+    /**
+     * Park events queue thread until handler in flight finishes, at most for one timer tick,
+     * so delayed events and retries are still published in time.
+     */
+    private void awaitSlot() {
+        awaitingSlot = true;
+        if (inFlight.get() >= maxInFlight) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        awaitingSlot = false;
+    }
+
+    private void releaseSlot() {
+        if (inFlight.decrementAndGet() < maxInFlight && awaitingSlot) {
+            LockSupport.unpark(eventQueueThread);
+        }
+    }
+
+    private void dispatchScheduled(EventBusEvent queued) {
+        publishListeners.published((E)(queued instanceof TracedEvent ? ((TracedEvent)queued).event : queued));
+        dispatch(queued);
+    }
+
+    private void dispatch(EventBusEvent queued) {
+        if (queued instanceof TracedEvent) {
+            TracedEvent te = (TracedEvent)queued;
+            long start = System.nanoTime();
+            notifySubscribers((E)te.event, te.context);
+            te.context.tracer.onDispatch(te.event, te.context, start, System.nanoTime());
+        } else {
+            notifySubscribers((E)queued, null);
         }
     }
 
-    private void notifySubscribers(E event) {
+    private void notifySubscribers(E event, TraceContext ctx) {
         try {
-            Set<WeakHandler<EventBusHandler<E>>> hcls = handlersCls.get(event.getClass());
+            SubscriptionRegistry.Subscribers hcls = handlersCls.get(event.getClass());
             if (hcls != null) {
-                for (WeakHandler<EventBusHandler<E>> wh : hcls) {
+                WeakHandler<EventBusHandler<E>>[] hs = hcls.handlers;
+                for (int i = 0, size = hcls.size; i < size; i++) {
+                    WeakHandler<EventBusHandler<E>> wh = hs[i];
                     EventBusHandler<E> eh = wh.get();
                     if (eh != null) {
-                        handlersExecutor.submit(() -> runHandlerWrapper(eh, event));
+                        deliver(wh, eh, event, ctx);
                     }
                 }
             }
 
+            for (WeakHandler<EventBusHandler<E>> wh : pureHandlers.get(event.getClass())) {
+                EventBusHandler<E> eh = wh.get();
+                if (eh != null) {
+                    deliver(wh, eh, event, ctx);
+                }
+            }
+
             for (WeakHandler<EventBusHandler<E>> wh : handlers) {
                 EventBusHandler<E> eh = wh.get();
-                if (eh.canHandle(event.getClass())) {
-                    handlersExecutor.submit(() -> runHandlerWrapper(eh, event));
+                if (eh != null && eh.canHandle(event.getClass())) {
+                    deliver(wh, eh, event, ctx);
                 }
             }
         } catch (Throwable th) {
-            logger.error("Event processing fail " + event.getClass().getSimpleName()
-                + ". " + th.getMessage(), th);
+            errorHandler.onError(null, event, th, 1, false);
+        }
+    }
+
+    /**
+     * Submit handler call, rejection of one handler executor does not affect other handlers.
+     */
+    private void deliver(WeakHandler<EventBusHandler<E>> wh, EventBusHandler<E> eh, E event, TraceContext ctx) {
+        try {
+            submit(wh, () -> runHandlerWrapper(wh, eh, event, ctx, 1));
+        } catch (RejectedExecutionException ex) {
+            Executor executor = wh.getExecutor();
+            // Own executor is shut down if handler was unsubscribed after dispatching started
+            if (!(executor instanceof ExecutorService && ((ExecutorService)executor).isShutdown())) {
+                errorHandler.onError(eh, event, ex, 1, false);
+            }
+        }
+    }
+
+    /**
+     * Run handler task for event dispatched by events queue thread.
+     */
+    void submit(WeakHandler<EventBusHandler<E>> wh, Runnable task) {
+        boolean counted = maxInFlight != Integer.MAX_VALUE;
+        if (counted) {
+            Runnable t = task;
+            inFlight.incrementAndGet();
+            task = () -> {
+                try {
+                    t.run();
+                } finally {
+                    releaseSlot();
+                }
+            };
+        }
+        Executor ex = wh.getExecutor();
+        try {
+            if (ex == null) {
+                handlersExecutor.submit(task);
+            } else {
+                ex.execute(task);
+            }
+        } catch (RejectedExecutionException rex) {
+            if (counted) {
+                releaseSlot();
+            }
+            throw rex;
+        }
+    }
+
+    private void execute(Executor ex, Runnable task) {
+        if (ex == null) {
+            handlersExecutor.submit(task);
+        } else {
+            ex.execute(task);
+        }
+    }
+
+    /**
+     * Run due retry on executor resolved when handler was subscribed, so affinity is kept
+     * even if it can not be resolved again now. Retry is dropped if handler was collected
+     * or unsubscribed while waiting.
+     */
+    private void retry(Retries.Delivery<E> d) {
+        EventBusHandler<E> eh = d.subscription.get();
+        if (eh == null || !isSubscribed(d.subscription)) {
+            return;
+        }
+        Executor executor = d.subscription.getExecutor();
+        try {
+            execute(executor, () -> runHandlerWrapper(d.subscription, eh, d.event, d.context, d.attempt));
+        } catch (RejectedExecutionException ex) {
+            // Own executor is shut down if handler was unsubscribed after check
+            if (!(executor instanceof ExecutorService && ((ExecutorService)executor).isShutdown())) {
+                errorHandler.onError(eh, d.event, ex, d.attempt, false);
+            }
         }
     }
 
-    private void runHandlerWrapper(EventBusHandler<E> handler, E event) {
+    /**
+     * Events queue thread only, so registry operations are applied.
+     */
+    private boolean isSubscribed(WeakHandler<EventBusHandler<E>> wh) {
+        if (wh.getHandlerTypeClass() != null) {
+            return handlersCls.contains(wh);
+        }
+        return wh.isCanHandlePure() ? pureHandlers.contains(wh) : handlers.contains(wh);
+    }
+
+    private void runHandlerWrapper(WeakHandler<EventBusHandler<E>> wh, EventBusHandler<E> handler, E event,
+        TraceContext ctx, int attempt) {
+        TraceContext prev = null;
+        long start = 0;
+        if (ctx != null) {
+            prev = EventTracer.enter(ctx);
+            start = System.nanoTime();
+        }
+        StallWatchdog.Monitor m = monitor;
+        long outer = m == null ? 0 : m.enter(handler, event);
         try {
+            Consumer<? super E> dl = deliveryListener;
+            if (dl != null) {
+                dl.accept(event);
+            }
             runHandler(handler, event);
         } catch (Throwable th) {
-            logger.error("Handler " + handler.getClass().getSimpleName()
-                + " fail on event " + event.getClass().getSimpleName()
-                + ". " + th.getMessage(), th);
+            boolean retry = retries.onFailure(new Retries.Delivery<>(wh, event, ctx, attempt), handler, th);
+            errorHandler.onError(handler, event, th, attempt, retry);
+        } finally {
+            if (ctx != null) {
+                ctx.tracer.onHandler(handler, ctx, start, System.nanoTime());
+                EventTracer.exit(prev);
+            }
+            if (m != null) {
+                m.exit(outer);
+            }
         }
     }
 
@@ -34,8 +34,16 @@ public abstract class EventBusHandler<E extends EventBusEvent> {
 
     public Class<E> eventClass;
 
+    private HandlerDispatcher<E> dispatcher;
+
     private Class<E> getGenericTypeClass() {
         if (eventClass == null) {
+            HandlerDispatcher<E> d = Dispatchers.find(getClass());
+            if (d != null) {
+                dispatcher = d;
+                eventClass = d.getEventClass();
+                return eventClass;
+            }
             eventClass = (Class<E>)((ParameterizedType)getClass()
                 .getGenericSuperclass())
                 .getActualTypeArguments()[0];
@@ -66,8 +74,44 @@ public abstract class EventBusHandler<E extends EventBusEvent> {
         return false;
     }
 
+    /**
+     * Return true if {@link EventBusHandler#canHandle} result depends only on provided class
+     * and has no side effects. In this case event bus will call it only once per event class
+     * and reuse result until subscriptions change.
+     *
+     * @return False by default
+     */
+    public boolean isCanHandlePure() {
+        return false;
+    }
+
+    /**
+     * Return retry policy for events failed in this handler.
+     *
+     * @return Policy or null to use event bus default policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return null;
+    }
+
+    /**
+     * Return thread affinity of this handler. Used by {@link EventBusAsync} only,
+     * value is read once on subscription.
+     *
+     * @return Affinity or null to run handler using bus executor
+     */
+    public HandlerAffinity getAffinity() {
+        return null;
+    }
+
     public void handleEvent(EventBusEvent event) {
-        this.handle(getGenericTypeClass().cast(event));
+        Class<E> cls = getGenericTypeClass();
+        HandlerDispatcher<E> d = dispatcher;
+        if (d != null) {
+            d.dispatch(this, event);
+        } else {
+            this.handle(cls.cast(event));
+        }
     }
 
     /**
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Async event bus which runs cheap handlers directly on events queue thread
+ * and hands expensive ones to executor.
+ * Execution time of each handler is measured and kept as moving estimate, see {@link HandlerCost}.
+ * New handlers are run by executor until there are several samples, handler which blocks
+ * or becomes slow is moved back to executor once its estimate is above offload threshold.
+ *
+ * Keep in mind that inline handlers delay dispatching of next events while they run,
+ * so thresholds should be small, by default 10us to move handler inline and 50us to offload it.
+ * Handlers with {@link HandlerAffinity} are always run by their executor.
+ */
+public class EventBusHybrid<E extends EventBusEvent> extends EventBusAsync<E> {
+
+    private final long inlineNanos;
+
+    private final long offloadNanos;
+
+    private final LongAdder inlined = new LongAdder();
+
+    private final LongAdder offloaded = new LongAdder();
+
+    /**
+     * Create new EventBus instance with default presets.
+     */
+    public EventBusHybrid() {
+        this(Executors.newCachedThreadPool());
+    }
+
+    /**
+     * Create instance with customer ExecutorService for expensive handlers.
+     */
+    public EventBusHybrid(ExecutorService handlersExecutor) {
+        this(handlersExecutor, 10, 50, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * @param handlersExecutor Will be used to run expensive handlers
+     * @param inlineBelow Handler estimate should go below this value to run inline
+     * @param offloadAbove Handler estimate should go above this value to run by executor
+     * @param unit Thresholds time unit
+     */
+    public EventBusHybrid(ExecutorService handlersExecutor, long inlineBelow, long offloadAbove, TimeUnit unit) {
+        super(handlersExecutor);
+        if (inlineBelow <= 0 || offloadAbove < inlineBelow) {
+            throw new IllegalArgumentException("Inline threshold should be positive and not above offload threshold");
+        }
+        this.inlineNanos = unit.toNanos(inlineBelow);
+        this.offloadNanos = unit.toNanos(offloadAbove);
+    }
+
+    /**
+     * @return Count of handler calls run on events queue thread
+     */
+    public long getInlined() {
+        return inlined.sum();
+    }
+
+    /**
+     * @return Count of handler calls passed to executor
+     */
+    public long getOffloaded() {
+        return offloaded.sum();
+    }
+
+    @Override
+    void submit(WeakHandler<EventBusHandler<E>> wh, Runnable task) {
+        if (wh.getExecutor() != null) {
+            super.submit(wh, task);
+            return;
+        }
+
+        HandlerCost cost = wh.getCost();
+        if (cost == null) {
+            cost = new HandlerCost(inlineNanos, offloadNanos);
+            wh.setCost(cost);
+        }
+        if (cost.isInline()) {
+            inlined.increment();
+            long start = System.nanoTime();
+            task.run();
+            cost.add(System.nanoTime() - start);
+        } else {
+            offloaded.increment();
+            HandlerCost c = cost;
+            super.submit(wh, () -> {
+                long start = System.nanoTime();
+                task.run();
+                c.add(System.nanoTime() - start);
+            });
+        }
+    }
+}
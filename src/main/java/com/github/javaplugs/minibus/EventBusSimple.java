@@ -23,24 +23,32 @@
  */
 package com.github.javaplugs.minibus;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import java.lang.ref.ReferenceQueue;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Simple event bus with no background threads.
  * All consumers will be called directly during event publishing.
  * You can use it in a cases where event publishing is rare
  * or if there is requirement to use as less threads as possible.
+ *
+ * Since there is no own thread, retries of failed deliveries are executed by next
+ * {@link #publish} call or by {@link #processRetries()} if you want to drive them yourself.
+ *
+ * By default event published by handler is processed right away, recursively on the same stack.
+ * In trampolined mode such events are queued and processed after current event is done,
+ * so long cascades are processed breadth first with constant stack depth.
  */
-public class EventBusSimple<E extends EventBusEvent> implements EventBus<E> {
-
-    private static final Logger logger = LoggerFactory.getLogger(EventBusSimple.class);
+public class EventBusSimple<E extends EventBusEvent> implements EventBus<E>, PublishListeners.Source<E> {
 
     private final ReferenceQueue gcQueue = new ReferenceQueue();
 
@@ -48,39 +56,230 @@ public class EventBusSimple<E extends EventBusEvent> implements EventBus<E> {
 
     private final Set<WeakHandler<EventBusHandler<E>>> handlers = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    private final CanHandleCache<E> pureHandlers = new CanHandleCache<>();
+
+    /**
+     * Count of subscribed handlers per exact event class, Void key for not pure canHandle handlers.
+     */
+    private final Map<Class, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+    private final Retries<E> retries = new Retries<>(this::retry);
+
+    private final AtomicBoolean retriesLock = new AtomicBoolean();
+
+    private volatile ErrorHandler errorHandler = new AggregatingErrorHandler();
+
+    private final PublishListeners<E> publishListeners = new PublishListeners<>();
+
+    private volatile Consumer<? super E> deliveryListener;
+
+    private final ThreadLocal<ArrayDeque<E>> trampoline;
+
+    public EventBusSimple() {
+        this(false);
+    }
+
+    /**
+     * @param trampolined If true events published from handlers are queued in thread local queue
+     * and processed by outer {@link #publish} call after current event instead of recursive call
+     */
+    public EventBusSimple(boolean trampolined) {
+        this.trampoline = trampolined ? new ThreadLocal<>() : null;
+    }
+
+    /**
+     * Set handler for failures of event handlers, by default {@link AggregatingErrorHandler} is used.
+     */
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = Objects.requireNonNull(errorHandler);
+    }
+
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
     @Override
     public void subscribe(EventBusHandler<? extends E> subscriber) {
-        handlers.add(new WeakHandler(subscriber, gcQueue));
+        WeakHandler<EventBusHandler<E>> wh = new WeakHandler(subscriber, gcQueue);
+        if (wh.isCanHandlePure()) {
+            pureHandlers.add(wh);
+        } else {
+            if (handlers.add(wh)) {
+                counter(wh).incrementAndGet();
+            }
+        }
     }
 
     @Override
     public void unsubscribe(EventBusHandler<? extends E> subscriber) {
-        handlers.remove(new WeakHandler(subscriber, gcQueue));
+        removeHandler(new WeakHandler(subscriber, gcQueue));
+    }
+
+    private void removeHandler(WeakHandler<EventBusHandler<E>> wh) {
+        if (wh.isCanHandlePure()) {
+            pureHandlers.remove(wh);
+        } else {
+            if (handlers.remove(wh)) {
+                counter(wh).decrementAndGet();
+            }
+        }
+    }
+
+    private AtomicInteger counter(WeakHandler<EventBusHandler<E>> wh) {
+        Class cls = wh.getHandlerTypeClass();
+        return counts.computeIfAbsent(cls == null ? Void.class : cls, k -> new AtomicInteger());
+    }
+
+    /**
+     * {@inheritDoc}
+     * Handlers with not pure {@link EventBusHandler#canHandle} are not asked,
+     * if there is any such handler result is true.
+     */
+    @Override
+    public boolean hasSubscribers(Class<? extends E> cls) {
+        return count(cls) > 0 || count(Void.class) > 0 || pureHandlers.has(cls);
+    }
+
+    private int count(Class cls) {
+        AtomicInteger c = counts.get(cls);
+        return c == null ? 0 : c.get();
     }
 
     @Override
     public void publish(E event) {
-        if (event == null) {
+        if (event == null || UnitOfWork.buffer(this, event)) {
+            return;
+        }
+        publishListeners.published(event);
+        if (trampoline == null) {
+            processing.incrementAndGet();
+            try {
+                processEvent(event);
+            } finally {
+                processing.decrementAndGet();
+            }
+            return;
+        }
+
+        ArrayDeque<E> queue = trampoline.get();
+        if (queue != null) {
+            queue.addLast(event);
             return;
         }
+        queue = new ArrayDeque<>();
+        trampoline.set(queue);
         processing.incrementAndGet();
         try {
-            processEvent(event);
+            do {
+                processEvent(event);
+            } while ((event = queue.pollFirst()) != null);
         } finally {
+            trampoline.remove();
             processing.decrementAndGet();
         }
     }
 
+    /**
+     * Add listener called in publishing thread for each event passed to publish,
+     * before event is queued, rate limited or delivered. Listener should be fast
+     * and not throw, its failures are logged.
+     *
+     * @param listener Listener, same instance should be passed to {@link #removePublishListener}
+     */
+    @Override
+    public void addPublishListener(Consumer<? super E> listener) {
+        publishListeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Remove listener added by {@link #addPublishListener}, unknown listener is ignored.
+     */
+    @Override
+    public void removePublishListener(Consumer<? super E> listener) {
+        publishListeners.remove(listener);
+    }
+
+    @Override
+    public void setDeliveryListener(Consumer<? super E> listener) {
+        this.deliveryListener = listener;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Scheduled retries of failed deliveries are also treated as pending.
+     */
     @Override
     public boolean hasPendingEvents() {
-        return processing.get() > 0;
+        return processing.get() > 0 || !retries.isEmpty();
+    }
+
+    /**
+     * Set default retry policy for failed handlers.
+     *
+     * @param policy Policy, null means no retries
+     */
+    public void setRetryPolicy(RetryPolicy policy) {
+        retries.setPolicy(policy);
+    }
+
+    /**
+     * Return store with deliveries failed after all retries.
+     *
+     * @return Store or null if dead letters are not kept
+     */
+    public DeadLetterStore<E> getDeadLetters() {
+        return retries.getDeadLetters();
+    }
+
+    /**
+     * Set store for deliveries failed after all retries. There is no store by default,
+     * since dead letters keep strong links to events and handlers.
+     *
+     * @param store Store or null to stop keeping dead letters
+     */
+    public void setDeadLetterStore(DeadLetterStore<E> store) {
+        retries.setDeadLetters(store);
+    }
+
+    /**
+     * Remove all dead letters from store and deliver them again to their handlers
+     * with fresh retry attempts.
+     *
+     * @return Count of redelivered events
+     */
+    public int redriveDeadLetters() {
+        DeadLetterStore<E> store = retries.getDeadLetters();
+        if (store == null) {
+            return 0;
+        }
+        List<DeadLetter<E>> letters = store.drain();
+        for (DeadLetter<E> dl : letters) {
+            deliver(dl.subscription, dl.getHandler(), dl.getEvent(), 1);
+        }
+        return letters.size();
+    }
+
+    /**
+     * Run retries of failed deliveries which are due.
+     * If other thread is running retries right now this method returns immediately.
+     */
+    public void processRetries() {
+        if (retries.isEmpty() || !retriesLock.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            retries.advance(System.nanoTime());
+        } finally {
+            retriesLock.set(false);
+        }
     }
 
     private void processEvent(E event) {
         WeakHandler wh;
         while ((wh = (WeakHandler)gcQueue.poll()) != null) {
-            handlers.remove(wh);
+            removeHandler(wh);
         }
+        processRetries();
         if (event != null) {
             notifySubscribers(event);
         }
@@ -96,15 +295,48 @@ public class EventBusSimple<E extends EventBusEvent> implements EventBus<E> {
             try {
                 if (eh.getTypeClass() == null) {
                     if (eh.canHandle(event.getClass())) {
-                        eh.handle(event);
+                        deliver(wh, eh, event, 1);
                     }
                 } else if (eh.getTypeClass().equals(event.getClass())) {
-                    eh.handle(event);
+                    deliver(wh, eh, event, 1);
                 }
             } catch (Throwable th) {
-                logger.error("Event processing fail " + event.getClass().getSimpleName()
-                    + ". " + th.getMessage(), th);
+                errorHandler.onError(null, event, th, 1, false);
+            }
+        }
+
+        for (WeakHandler<EventBusHandler<E>> wh : pureHandlers.get(event.getClass())) {
+            EventBusHandler<E> eh = wh.get();
+            if (eh != null) {
+                deliver(wh, eh, event, 1);
+            }
+        }
+    }
+
+    /**
+     * Deliver due retry unless handler was collected or unsubscribed while waiting.
+     */
+    private void retry(Retries.Delivery<E> d) {
+        EventBusHandler<E> eh = d.subscription.get();
+        if (eh != null && isSubscribed(d.subscription)) {
+            deliver(d.subscription, eh, d.event, d.attempt);
+        }
+    }
+
+    private boolean isSubscribed(WeakHandler<EventBusHandler<E>> wh) {
+        return wh.isCanHandlePure() ? pureHandlers.contains(wh) : handlers.contains(wh);
+    }
+
+    private void deliver(WeakHandler<EventBusHandler<E>> wh, EventBusHandler<E> eh, E event, int attempt) {
+        try {
+            Consumer<? super E> dl = deliveryListener;
+            if (dl != null) {
+                dl.accept(event);
             }
+            eh.handle(event);
+        } catch (Throwable th) {
+            boolean retry = retries.onFailure(new Retries.Delivery<>(wh, event, null, attempt), eh, th);
+            errorHandler.onError(eh, event, th, attempt, retry);
         }
     }
 }
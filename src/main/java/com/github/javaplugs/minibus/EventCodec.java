@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Converts events to bytes for {@link EventRecorder} and back for {@link EventReplayer}.
+ * Event class is stored by recorder, so codec should write only event state.
+ */
+public interface EventCodec<E extends EventBusEvent> {
+
+    void write(E event, DataOutputStream out) throws IOException;
+
+    /**
+     * @param cls Recorded event class
+     * @param in Stream limited to bytes written for this event
+     */
+    E read(Class<? extends E> cls, DataInputStream in) throws IOException;
+
+    /**
+     * Codec using java serialization, events should implement {@link java.io.Serializable}.
+     * It works for any serializable event but is neither fast nor compact,
+     * own codec is preferable for high volume events.
+     */
+    static <E extends EventBusEvent> EventCodec<E> serialization() {
+        return new EventCodec<E>() {
+            @Override
+            public void write(E event, DataOutputStream out) throws IOException {
+                ObjectOutputStream oos = new ObjectOutputStream(out);
+                oos.writeObject(event);
+                oos.flush();
+            }
+
+            @Override
+            public E read(Class<? extends E> cls, DataInputStream in) throws IOException {
+                try {
+                    return cls.cast(new ObjectInputStream(in).readObject());
+                } catch (ClassNotFoundException ex) {
+                    throw new IOException(ex);
+                }
+            }
+        };
+    }
+}
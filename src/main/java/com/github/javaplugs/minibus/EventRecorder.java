@@ -0,0 +1,246 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Records events published to any {@link EventBus} into file which can be replayed
+ * later with {@link EventReplayer}.
+ *
+ * Events are recorded in publishing thread with publish time, including events nobody handles,
+ * bus handlers and {@link EventBus#hasSubscribers} are not affected.
+ * {@link EventBusAsync}, {@link EventBusSimple} and {@link ChildBus} call recorder for events
+ * from all publishers. Other bus implementations are wrapped: only events published through
+ * {@link #getBus()} are recorded then.
+ * Writing is done under lock into buffered stream, events which can not be encoded are counted and skipped.
+ *
+ * File format: header, then records. Each record is either class definition
+ * (tag, id, class name) or event (tag, nanos since previous event, class id, payload length, payload),
+ * numbers are written as variable length integers.
+ */
+public class EventRecorder<E extends EventBusEvent> implements AutoCloseable {
+
+    static final int MAGIC = 0x4D425243;
+
+    static final int VERSION = 1;
+
+    static final int CLASS = 0;
+
+    static final int EVENT = 1;
+
+    private final EventBus<E> bus;
+
+    private final EventBus<E> recordingBus;
+
+    private final EventCodec<E> codec;
+
+    private final DataOutputStream out;
+
+    private final Map<Class<?>, Integer> classIds = new HashMap<>();
+
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+
+    private final DataOutputStream payloadOut = new DataOutputStream(payload);
+
+    private final Consumer<E> listener = this::record;
+
+    private final LongAdder recorded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private long lastNanos;
+
+    private boolean closed;
+
+    private EventRecorder(EventBus<E> bus, Path file, EventCodec<E> codec) throws IOException {
+        this.bus = bus;
+        this.recordingBus = bus instanceof PublishListeners.Source ? bus : new Decorator();
+        this.codec = codec;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        lastNanos = System.nanoTime();
+    }
+
+    /**
+     * Start recording events of bus into file, existing file is overwritten.
+     */
+    public static <E extends EventBusEvent> EventRecorder<E> attach(EventBus<E> bus, Path file, EventCodec<E> codec)
+        throws IOException {
+        EventRecorder<E> recorder = new EventRecorder<>(bus, file, codec);
+        if (bus instanceof PublishListeners.Source) {
+            ((PublishListeners.Source<E>)bus).addPublishListener(recorder.listener);
+        }
+        return recorder;
+    }
+
+    /**
+     * Bus to publish recorded events to. It is attached bus itself if it reports events
+     * of all publishers, otherwise wrapper which records events and passes all calls to attached bus.
+     */
+    public EventBus<E> getBus() {
+        return recordingBus;
+    }
+
+    /**
+     * @return Count of recorded events
+     */
+    public long getRecorded() {
+        return recorded.sum();
+    }
+
+    /**
+     * @return Count of events skipped because codec failed
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Stop recording and close file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (bus instanceof PublishListeners.Source) {
+            ((PublishListeners.Source<E>)bus).removePublishListener(listener);
+        }
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                out.close();
+            }
+        }
+    }
+
+    private synchronized void record(E event) {
+        if (closed) {
+            return;
+        }
+        try {
+            payload.reset();
+            codec.write(event, payloadOut);
+            payloadOut.flush();
+        } catch (Throwable th) {
+            failed.increment();
+            return;
+        }
+
+        try {
+            Integer id = classIds.get(event.getClass());
+            if (id == null) {
+                id = classIds.size();
+                classIds.put(event.getClass(), id);
+                out.writeByte(CLASS);
+                writeVarLong(out, id);
+                out.writeUTF(event.getClass().getName());
+            }
+            long now = System.nanoTime();
+            out.writeByte(EVENT);
+            writeVarLong(out, now - lastNanos);
+            writeVarLong(out, id);
+            writeVarLong(out, payload.size());
+            payload.writeTo(out);
+            lastNanos = now;
+            recorded.increment();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Can not write event record", ex);
+        }
+    }
+
+    static void writeVarLong(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int)(v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int)v);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IOException("Malformed variable length number");
+    }
+
+    /**
+     * Records events published through it, for bus without publish listeners.
+     */
+    private class Decorator implements EventBus<E> {
+
+        @Override
+        public void subscribe(EventBusHandler<? extends E> subscriber) {
+            bus.subscribe(subscriber);
+        }
+
+        @Override
+        public void unsubscribe(EventBusHandler<? extends E> subscriber) {
+            bus.unsubscribe(subscriber);
+        }
+
+        @Override
+        public void publish(E event) {
+            if (event != null) {
+                record(event);
+            }
+            bus.publish(event);
+        }
+
+        @Override
+        public void publishAll(Collection<? extends E> events) {
+            for (E event : events) {
+                if (event != null) {
+                    record(event);
+                }
+            }
+            bus.publishAll(events);
+        }
+
+        @Override
+        public boolean hasSubscribers(Class<? extends E> cls) {
+            return bus.hasSubscribers(cls);
+        }
+
+        @Override
+        public boolean hasPendingEvents() {
+            return bus.hasPendingEvents();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes events recorded by {@link EventRecorder} into bus, keeping recorded intervals
+ * between events divided by speed factor or as fast as possible.
+ * Replay runs in calling thread and waits until bus has no pending events.
+ *
+ * Delivery latency is time from publish until first handler call of event started. It is taken
+ * by delivery listener of bus, so replay adds no handlers or executor tasks to bus under test.
+ * Buses without delivery listener support report no delivery latency.
+ * Replay also waits until each delivered event reached handler or no handler was called for {@link #IDLE_MILLIS}.
+ */
+public class EventReplayer<E extends EventBusEvent> {
+
+    static final long IDLE_MILLIS = 100;
+
+    private final Path file;
+
+    private final EventCodec<E> codec;
+
+    public EventReplayer(Path file, EventCodec<E> codec) {
+        this.file = file;
+        this.codec = codec;
+    }
+
+    /**
+     * @param bus Bus to publish events into
+     * @param speed 1 for recorded speed, 2 for twice as fast etc,
+     * zero or {@link Double#POSITIVE_INFINITY} for maximum speed
+     */
+    public ReplayStats replay(EventBus<E> bus, double speed) throws IOException, InterruptedException {
+        if (speed < 0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("Speed should not be negative: " + speed);
+        }
+        boolean paced = speed > 0 && !Double.isInfinite(speed);
+        QuantileSketch publishLatency = new QuantileSketch(0.01);
+        QuantileSketch lag = new QuantileSketch(0.01);
+        List<Class<? extends E>> classes = new ArrayList<>();
+        long events = 0;
+        long skipped = 0;
+        long start = System.nanoTime();
+        double offset = 0;
+
+        try (Probes probes = new Probes(bus);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != EventRecorder.MAGIC || in.readUnsignedByte() != EventRecorder.VERSION) {
+                throw new IOException("Not an event recording: " + file);
+            }
+            while (true) {
+                int tag;
+                try {
+                    tag = in.readUnsignedByte();
+                } catch (EOFException ex) {
+                    break;
+                }
+                if (tag == EventRecorder.CLASS) {
+                    int id = (int)EventRecorder.readVarLong(in);
+                    String name = in.readUTF();
+                    while (classes.size() <= id) {
+                        classes.add(null);
+                    }
+                    classes.set(id, load(name));
+                    continue;
+                }
+                if (tag != EventRecorder.EVENT) {
+                    throw new IOException("Unknown record " + tag + " in " + file);
+                }
+
+                long delta = EventRecorder.readVarLong(in);
+                Class<? extends E> cls = classes.get((int)EventRecorder.readVarLong(in));
+                byte[] bytes = new byte[(int)EventRecorder.readVarLong(in)];
+                in.readFully(bytes);
+                E event;
+                try {
+                    event = cls == null ? null : codec.read(cls, new DataInputStream(new ByteArrayInputStream(bytes)));
+                } catch (IOException | RuntimeException ex) {
+                    event = null;
+                }
+
+                offset += paced ? delta / speed : 0;
+                if (event == null) {
+                    skipped++;
+                    continue;
+                }
+                if (paced) {
+                    long due = start + (long)offset;
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+                    }
+                    lag.add(System.nanoTime() - due);
+                } else {
+                    lag.add(0);
+                }
+
+                long before = probes.published(event);
+                bus.publish(event);
+                publishLatency.add(System.nanoTime() - before);
+                events++;
+            }
+
+            long published = System.nanoTime();
+            while (bus.hasPendingEvents()) {
+                Thread.sleep(1);
+            }
+            probes.awaitDelivered();
+            long end = System.nanoTime();
+            return new ReplayStats(events, skipped, end - start, end - published, publishLatency, lag,
+                probes.delivery);
+        }
+    }
+
+    /**
+     * Publish times of replayed events which bus will deliver but did not start yet.
+     */
+    private class Probes implements AutoCloseable {
+
+        final Map<EventBusEvent, Long> pending = new IdentityHashMap<>();
+
+        final QuantileSketch delivery = new QuantileSketch(0.01);
+
+        final PublishListeners.Source<E> source;
+
+        final EventBus<E> bus;
+
+        Probes(EventBus<E> bus) {
+            this.bus = bus;
+            this.source = bus instanceof PublishListeners.Source ? (PublishListeners.Source<E>)bus : null;
+            if (source != null) {
+                source.setDeliveryListener(this::delivered);
+            }
+        }
+
+        synchronized long published(E event) {
+            long now = System.nanoTime();
+            if (source != null && bus.hasSubscribers((Class<? extends E>)event.getClass())) {
+                pending.put(event, now);
+            }
+            return now;
+        }
+
+        synchronized void delivered(EventBusEvent event) {
+            Long at = pending.remove(event);
+            if (at != null) {
+                delivery.add(System.nanoTime() - at);
+                if (pending.isEmpty()) {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Wait for handler calls dispatched but not started yet, events which bus dropped never come.
+         */
+        synchronized void awaitDelivered() throws InterruptedException {
+            long idle = TimeUnit.MILLISECONDS.toNanos(IDLE_MILLIS);
+            long count = delivery.getCount();
+            long deadline = System.nanoTime() + idle;
+            while (!pending.isEmpty()) {
+                long wait = deadline - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, wait);
+                } else if (delivery.getCount() != count) {
+                    count = delivery.getCount();
+                    deadline = System.nanoTime() + idle;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (source != null) {
+                source.setDeliveryListener(null);
+            }
+        }
+    }
+
+    private Class<? extends E> load(String name) {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        try {
+            return (Class<? extends E>)Class.forName(name, false, cl == null ? getClass().getClassLoader() : cl);
+        } catch (ClassNotFoundException ex) {
+            // Events of missing classes are counted as skipped
+            return null;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Sampled causality tracer for {@link EventBusAsync}.
+ *
+ * Root events are sampled with configured probability. Events published from handler
+ * of sampled event are always sampled and inherit its correlation id, so whole cascade is traced.
+ * For sampled events bus records publish, dispatch and handler spans into fixed size ring buffer
+ * without locks; oldest spans are overwritten. Unsampled events are not wrapped and not recorded.
+ *
+ * Recorded spans can be saved in Chrome trace format (chrome://tracing, Perfetto) using {@link #dump}.
+ */
+public class EventTracer {
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    private static final int PUBLISH = 0;
+
+    private static final int DISPATCH = 1;
+
+    private static final int HANDLER = 2;
+
+    /**
+     * Slot seq while some writer owns it.
+     */
+    private static final long BUSY = -2;
+
+    private final double sampleRate;
+
+    private final Span[] ring;
+
+    private final int mask;
+
+    private final AtomicLong cursor = new AtomicLong();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * @param sampleRate Probability to sample root event, from 0 to 1
+     * @param capacity Max count of spans kept in buffer, rounded up to power of two
+     */
+    public EventTracer(double sampleRate, int capacity) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate should be in [0, 1]: " + sampleRate);
+        }
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Wrong capacity: " + capacity);
+        }
+        this.sampleRate = sampleRate;
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        ring = new Span[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Span();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Return trace context of sampled event handled in current thread.
+     *
+     * @return Context or null if current thread does not handle sampled event
+     */
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    static TraceContext enter(TraceContext ctx) {
+        TraceContext prev = CURRENT.get();
+        CURRENT.set(ctx);
+        return prev;
+    }
+
+    static void exit(TraceContext prev) {
+        if (prev == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(prev);
+        }
+    }
+
+    /**
+     * Decide if event should be sampled and record publish span for it.
+     *
+     * @return Context or null if event is not sampled
+     */
+    TraceContext onPublish(EventBusEvent event) {
+        TraceContext parent = CURRENT.get();
+        TraceContext ctx;
+        if (parent != null) {
+            ctx = new TraceContext(this, parent.getCorrelationId(), ids.incrementAndGet(), parent.getEventId());
+        } else if (sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            long id = ids.incrementAndGet();
+            ctx = new TraceContext(this, id, id, 0);
+        } else {
+            return null;
+        }
+        long now = System.nanoTime();
+        record(PUBLISH, event.getClass().getSimpleName(), ctx, now, now);
+        return ctx;
+    }
+
+    void onDispatch(EventBusEvent event, TraceContext ctx, long start, long end) {
+        record(DISPATCH, event.getClass().getSimpleName(), ctx, start, end);
+    }
+
+    void onHandler(EventBusHandler handler, TraceContext ctx, long start, long end) {
+        record(HANDLER, handler.getClass().getSimpleName(), ctx, start, end);
+    }
+
+    private void record(int kind, String name, TraceContext ctx, long start, long end) {
+        long seq = cursor.getAndIncrement();
+        Span s = ring[(int)seq & mask];
+        // Writers which wrapped onto the same slot must not interleave, so slot is claimed with CAS.
+        // If newer span already took the slot this one is considered overwritten.
+        while (true) {
+            long cur = s.seq;
+            if (cur > seq) {
+                return;
+            }
+            if (cur != BUSY && Span.SEQ.compareAndSet(s, cur, BUSY)) {
+                break;
+            }
+            Thread.yield();
+        }
+        Thread th = Thread.currentThread();
+        s.kind = kind;
+        s.name = name;
+        s.correlationId = ctx.getCorrelationId();
+        s.eventId = ctx.getEventId();
+        s.causationId = ctx.getCausationId();
+        s.threadId = th.getId();
+        s.threadName = th.getName();
+        s.start = start - startNanos;
+        s.end = end - startNanos;
+        s.seq = seq;
+    }
+
+    /**
+     * Write recorded spans into file in Chrome trace JSON format.
+     *
+     * @param file Target file, will be overwritten
+     */
+    public void dump(Path file) throws IOException {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeTo(w);
+        }
+    }
+
+    /**
+     * Write recorded spans in Chrome trace JSON format.
+     */
+    public void writeTo(Writer w) throws IOException {
+        List<Span> spans = snapshot();
+        Map<Long, String> threads = new HashMap<>();
+        w.write("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[\n");
+        boolean first = true;
+        for (Span s : spans) {
+            threads.putIfAbsent(s.threadId, s.threadName);
+            String args = ",\"args\":{\"correlation\":" + s.correlationId + ",\"event\":" + s.eventId
+                + ",\"causation\":" + s.causationId + "}";
+            String common = ",\"pid\":1,\"tid\":" + s.threadId + ",\"ts\":" + micros(s.start);
+            first = separator(w, first);
+            switch (s.kind) {
+                case PUBLISH:
+                    w.write("{\"name\":\"publish " + escape(s.name) + "\",\"cat\":\"publish\",\"ph\":\"i\",\"s\":\"t\""
+                        + common + args + "}");
+                    w.write(",\n{\"name\":\"event\",\"cat\":\"flow\",\"ph\":\"s\",\"id\":" + s.eventId + common + "}");
+                    break;
+                case DISPATCH:
+                    w.write("{\"name\":\"dispatch " + escape(s.name) + "\",\"cat\":\"dispatch\",\"ph\":\"X\""
+                        + ",\"dur\":" + micros(s.end - s.start) + common + args + "}");
+                    w.write(",\n{\"name\":\"event\",\"cat\":\"flow\",\"ph\":\"t\",\"id\":" + s.eventId + common + "}");
+                    break;
+                default:
+                    w.write("{\"name\":\"" + escape(s.name) + "\",\"cat\":\"handler\",\"ph\":\"X\""
+                        + ",\"dur\":" + micros(s.end - s.start) + common + args + "}");
+                    w.write(",\n{\"name\":\"event\",\"cat\":\"flow\",\"ph\":\"f\",\"bp\":\"e\",\"id\":" + s.eventId
+                        + common + "}");
+            }
+        }
+        for (Map.Entry<Long, String> th : threads.entrySet()) {
+            first = separator(w, first);
+            w.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + th.getKey()
+                + ",\"args\":{\"name\":\"" + escape(th.getValue()) + "\"}}");
+        }
+        w.write("\n]}\n");
+    }
+
+    /**
+     * Copy consistent spans from ring buffer ordered by start time.
+     */
+    List<Span> snapshot() {
+        List<Span> spans = new ArrayList<>(ring.length);
+        for (Span s : ring) {
+            long seq = s.seq;
+            if (seq < 0) {
+                continue;
+            }
+            Span copy = new Span();
+            copy.kind = s.kind;
+            copy.name = s.name;
+            copy.correlationId = s.correlationId;
+            copy.eventId = s.eventId;
+            copy.causationId = s.causationId;
+            copy.threadId = s.threadId;
+            copy.threadName = s.threadName;
+            copy.start = s.start;
+            copy.end = s.end;
+            if (s.seq == seq) {
+                spans.add(copy);
+            }
+        }
+        spans.sort(Comparator.comparingLong(s -> s.start));
+        return spans;
+    }
+
+    private static boolean separator(Writer w, boolean first) throws IOException {
+        if (!first) {
+            w.write(",\n");
+        }
+        return false;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+
+    private static String escape(String str) {
+        if (str == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(str.length());
+        for (char c : str.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int)c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Ring buffer slot. All fields are volatile, so reader can validate copy using seq.
+     * Negative seq means slot is empty or being written.
+     */
+    static class Span {
+
+        static final AtomicLongFieldUpdater<Span> SEQ = AtomicLongFieldUpdater.newUpdater(Span.class, "seq");
+
+        volatile long seq = -1;
+
+        volatile int kind;
+
+        volatile String name;
+
+        volatile long correlationId;
+
+        volatile long eventId;
+
+        volatile long causationId;
+
+        volatile long threadId;
+
+        volatile String threadName;
+
+        volatile long start;
+
+        volatile long end;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Multi producer single consumer queue with sub-queue per event class drained by
+ * deficit round robin. On each turn class sub-queue gets credit equal to its weight
+ * and gives at most that many events before next class is served, so hot class
+ * can not delay events of other classes by more than one round.
+ *
+ * Producers only append to class sub-queue and put it into activation queue when it becomes
+ * non empty. Round list and deficits are owned by consumer thread.
+ */
+class FairQueue implements IngressQueue<EventBusEvent> {
+
+    private final ConcurrentHashMap<Class, ClassQueue> queues = new ConcurrentHashMap<>();
+
+    private final Queue<ClassQueue> activated = new ConcurrentLinkedQueue<>();
+
+    // Consumer state
+    private final ArrayDeque<ClassQueue> round = new ArrayDeque<>();
+
+    private ClassQueue current;
+
+    void setWeight(Class cls, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Weight should be positive: " + weight);
+        }
+        queue(cls).counters.weight = weight;
+    }
+
+    FairQueueCounters getCounters(Class cls) {
+        ClassQueue q = queues.get(cls);
+        return q == null ? null : q.counters;
+    }
+
+    /**
+     * Any thread.
+     */
+    @Override
+    public boolean offer(EventBusEvent event) {
+        EventBusEvent e = event instanceof TracedEvent ? ((TracedEvent)event).event : event;
+        ClassQueue q = queue(e.getClass());
+        q.events.offer(new Entry(event));
+        q.counters.enqueued.increment();
+        q.counters.size.incrementAndGet();
+        if (q.active.compareAndSet(false, true)) {
+            activated.offer(q);
+        }
+        return true;
+    }
+
+    /**
+     * Consumer thread only.
+     */
+    @Override
+    public EventBusEvent poll() {
+        ClassQueue q;
+        while ((q = activated.poll()) != null) {
+            round.addLast(q);
+        }
+
+        for (int tries = round.size() + 1; tries > 0; tries--) {
+            q = current;
+            if (q == null) {
+                q = round.pollFirst();
+                if (q == null) {
+                    return null;
+                }
+                q.deficit += q.counters.weight;
+                current = q;
+            }
+
+            Entry e = q.events.poll();
+            if (e != null) {
+                q.counters.size.decrementAndGet();
+                if (--q.deficit <= 0) {
+                    round.addLast(q);
+                    current = null;
+                }
+                FairQueueCounters c = q.counters;
+                long wait = System.nanoTime() - e.enqueued;
+                c.dispatched.increment();
+                c.waitNanos.add(wait);
+                if (wait > c.maxWaitNanos) {
+                    c.maxWaitNanos = wait;
+                }
+                return e.event;
+            }
+
+            // Empty class loses its credit and leaves round until producer activates it again
+            q.deficit = 0;
+            current = null;
+            q.active.set(false);
+            if (!q.events.isEmpty() && q.active.compareAndSet(false, true)) {
+                round.addLast(q);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (ClassQueue q : queues.values()) {
+            if (!q.events.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (ClassQueue q : queues.values()) {
+            size += q.counters.size.get();
+        }
+        return size;
+    }
+
+    private ClassQueue queue(Class cls) {
+        ClassQueue q = queues.get(cls);
+        return q != null ? q : queues.computeIfAbsent(cls, c -> new ClassQueue());
+    }
+
+    private static class ClassQueue {
+
+        final Queue<Entry> events = new ConcurrentLinkedQueue<>();
+
+        final AtomicBoolean active = new AtomicBoolean();
+
+        final FairQueueCounters counters = new FairQueueCounters();
+
+        // Consumer state
+        int deficit;
+    }
+
+    private static class Entry {
+
+        final EventBusEvent event;
+
+        final long enqueued = System.nanoTime();
+
+        Entry(EventBusEvent event) {
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one event class sub-queue in {@link EventBusAsync.Ingress#FAIR} mode.
+ */
+public class FairQueueCounters {
+
+    final AtomicInteger size = new AtomicInteger();
+
+    final LongAdder enqueued = new LongAdder();
+
+    final LongAdder dispatched = new LongAdder();
+
+    final LongAdder waitNanos = new LongAdder();
+
+    volatile long maxWaitNanos;
+
+    volatile int weight = 1;
+
+    /**
+     * @return Share of dispatching relative to other classes
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return Count of events waiting in sub-queue
+     */
+    public int getQueueSize() {
+        return size.get();
+    }
+
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    public long getDispatched() {
+        return dispatched.sum();
+    }
+
+    /**
+     * @return Average time event waited in sub-queue before dispatching
+     */
+    public long getAverageWaitNanos() {
+        long n = dispatched.sum();
+        return n == 0 ? 0 : waitNanos.sum() / n;
+    }
+
+    /**
+     * @return Longest time event waited in sub-queue before dispatching
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "weight " + weight + ", queue " + getQueueSize() + ", dispatched " + getDispatched()
+            + ", wait avg " + getAverageWaitNanos() / 1000 + "us max " + maxWaitNanos / 1000 + "us";
+    }
+}
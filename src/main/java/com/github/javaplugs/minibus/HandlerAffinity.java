@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Declares on which thread {@link EventBusAsync} should run handler.
+ * Deliveries to handler with affinity are serialized, so handler is never called concurrently
+ * and can keep its state without synchronization.
+ *
+ * @see EventBusHandler#getAffinity()
+ */
+public final class HandlerAffinity {
+
+    enum Kind {
+        PINNED, EVENT_LOOP, EXECUTOR
+    }
+
+    private static final HandlerAffinity PINNED = new HandlerAffinity(Kind.PINNED, null, null);
+
+    private final Kind kind;
+
+    private final String name;
+
+    private final Executor executor;
+
+    private HandlerAffinity(Kind kind, String name, Executor executor) {
+        this.kind = kind;
+        this.name = name;
+        this.executor = executor;
+    }
+
+    /**
+     * Run handler on its own dedicated thread.
+     * Thread is stopped when handler is unsubscribed or garbage collected.
+     */
+    public static HandlerAffinity pinned() {
+        return PINNED;
+    }
+
+    /**
+     * Run handler on shared single thread event loop with provided name.
+     * All handlers with the same loop name are called from the same thread one by one.
+     * Thread is stopped when the last handler using the loop is unsubscribed or garbage collected.
+     */
+    public static HandlerAffinity eventLoop(String name) {
+        return new HandlerAffinity(Kind.EVENT_LOOP, Objects.requireNonNull(name), null);
+    }
+
+    /**
+     * Run handler using provided executor, for example UI thread executor.
+     * Deliveries are serialized even if executor is multithreaded.
+     */
+    public static HandlerAffinity executor(Executor executor) {
+        return new HandlerAffinity(Kind.EXECUTOR, null, Objects.requireNonNull(executor));
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public String toString() {
+        return "HandlerAffinity{" + kind + (name == null ? "" : " " + name) + "}";
+    }
+}
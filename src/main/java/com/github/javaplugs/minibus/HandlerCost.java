@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+/**
+ * Moving estimate of handler execution time with inline/offload decision.
+ * Decision has hysteresis: handler is offloaded when estimate goes above offload threshold
+ * and returns inline only when it goes below lower inline threshold, so handler with cost
+ * near one threshold does not flip on each event.
+ * Single sample far above offload threshold offloads handler at once, as handler which started
+ * to block would otherwise hold dispatcher until estimate catches up.
+ *
+ * Updated from dispatcher and worker threads without locks, lost update only makes
+ * estimate a bit less precise.
+ */
+class HandlerCost {
+
+    /**
+     * Weight of new sample, about 16 last samples affect estimate.
+     */
+    private static final double ALPHA = 1.0 / 16;
+
+    /**
+     * Handler is not run inline before this count of samples.
+     */
+    private static final int WARMUP = 8;
+
+    /**
+     * Inline handler is offloaded at once when sample is this many times above offload threshold.
+     */
+    private static final int SPIKE = 8;
+
+    private final long inlineNanos;
+
+    private final long offloadNanos;
+
+    private volatile double estimate;
+
+    private volatile int samples;
+
+    private volatile boolean inline;
+
+    HandlerCost(long inlineNanos, long offloadNanos) {
+        this.inlineNanos = inlineNanos;
+        this.offloadNanos = offloadNanos;
+    }
+
+    boolean isInline() {
+        return inline;
+    }
+
+    void add(long nanos) {
+        boolean spike = nanos > offloadNanos * SPIKE;
+        // Single preemption or GC pause should not keep cheap handler off dispatcher for long
+        nanos = Math.min(nanos, offloadNanos * 2);
+        int n = samples;
+        double e = n == 0 ? nanos : estimate + (nanos - estimate) * ALPHA;
+        estimate = e;
+        if (n < WARMUP) {
+            samples = n + 1;
+            return;
+        }
+        if (inline) {
+            if (spike || e > offloadNanos) {
+                inline = false;
+            }
+        } else if (e < inlineNanos) {
+            inline = true;
+        }
+    }
+
+    double getEstimate() {
+        return estimate;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Events queue of {@link EventBusAsync}: any thread offers events, one dispatcher thread polls them.
+ * It is intentionally narrower than {@link Queue}, since queues with per producer or per class
+ * sub-queues can not iterate or peek consistently from arbitrary thread.
+ */
+interface IngressQueue<T> {
+
+    /**
+     * Any thread.
+     *
+     * @return Always true, queues are unbounded
+     */
+    boolean offer(T item);
+
+    /**
+     * Any thread. Items are queued in collection order.
+     */
+    default void offerAll(Collection<? extends T> items) {
+        for (T item : items) {
+            offer(item);
+        }
+    }
+
+    /**
+     * Consumer thread only.
+     *
+     * @return Next item or null if queue is empty
+     */
+    T poll();
+
+    /**
+     * Any thread, result is approximate.
+     */
+    boolean isEmpty();
+
+    /**
+     * Any thread, result is approximate.
+     */
+    int size();
+
+    /**
+     * Create queue shared by all producers.
+     */
+    static <T> IngressQueue<T> shared() {
+        return new Shared<>();
+    }
+
+    /**
+     * Plain {@link ConcurrentLinkedQueue}.
+     */
+    final class Shared<T> implements IngressQueue<T> {
+
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public boolean offer(T item) {
+            return queue.offer(item);
+        }
+
+        @Override
+        public void offerAll(Collection<? extends T> items) {
+            queue.addAll(items);
+        }
+
+        @Override
+        public T poll() {
+            return queue.poll();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Arrays;
+
+/**
+ * Multi producer single consumer queue where each producer thread gets its own
+ * {@link SpscQueue}, so producers never contend with each other.
+ * Consumer drains producer queues round robin taking at most {@link #QUANTUM} items
+ * from one queue in a row, so busy producer can not starve others.
+ *
+ * Order is kept for events of one producer thread only.
+ * Queues of terminated producer threads are removed once drained.
+ */
+class PerProducerQueue<T> implements IngressQueue<T> {
+
+    private static final int QUANTUM = 64;
+
+    private final ThreadLocal<Producer<T>> local = ThreadLocal.withInitial(this::register);
+
+    private volatile Producer<T>[] producers = new Producer[0];
+
+    // Consumer state
+    private int cursor;
+
+    private int budget = QUANTUM;
+
+    private synchronized Producer<T> register() {
+        Producer<T> p = new Producer<>(Thread.currentThread());
+        Producer<T>[] ps = Arrays.copyOf(producers, producers.length + 1);
+        ps[ps.length - 1] = p;
+        producers = ps;
+        return p;
+    }
+
+    private synchronized void unregister(Producer<T> p) {
+        Producer<T>[] ps = producers;
+        for (int i = 0; i < ps.length; i++) {
+            if (ps[i] == p) {
+                Producer<T>[] next = new Producer[ps.length - 1];
+                System.arraycopy(ps, 0, next, 0, i);
+                System.arraycopy(ps, i + 1, next, i, ps.length - i - 1);
+                producers = next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Any thread.
+     */
+    @Override
+    public boolean offer(T item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        local.get().offer(item);
+        return true;
+    }
+
+    /**
+     * Consumer thread only.
+     */
+    @Override
+    public T poll() {
+        Producer<T>[] ps = producers;
+        int n = ps.length;
+        if (n == 0) {
+            return null;
+        }
+        for (int tries = 0; tries <= n; tries++) {
+            if (cursor >= n) {
+                cursor = 0;
+            }
+            Producer<T> p = ps[cursor];
+            if (budget > 0) {
+                T item = p.poll();
+                if (item != null) {
+                    budget--;
+                    return item;
+                }
+                if (!p.owner.isAlive() && p.isEmpty()) {
+                    unregister(p);
+                }
+            }
+            cursor++;
+            budget = QUANTUM;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Producer<T> p : producers) {
+            if (!p.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Producer<T> p : producers) {
+            size += p.size();
+        }
+        return size;
+    }
+
+    private static class Producer<T> extends SpscQueue<T> {
+
+        final Thread owner;
+
+        Producer(Thread owner) {
+            this.owner = owner;
+        }
+    }
+}
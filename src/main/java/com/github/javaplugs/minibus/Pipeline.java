@@ -0,0 +1,272 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Chain of stages (SEDA) where each stage has own bounded queue, worker threads and batching.
+ * Stage output goes directly to queue of next stage, not through event bus dispatcher.
+ *
+ * <pre>
+ * Pipeline&lt;RawOrder&gt; orders = Pipeline.&lt;RawOrder&gt;builder()
+ *     .stage("parse", 2, 1024, raw -&gt; parse(raw))
+ *     .stage("enrich", 4, 1024, order -&gt; enrich(order))
+ *     .batchSink("persist", 1, 4096, 100, batch -&gt; store(batch));
+ * orders.subscribe(eventBus, RawOrder.class);
+ * </pre>
+ *
+ * Stage function can return null to drop item. Items are processed by several threads,
+ * so order is kept only if all stages have one thread.
+ */
+public class Pipeline<I> {
+
+    private final List<PipelineStage> stages;
+
+    private EventBus bus;
+
+    private EventBusHandler<?> handler;
+
+    private volatile boolean closed;
+
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    private Pipeline(List<PipelineStage> stages) {
+        this.stages = Collections.unmodifiableList(stages);
+    }
+
+    public static <I> Builder<I, I> builder() {
+        return new Builder<>(new ArrayList<>());
+    }
+
+    /**
+     * Put item into first stage queue, waiting if it is full.
+     */
+    public void submit(I item) throws InterruptedException {
+        checkEnter();
+        try {
+            stages.get(0).put(item);
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Put item into first stage queue if there is space.
+     *
+     * @return False if queue is full
+     */
+    public boolean offer(I item) {
+        checkEnter();
+        try {
+            return stages.get(0).offer(item);
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Subscribe pipeline to events of provided class, handler is kept by pipeline
+     * and unsubscribed on close. Handler waits if first stage queue is full.
+     *
+     * @param cls Event class, should implement {@link EventBusEvent}
+     */
+    public synchronized void subscribe(EventBus bus, Class<? extends I> cls) {
+        checkOpen();
+        if (handler != null) {
+            throw new IllegalStateException("Pipeline is already subscribed");
+        }
+        if (!EventBusEvent.class.isAssignableFrom(cls)) {
+            throw new IllegalArgumentException(cls.getName() + " is not an event class");
+        }
+        EventBusHandler<?> h = forwarder(cls.asSubclass(EventBusEvent.class), cls);
+        this.bus = bus;
+        handler = h;
+        bus.subscribe(h);
+    }
+
+    private <E extends EventBusEvent> EventBusHandler<E> forwarder(Class<E> type, Class<? extends I> cls) {
+        return new EventBusHandler<E>() {
+            @Override
+            Class<E> getTypeClass() {
+                return type;
+            }
+
+            @Override
+            public void handleEvent(EventBusEvent event) {
+                handle(type.cast(event));
+            }
+
+            @Override
+            void handle(E event) {
+                // Events still queued in bus after close are not for this pipeline anymore
+                if (!enter()) {
+                    return;
+                }
+                try {
+                    stages.get(0).put(cls.cast(event));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    submitting.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    /**
+     * @return Stages in order, can be used to read metrics and change threads count
+     */
+    public List<PipelineStage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Unsubscribe from bus, stop accepting items, let each stage finish queued items and stop its workers.
+     * Items which submit or offer accepted are processed before close returns.
+     */
+    public void close() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+            if (handler != null) {
+                bus.unsubscribe(handler);
+                handler = null;
+            }
+        }
+        // Submitter which passed closed check puts its item before first stage stops
+        while (submitting.get() > 0) {
+            Thread.sleep(1);
+        }
+        for (PipelineStage s : stages) {
+            s.stop();
+        }
+    }
+
+    /**
+     * Register submitter, caller should decrement submitting count when item is put.
+     *
+     * @return False if pipeline is closed
+     */
+    private boolean enter() {
+        submitting.incrementAndGet();
+        if (closed) {
+            submitting.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void checkEnter() {
+        if (!enter()) {
+            throw new IllegalStateException("Pipeline is closed");
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Pipeline is closed");
+        }
+    }
+
+    /**
+     * Declares stages, type parameter O is output type of last declared stage.
+     */
+    public static class Builder<I, O> {
+
+        private final List<PipelineStage> stages;
+
+        private Builder(List<PipelineStage> stages) {
+            this.stages = stages;
+        }
+
+        /**
+         * Add stage processing items one by one.
+         */
+        public <N> Builder<I, N> stage(String name, int threads, int capacity, Function<? super O, ? extends N> fn) {
+            return add(new PipelineStage(name, threads, capacity, 1, (items, emit) -> {
+                for (Object item : items) {
+                    emit.emit(fn.apply((O)item));
+                }
+            }));
+        }
+
+        /**
+         * Add stage processing up to batchSize queued items at once.
+         * Function gets reused list which should not be kept.
+         */
+        public <N> Builder<I, N> batchStage(String name, int threads, int capacity, int batchSize,
+            Function<? super List<O>, ? extends Collection<? extends N>> fn) {
+            return add(new PipelineStage(name, threads, capacity, batchSize, (items, emit) -> {
+                Collection<? extends N> out = fn.apply((List<O>)(List)items);
+                if (out != null) {
+                    for (N item : out) {
+                        emit.emit(item);
+                    }
+                }
+            }));
+        }
+
+        /**
+         * Add last stage consuming items one by one and start pipeline.
+         */
+        public Pipeline<I> sink(String name, int threads, int capacity, Consumer<? super O> fn) {
+            add(new PipelineStage(name, threads, capacity, 1, (items, emit) -> {
+                for (Object item : items) {
+                    fn.accept((O)item);
+                }
+            }));
+            return build();
+        }
+
+        /**
+         * Add last stage consuming up to batchSize items at once and start pipeline.
+         */
+        public Pipeline<I> batchSink(String name, int threads, int capacity, int batchSize,
+            Consumer<? super List<O>> fn) {
+            add(new PipelineStage(name, threads, capacity, batchSize, (items, emit) -> fn.accept((List<O>)(List)items)));
+            return build();
+        }
+
+        private <N> Builder<I, N> add(PipelineStage stage) {
+            if (!stages.isEmpty()) {
+                stages.get(stages.size() - 1).setNext(stage);
+            }
+            stages.add(stage);
+            return (Builder<I, N>)this;
+        }
+
+        private Pipeline<I> build() {
+            for (PipelineStage s : stages) {
+                s.startWorkers();
+            }
+            return new Pipeline<>(new ArrayList<>(stages));
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One stage of {@link Pipeline} with own bounded queue and worker threads.
+ * Results are put directly into queue of next stage, if it is full worker waits,
+ * so slow stage slows down previous ones instead of growing memory.
+ * Counters can be used to find bottleneck stage: it has full queue and long wait time.
+ */
+public class PipelineStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineStage.class);
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String name;
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    private final Processor processor;
+
+    private final BlockingQueue<Envelope> queue;
+
+    private PipelineStage next;
+
+    private volatile int threads;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean stopping;
+
+    private final LongAdder received = new LongAdder();
+
+    private final LongAdder processed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    private final LongAdder busyNanos = new LongAdder();
+
+    PipelineStage(String name, int threads, int capacity, int batchSize, Processor processor) {
+        if (threads < 1 || capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Stage " + name + " threads, capacity and batch size should be positive");
+        }
+        this.name = name;
+        this.threads = threads;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.processor = processor;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Change count of worker threads of this stage.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Stage should have at least one thread");
+        }
+        this.threads = threads;
+        startWorkers();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return capacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return Count of items put into stage queue
+     */
+    public long getReceived() {
+        return received.sum();
+    }
+
+    /**
+     * @return Count of items processed successfully
+     */
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    /**
+     * @return Count of items in batches which failed with exception
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return Average time item waited in stage queue
+     */
+    public long getAverageWaitNanos() {
+        long n = processed.sum() + failed.sum();
+        return n == 0 ? 0 : waitNanos.sum() / n;
+    }
+
+    /**
+     * @return Average processing time of one item, including hand off to next stage
+     */
+    public long getAverageLatencyNanos() {
+        long n = processed.sum() + failed.sum();
+        return n == 0 ? 0 : busyNanos.sum() / n;
+    }
+
+    /**
+     * @return Average count of items processed together
+     */
+    public double getAverageBatch() {
+        long b = batches.sum();
+        return b == 0 ? 0 : (processed.sum() + failed.sum()) / (double)b;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": threads " + threads + ", queue " + getQueueSize() + "/" + capacity
+            + ", processed " + getProcessed() + ", failed " + getFailed()
+            + ", wait " + getAverageWaitNanos() / 1000 + "us, latency " + getAverageLatencyNanos() / 1000 + "us";
+    }
+
+    void setNext(PipelineStage next) {
+        this.next = next;
+    }
+
+    void put(Object item) throws InterruptedException {
+        queue.put(new Envelope(item));
+        received.increment();
+    }
+
+    boolean offer(Object item) {
+        if (queue.offer(new Envelope(item))) {
+            received.increment();
+            return true;
+        }
+        return false;
+    }
+
+    void startWorkers() {
+        int n;
+        while ((n = running.get()) < threads && !stopping) {
+            if (running.compareAndSet(n, n + 1)) {
+                Thread th = new Thread(this::work, "Pipeline " + name + " " + threadNumber.incrementAndGet());
+                th.setDaemon(true);
+                workers.add(th);
+                th.start();
+            }
+        }
+    }
+
+    /**
+     * Let workers finish queued items and wait for them.
+     */
+    void stop() throws InterruptedException {
+        stopping = true;
+        for (Thread th : workers) {
+            th.join();
+        }
+    }
+
+    private boolean retire() {
+        int n;
+        while ((n = running.get()) > threads || (stopping && queue.isEmpty())) {
+            if (running.compareAndSet(n, n - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void work() {
+        List<Envelope> batch = new ArrayList<>(batchSize);
+        List<Object> items = new ArrayList<>(batchSize);
+        try {
+            while (!retire()) {
+                Envelope first = queue.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                if (batchSize > 1) {
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                long start = System.nanoTime();
+                for (Envelope e : batch) {
+                    waitNanos.add(start - e.enqueued);
+                    items.add(e.item);
+                }
+                try {
+                    processor.process(items, this::emit);
+                    processed.add(items.size());
+                } catch (InterruptedException ex) {
+                    throw ex;
+                } catch (Throwable th) {
+                    failed.add(items.size());
+                    logger.error("Pipeline stage " + name + " fail. " + th.getMessage(), th);
+                }
+                busyNanos.add(System.nanoTime() - start);
+                batches.increment();
+                batch.clear();
+                items.clear();
+            }
+        } catch (InterruptedException ex) {
+            running.decrementAndGet();
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.remove(Thread.currentThread());
+        }
+    }
+
+    private void emit(Object item) throws InterruptedException {
+        if (item != null && next != null) {
+            next.put(item);
+        }
+    }
+
+    /**
+     * Stage logic, item lists are reused and should not be kept.
+     */
+    interface Processor {
+
+        void process(List<Object> items, Emitter emit) throws Exception;
+    }
+
+    interface Emitter {
+
+        void emit(Object item) throws InterruptedException;
+    }
+
+    private static class Envelope {
+
+        final Object item;
+
+        final long enqueued = System.nanoTime();
+
+        Envelope(Object item) {
+            this.item = item;
+        }
+    }
+}
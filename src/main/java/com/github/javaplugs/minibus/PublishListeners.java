@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publish listeners of one bus, see {@link Source}.
+ * Listeners are kept in copy on write array, so notifying costs one volatile read when there are none.
+ */
+final class PublishListeners<E extends EventBusEvent> {
+
+    /**
+     * Bus which calls listeners for each published event and handler call. {@link EventRecorder}
+     * uses it to see events from all publishers, {@link EventReplayer} to measure delivery latency.
+     */
+    interface Source<E extends EventBusEvent> {
+
+        /**
+         * Add listener called in publishing thread for each event passed to publish,
+         * before event is queued, rate limited or delivered. Events scheduled for later publishing
+         * are passed to listener when they are due. Listener should be fast and not throw,
+         * its failures are logged.
+         *
+         * @param listener Listener, same instance should be passed to {@link #removePublishListener}
+         */
+        void addPublishListener(Consumer<? super E> listener);
+
+        /**
+         * Remove listener added by {@link #addPublishListener}, unknown listener is ignored.
+         */
+        void removePublishListener(Consumer<? super E> listener);
+
+        /**
+         * Set listener called in handler thread right before each handler call, including retries.
+         * Listener should be fast and not throw.
+         *
+         * @param listener Listener or null to remove it
+         */
+        void setDeliveryListener(Consumer<? super E> listener);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(PublishListeners.class);
+
+    private volatile Consumer<? super E>[] listeners = new Consumer[0];
+
+    synchronized void add(Consumer<? super E> listener) {
+        Consumer<? super E>[] ls = Arrays.copyOf(listeners, listeners.length + 1);
+        ls[ls.length - 1] = listener;
+        listeners = ls;
+    }
+
+    synchronized void remove(Consumer<? super E> listener) {
+        Consumer<? super E>[] ls = listeners;
+        for (int i = 0; i < ls.length; i++) {
+            if (ls[i] == listener) {
+                Consumer<? super E>[] n = Arrays.copyOf(ls, ls.length - 1);
+                System.arraycopy(ls, i + 1, n, i, ls.length - i - 1);
+                listeners = n;
+                return;
+            }
+        }
+    }
+
+    void published(E event) {
+        for (Consumer<? super E> l : listeners) {
+            try {
+                l.accept(event);
+            } catch (Throwable th) {
+                logger.error("Publish listener fail for " + event.getClass().getSimpleName() + ". " + th.getMessage(), th);
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch with relative accuracy guarantee (DDSketch layout).
+ * Values are counted in logarithmic buckets, bucket arrays only grow when value range grows,
+ * so adding values does not allocate.
+ * Not thread safe.
+ */
+class QuantileSketch {
+
+    private final double gamma;
+
+    private final double logGamma;
+
+    private final Store positive = new Store();
+
+    private final Store negative = new Store();
+
+    private long zeroCount;
+
+    private long count;
+
+    /**
+     * @param relativeAccuracy Relative error of returned quantiles, for example 0.01
+     */
+    QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy should be between 0 and 1: " + relativeAccuracy);
+        }
+        gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        logGamma = Math.log(gamma);
+    }
+
+    /**
+     * @param value Finite value, infinity or NaN has no bucket
+     */
+    void add(double value) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("Value should be finite: " + value);
+        }
+        if (value > Double.MIN_NORMAL) {
+            positive.add(index(value), 1);
+        } else if (value < -Double.MIN_NORMAL) {
+            negative.add(index(-value), 1);
+        } else {
+            zeroCount++;
+        }
+        count++;
+    }
+
+    void merge(QuantileSketch other) {
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    void clear() {
+        positive.clear();
+        negative.clear();
+        zeroCount = 0;
+        count = 0;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @param q Quantile from 0 to 1
+     * @return Approximate value or NaN if sketch is empty
+     */
+    double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long)(q * (count - 1));
+        // Negative values go first, from largest magnitude to smallest
+        long n = negative.total;
+        if (rank < n) {
+            return -value(negative.indexAtRankFromTop(rank));
+        }
+        rank -= n;
+        if (rank < zeroCount) {
+            return 0;
+        }
+        return value(positive.indexAtRank(rank - zeroCount));
+    }
+
+    private int index(double value) {
+        return (int)Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    /**
+     * Dense counts for bucket indexes from offset to offset + counts.length.
+     */
+    private static class Store {
+
+        long[] counts = new long[0];
+
+        int offset;
+
+        long total;
+
+        void add(int index, long n) {
+            if (counts.length == 0) {
+                counts = new long[64];
+                offset = index - 32;
+            } else if (index < offset || index >= offset + counts.length) {
+                if (total == 0) {
+                    // Cleared store, move range to new values instead of stretching it
+                    offset = index - counts.length / 2;
+                } else {
+                    grow(index);
+                }
+            }
+            counts[index - offset] += n;
+            total += n;
+        }
+
+        private void grow(int index) {
+            int from = Math.min(index, offset);
+            int to = Math.max(index, offset + counts.length - 1);
+            int length = Math.max(counts.length * 2, to - from + 1 + 16);
+            int newOffset = index < offset ? to - length + 1 : from;
+            long[] c = new long[length];
+            System.arraycopy(counts, 0, c, offset - newOffset, counts.length);
+            counts = c;
+            offset = newOffset;
+        }
+
+        void merge(Store other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+
+        void clear() {
+            Arrays.fill(counts, 0);
+            total = 0;
+        }
+
+        int indexAtRank(long rank) {
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return offset + i;
+                }
+            }
+            return offset + counts.length - 1;
+        }
+
+        int indexAtRankFromTop(long rank) {
+            long seen = 0;
+            for (int i = counts.length - 1; i >= 0; i--) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return offset + i;
+                }
+            }
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit for publishing events of one class.
+ * Instances are immutable, each with* method returns new instance.
+ *
+ * <pre>
+ * eventBus.setRateLimit(OrderCreated.class, RateLimit.perSecond(1000)
+ *     .withBurst(100)
+ *     .withPolicy(RateLimit.Policy.DELAY));
+ * </pre>
+ */
+public final class RateLimit {
+
+    /**
+     * What to do with events published over limit.
+     */
+    public enum Policy {
+        /**
+         * Throw {@link EventRejectedException} to publisher.
+         */
+        REJECT,
+        /**
+         * Silently drop event.
+         */
+        DROP,
+        /**
+         * Publish event later, when bucket will have free token.
+         * Events which should be delayed longer than max delay are dropped.
+         */
+        DELAY
+    }
+
+    private final double permitsPerSecond;
+
+    private final int burst;
+
+    private final Policy policy;
+
+    private final boolean perProducer;
+
+    private final long maxDelayNanos;
+
+    private RateLimit(double permitsPerSecond, int burst, Policy policy, boolean perProducer, long maxDelayNanos) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Permits per second should be positive: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst should be positive: " + burst);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.policy = policy;
+        this.perProducer = perProducer;
+        this.maxDelayNanos = maxDelayNanos;
+    }
+
+    /**
+     * Create limit that allows provided average rate with burst of one event and {@link Policy#DROP} policy.
+     */
+    public static RateLimit perSecond(double permitsPerSecond) {
+        return new RateLimit(permitsPerSecond, 1, Policy.DROP, false, TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Count of events that can be published at once after idle period.
+     */
+    public RateLimit withBurst(int burst) {
+        return new RateLimit(permitsPerSecond, burst, policy, perProducer, maxDelayNanos);
+    }
+
+    public RateLimit withPolicy(Policy policy) {
+        return new RateLimit(permitsPerSecond, burst, policy, perProducer, maxDelayNanos);
+    }
+
+    /**
+     * Apply limit to each publishing thread separately instead of all publishers together.
+     */
+    public RateLimit withPerProducer(boolean perProducer) {
+        return new RateLimit(permitsPerSecond, burst, policy, perProducer, maxDelayNanos);
+    }
+
+    /**
+     * Max delay for {@link Policy#DELAY}, one second by default.
+     */
+    public RateLimit withMaxDelay(long delay, TimeUnit unit) {
+        return new RateLimit(permitsPerSecond, burst, policy, perProducer, unit.toNanos(delay));
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public boolean isPerProducer() {
+        return perProducer;
+    }
+
+    public long getMaxDelayNanos() {
+        return maxDelayNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimit{" + permitsPerSecond + "/s, burst " + burst + ", " + policy
+            + (perProducer ? ", per producer" : "") + "}";
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per event class rate limits checked on publishing.
+ * Each limit is token bucket implemented as generic cell rate algorithm: bucket state is
+ * one theoretical arrival time updated with CAS, so there are no locks on publishing path.
+ * If no limit is configured for event class check costs one volatile read and map lookup.
+ */
+class RateLimiter {
+
+    /**
+     * Result of {@link #acquire} for event that should be published now.
+     */
+    static final long PASS = 0;
+
+    /**
+     * Result of {@link #acquire} for event that should be dropped.
+     */
+    static final long DROP = -1;
+
+    private final LongSupplier clock;
+
+    private volatile Map<Class, Limiter> limiters = Collections.emptyMap();
+
+    RateLimiter() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param clock Time source in nanoseconds
+     */
+    RateLimiter(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    synchronized void set(Class cls, RateLimit limit) {
+        Map<Class, Limiter> m = new HashMap<>(limiters);
+        if (limit == null) {
+            m.remove(cls);
+        } else {
+            m.put(cls, new Limiter(limit, clock));
+        }
+        limiters = m.isEmpty() ? Collections.emptyMap() : m;
+    }
+
+    RateLimitCounters getCounters(Class cls) {
+        Limiter l = limiters.get(cls);
+        return l == null ? null : l.counters;
+    }
+
+    /**
+     * Take token for event of provided class.
+     *
+     * @return {@link #PASS}, {@link #DROP} or delay in nanoseconds
+     * @throws EventRejectedException If limit exceeded and policy is {@link RateLimit.Policy#REJECT}
+     */
+    long acquire(Class cls) throws EventRejectedException {
+        Map<Class, Limiter> m = limiters;
+        if (m.isEmpty()) {
+            return PASS;
+        }
+        Limiter l = m.get(cls);
+        return l == null ? PASS : l.acquire(cls);
+    }
+
+    private static class Limiter {
+
+        final RateLimit limit;
+
+        final LongSupplier clock;
+
+        final RateLimitCounters counters = new RateLimitCounters();
+
+        final long intervalNanos;
+
+        final long toleranceNanos;
+
+        final TokenBucket shared;
+
+        final ThreadLocal<TokenBucket> perThread;
+
+        Limiter(RateLimit limit, LongSupplier clock) {
+            this.limit = limit;
+            this.clock = clock;
+            this.intervalNanos = Math.max(1, (long)(1_000_000_000L / limit.getPermitsPerSecond()));
+            this.toleranceNanos = intervalNanos * (limit.getBurst() - 1);
+            if (limit.isPerProducer()) {
+                shared = null;
+                perThread = ThreadLocal.withInitial(() -> new TokenBucket(clock.getAsLong()));
+            } else {
+                shared = new TokenBucket(clock.getAsLong());
+                perThread = null;
+            }
+        }
+
+        long acquire(Class cls) {
+            TokenBucket bucket = shared == null ? perThread.get() : shared;
+            long now = clock.getAsLong();
+            RateLimit.Policy policy = limit.getPolicy();
+            long wait = bucket.take(now, intervalNanos, toleranceNanos,
+                policy == RateLimit.Policy.DELAY ? limit.getMaxDelayNanos() : 0);
+            if (wait == 0) {
+                counters.passed.increment();
+                return PASS;
+            }
+            if (wait > 0) {
+                counters.delayed.increment();
+                return wait;
+            }
+            if (policy == RateLimit.Policy.REJECT) {
+                counters.rejected.increment();
+                throw new EventRejectedException("Rate limit exceeded for " + cls.getSimpleName() + ": " + limit);
+            }
+            counters.dropped.increment();
+            return DROP;
+        }
+    }
+
+    /**
+     * Token bucket state, theoretical arrival time of next event.
+     */
+    private static class TokenBucket extends AtomicLong {
+
+        TokenBucket(long now) {
+            super(now);
+        }
+
+        /**
+         * @return 0 if token taken, positive delay if token reserved in future or -1 if there is no token
+         */
+        long take(long now, long interval, long tolerance, long maxDelay) {
+            while (true) {
+                long tat = get();
+                long start = Math.max(tat, now);
+                long wait = start - tolerance - now;
+                if (wait > maxDelay) {
+                    return -1;
+                }
+                if (compareAndSet(tat, start + interval)) {
+                    return Math.max(0, wait);
+                }
+            }
+        }
+    }
+}
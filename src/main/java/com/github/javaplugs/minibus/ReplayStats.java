@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of {@link EventReplayer#replay}.
+ * Publish latency is time spent in {@link EventBus#publish} call,
+ * delivery latency is time from publish until first handler call of event started,
+ * it is NaN for buses which do not support delivery listener,
+ * lag is how much later than scheduled by recording event was published.
+ */
+public class ReplayStats {
+
+    private final long events;
+
+    private final long skipped;
+
+    private final long durationNanos;
+
+    private final long drainNanos;
+
+    private final QuantileSketch publishLatency;
+
+    private final QuantileSketch lag;
+
+    private final QuantileSketch deliveryLatency;
+
+    ReplayStats(long events, long skipped, long durationNanos, long drainNanos,
+        QuantileSketch publishLatency, QuantileSketch lag, QuantileSketch deliveryLatency) {
+        this.events = events;
+        this.skipped = skipped;
+        this.durationNanos = durationNanos;
+        this.drainNanos = drainNanos;
+        this.publishLatency = publishLatency;
+        this.lag = lag;
+        this.deliveryLatency = deliveryLatency;
+    }
+
+    /**
+     * @return Count of published events
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * @return Count of records which could not be decoded
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return Time from first publish until bus had no pending events
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return Time bus needed to process pending events after last publish
+     */
+    public long getDrainNanos() {
+        return drainNanos;
+    }
+
+    /**
+     * @return Events per second including drain time
+     */
+    public double getThroughput() {
+        return durationNanos == 0 ? 0 : events * (double)TimeUnit.SECONDS.toNanos(1) / durationNanos;
+    }
+
+    /**
+     * @param q Quantile from 0 to 1
+     * @return Publish call latency in nanoseconds
+     */
+    public double getPublishLatency(double q) {
+        return publishLatency.quantile(q);
+    }
+
+    /**
+     * @param q Quantile from 0 to 1
+     * @return Time from publish until event reached handlers in nanoseconds, NaN if nothing was delivered
+     */
+    public double getDeliveryLatency(double q) {
+        return deliveryLatency.quantile(q);
+    }
+
+    /**
+     * @return Count of events which reached handlers, zero if bus does not support delivery listener
+     */
+    public long getDelivered() {
+        return deliveryLatency.getCount();
+    }
+
+    /**
+     * @param q Quantile from 0 to 1
+     * @return Lag behind recorded schedule in nanoseconds, zero for maximum speed replay
+     */
+    public double getLag(double q) {
+        return lag.quantile(q);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("events %d, skipped %d, %.0f events/s, drain %dus, publish p50 %.0fns p99 %.0fns p999 %.0fns,"
+            + " delivery p50 %.0fus p99 %.0fus p999 %.0fus, lag p50 %.0fus p99 %.0fus",
+            events, skipped, getThroughput(), drainNanos / 1000,
+            getPublishLatency(0.5), getPublishLatency(0.99), getPublishLatency(0.999),
+            getDeliveryLatency(0.5) / 1000, getDeliveryLatency(0.99) / 1000, getDeliveryLatency(0.999) / 1000,
+            getLag(0.5) / 1000, getLag(0.99) / 1000);
+    }
+}
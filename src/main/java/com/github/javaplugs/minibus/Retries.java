@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Retry scheduling and dead letters shared by event bus implementations.
+ * Retries are kept in timing wheel, so failed delivery does not block anything while waiting.
+ */
+class Retries<E extends EventBusEvent> {
+
+    private final TimingWheel<Delivery<E>> wheel;
+
+    private volatile RetryPolicy policy = RetryPolicy.none();
+
+    private volatile DeadLetterStore<E> deadLetters;
+
+    /**
+     * @param redeliver Will be called from owner thread of wheel for each due retry
+     */
+    Retries(Consumer<Delivery<E>> redeliver) {
+        this(redeliver, System::nanoTime);
+    }
+
+    /**
+     * @param redeliver Will be called from owner thread of wheel for each due retry
+     * @param clock Time source in nanoseconds, same as used for {@link #advance}
+     */
+    Retries(Consumer<Delivery<E>> redeliver, LongSupplier clock) {
+        wheel = new TimingWheel<>(TimeUnit.MILLISECONDS.toNanos(1), redeliver, clock);
+    }
+
+    void setPolicy(RetryPolicy policy) {
+        this.policy = policy == null ? RetryPolicy.none() : policy;
+    }
+
+    DeadLetterStore<E> getDeadLetters() {
+        return deadLetters;
+    }
+
+    void setDeadLetters(DeadLetterStore<E> deadLetters) {
+        this.deadLetters = deadLetters;
+    }
+
+    /**
+     * Schedule retry for failed delivery or move it to dead letters if store is set.
+     *
+     * @param handler Handler which failed, referent of delivery subscription
+     * @return True if retry was scheduled
+     */
+    boolean onFailure(Delivery<E> delivery, EventBusHandler<E> handler, Throwable th) {
+        RetryPolicy p = handler.getRetryPolicy();
+        if (p == null) {
+            p = policy;
+        }
+        if (delivery.attempt < p.getMaxAttempts()) {
+            long delay = p.delayNanos(delivery.attempt);
+            wheel.schedule(delivery.next(), delay);
+            return true;
+        }
+        DeadLetterStore<E> store = deadLetters;
+        if (store != null) {
+            store.add(new DeadLetter<>(delivery.event, handler, delivery.subscription, th, delivery.attempt));
+        }
+        return false;
+    }
+
+    /**
+     * Run due retries, should be called from one thread at a time.
+     */
+    void advance(long nowNanos) {
+        wheel.advance(nowNanos);
+    }
+
+    boolean isEmpty() {
+        return wheel.isEmpty();
+    }
+
+    /**
+     * One attempt to deliver event to handler.
+     * Handler is weakly referenced, so waiting retry does not keep collected handler alive,
+     * bus should drop retry if handler is collected or unsubscribed.
+     */
+    static final class Delivery<E extends EventBusEvent> {
+
+        /**
+         * Subscription of handler with executor resolved when it was subscribed.
+         */
+        final WeakHandler<EventBusHandler<E>> subscription;
+
+        final E event;
+
+        final TraceContext context;
+
+        final int attempt;
+
+        Delivery(WeakHandler<EventBusHandler<E>> subscription, E event, TraceContext context, int attempt) {
+            this.subscription = subscription;
+            this.event = event;
+            this.context = context;
+            this.attempt = attempt;
+        }
+
+        Delivery<E> next() {
+            return new Delivery<>(subscription, event, context, attempt + 1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy for redelivery of events to failed handlers.
+ * Delay before attempt n+1 is {@code initialDelay * multiplier^(n-1)} limited by max delay,
+ * randomly reduced by up to jitter fraction to avoid synchronized retry storms.
+ * Instances are immutable, each with* method returns new instance.
+ */
+public final class RetryPolicy {
+
+    private static final RetryPolicy NONE = new RetryPolicy(1, 0, 1, 0, 0);
+
+    private final int maxAttempts;
+
+    private final long initialDelayNanos;
+
+    private final double multiplier;
+
+    private final long maxDelayNanos;
+
+    private final double jitter;
+
+    private RetryPolicy(int maxAttempts, long initialDelayNanos, double multiplier, long maxDelayNanos, double jitter) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts should be positive: " + maxAttempts);
+        }
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("Multiplier can not be less than 1: " + multiplier);
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Jitter should be in [0, 1]: " + jitter);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayNanos = initialDelayNanos;
+        this.multiplier = multiplier;
+        this.maxDelayNanos = maxDelayNanos;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Policy without retries, failed events go directly to dead letters.
+     */
+    public static RetryPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Exponential backoff with multiplier 2, jitter 0.5 and max delay one minute.
+     *
+     * @param maxAttempts Total attempts count including first delivery
+     * @param initialDelay Delay before first retry
+     * @param unit Delay time unit
+     */
+    public static RetryPolicy exponential(int maxAttempts, long initialDelay, TimeUnit unit) {
+        return new RetryPolicy(maxAttempts, unit.toNanos(initialDelay), 2, TimeUnit.MINUTES.toNanos(1), 0.5);
+    }
+
+    public RetryPolicy withMultiplier(double multiplier) {
+        return new RetryPolicy(maxAttempts, initialDelayNanos, multiplier, maxDelayNanos, jitter);
+    }
+
+    public RetryPolicy withMaxDelay(long maxDelay, TimeUnit unit) {
+        return new RetryPolicy(maxAttempts, initialDelayNanos, multiplier, unit.toNanos(maxDelay), jitter);
+    }
+
+    /**
+     * @param jitter Fraction of delay that is randomized, 0 - exact delays, 1 - full jitter
+     */
+    public RetryPolicy withJitter(double jitter) {
+        return new RetryPolicy(maxAttempts, initialDelayNanos, multiplier, maxDelayNanos, jitter);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Return delay before next attempt.
+     *
+     * @param attempt Number of failed attempt, starting from 1
+     * @return Delay in nanoseconds
+     */
+    public long delayNanos(int attempt) {
+        double delay = Math.min(maxDelayNanos, initialDelayNanos * Math.pow(multiplier, attempt - 1));
+        if (jitter > 0) {
+            delay -= delay * jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return (long)delay;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{attempts " + maxAttempts + ", initial " + initialDelayNanos + "ns, x" + multiplier
+            + ", max " + maxDelayNanos + "ns, jitter " + jitter + "}";
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Executor that runs tasks one by one in submission order on top of other executor.
+ */
+class SerialExecutor implements Executor {
+
+    private final Executor delegate;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    SerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException If delegate rejects, task is not run then
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (running.compareAndSet(false, true)) {
+            try {
+                delegate.execute(this::drain);
+            } catch (RuntimeException | Error ex) {
+                // Rejected task is reported to caller, so it should not run later with next accepted one
+                tasks.remove(task);
+                running.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        } finally {
+            // Also reached if task throws, remaining tasks are continued by new drain
+            running.set(false);
+            if (!tasks.isEmpty() && running.compareAndSet(false, true)) {
+                try {
+                    delegate.execute(this::drain);
+                } catch (RuntimeException ex) {
+                    // Delegate is shut down, remaining tasks wait for next execute call
+                    running.set(false);
+                }
+            }
+        }
+    }
+}
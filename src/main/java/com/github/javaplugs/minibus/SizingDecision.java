@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+/**
+ * One resize of {@link AdaptiveExecutor} with measurements it was based on.
+ */
+public final class SizingDecision {
+
+    private final long timestamp;
+
+    private final int previousSize;
+
+    private final int newSize;
+
+    private final long queueWaitNanos;
+
+    private final long handlerLatencyNanos;
+
+    private final int queueSize;
+
+    private final double utilization;
+
+    private final double cpuLoad;
+
+    SizingDecision(int previousSize, int newSize, long queueWaitNanos, long handlerLatencyNanos,
+        int queueSize, double utilization, double cpuLoad) {
+        this.timestamp = System.currentTimeMillis();
+        this.previousSize = previousSize;
+        this.newSize = newSize;
+        this.queueWaitNanos = queueWaitNanos;
+        this.handlerLatencyNanos = handlerLatencyNanos;
+        this.queueSize = queueSize;
+        this.utilization = utilization;
+        this.cpuLoad = cpuLoad;
+    }
+
+    /**
+     * @return Time of decision in milliseconds since epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getPreviousSize() {
+        return previousSize;
+    }
+
+    public int getNewSize() {
+        return newSize;
+    }
+
+    /**
+     * @return Smoothed time tasks spent in queue before start
+     */
+    public long getQueueWaitNanos() {
+        return queueWaitNanos;
+    }
+
+    /**
+     * @return Smoothed handler run time
+     */
+    public long getHandlerLatencyNanos() {
+        return handlerLatencyNanos;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * @return Part of workers time spent running tasks, from 0 to 1
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * @return System load average per processor, 1 means all processors are busy,
+     * or negative value if it is not available
+     */
+    public double getCpuLoad() {
+        return cpuLoad;
+    }
+
+    @Override
+    public String toString() {
+        return "resize " + previousSize + " -> " + newSize
+            + ", wait " + queueWaitNanos / 1000 + "us, latency " + handlerLatencyNanos / 1000
+            + "us, queue " + queueSize + ", utilization " + Math.round(utilization * 100)
+            + "%, cpu " + (cpuLoad < 0 ? "n/a" : Math.round(cpuLoad * 100) + "%");
+    }
+}
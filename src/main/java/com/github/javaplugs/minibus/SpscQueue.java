@@ -0,0 +1,108 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Unbounded single producer single consumer queue made of linked array chunks.
+ * Items are written directly into chunk slots, so there is no node allocation per item
+ * and no CAS: producer and consumer only publish their own positions with ordered writes.
+ */
+class SpscQueue<T> {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final AtomicLong produced = new AtomicLong();
+
+    private final AtomicLong consumed = new AtomicLong();
+
+    // Producer state
+    private Chunk<T> tail;
+
+    private int tailIndex;
+
+    // Consumer state
+    private Chunk<T> head;
+
+    private int headIndex;
+
+    SpscQueue() {
+        tail = head = new Chunk<>();
+    }
+
+    /**
+     * Producer thread only.
+     */
+    void offer(T item) {
+        if (tailIndex == CHUNK_SIZE) {
+            Chunk<T> next = new Chunk<>();
+            tail.next = next;
+            tail = next;
+            tailIndex = 0;
+        }
+        tail.items.lazySet(tailIndex++, item);
+        produced.lazySet(produced.get() + 1);
+    }
+
+    /**
+     * Consumer thread only.
+     */
+    T poll() {
+        if (headIndex == CHUNK_SIZE) {
+            Chunk<T> next = head.next;
+            if (next == null) {
+                return null;
+            }
+            head = next;
+            headIndex = 0;
+        }
+        T item = head.items.get(headIndex);
+        if (item != null) {
+            // Drop link to consumed item, chunk stays reachable until consumer leaves it
+            head.items.lazySet(headIndex++, null);
+            consumed.lazySet(consumed.get() + 1);
+        }
+        return item;
+    }
+
+    /**
+     * Any thread, result is approximate.
+     */
+    int size() {
+        return (int)Math.max(0, produced.get() - consumed.get());
+    }
+
+    boolean isEmpty() {
+        return produced.get() == consumed.get();
+    }
+
+    private static class Chunk<T> {
+
+        final AtomicReferenceArray<T> items = new AtomicReferenceArray<>(CHUNK_SIZE);
+
+        volatile Chunk<T> next;
+    }
+}
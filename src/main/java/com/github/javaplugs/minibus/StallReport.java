@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Details of stall detected by {@link StallWatchdog}.
+ */
+public class StallReport {
+
+    public enum Kind {
+
+        /**
+         * Events queue thread did not finish loop iteration in time or is dead.
+         */
+        DISPATCHER,
+
+        /**
+         * Handler call did not finish in time.
+         */
+        HANDLER
+    }
+
+    private final Kind kind;
+
+    private final Thread thread;
+
+    private final Class<?> handlerClass;
+
+    private final Class<?> eventClass;
+
+    private final long durationNanos;
+
+    private final StackTraceElement[] stackTrace;
+
+    StallReport(Kind kind, Thread thread, Class<?> handlerClass, Class<?> eventClass, long durationNanos) {
+        this.kind = kind;
+        this.thread = thread;
+        this.handlerClass = handlerClass;
+        this.eventClass = eventClass;
+        this.durationNanos = durationNanos;
+        this.stackTrace = thread.getStackTrace();
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return Stalled thread, can be used for example to interrupt it
+     */
+    public Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * @return Class of stalled handler or null for dispatcher stall
+     */
+    public Class<?> getHandlerClass() {
+        return handlerClass;
+    }
+
+    /**
+     * @return Class of event being handled or null for dispatcher stall
+     */
+    public Class<?> getEventClass() {
+        return eventClass;
+    }
+
+    /**
+     * @return How long thread was stalled when it was detected
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return Stack trace captured on detection, empty if thread is dead
+     */
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (kind == Kind.DISPATCHER) {
+            sb.append("Dispatcher ");
+        } else {
+            sb.append("Handler ").append(handlerClass.getName())
+                .append(" on event ").append(eventClass.getName()).append(' ');
+        }
+        sb.append("stalled for ").append(TimeUnit.NANOSECONDS.toMillis(durationNanos)).append("ms in thread \"")
+            .append(thread.getName()).append('"');
+        if (!thread.isAlive()) {
+            sb.append(" which is dead");
+        }
+        for (StackTraceElement el : stackTrace) {
+            sb.append("\n\tat ").append(el);
+        }
+        return sb.toString();
+    }
+}
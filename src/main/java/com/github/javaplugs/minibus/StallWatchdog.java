@@ -0,0 +1,309 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detects stalls of {@link EventBusAsync} events queue thread and handler calls.
+ *
+ * Watched bus writes heartbeats: start time of current events queue loop iteration and
+ * start time of each handler call in per thread slot. Writes are lazy, so bus pays only
+ * for a few ordered stores per event. Watchdog thread periodically compares them with
+ * thresholds and reports each stall once with stack trace of stalled thread.
+ * By default reports are logged, use {@link #setListener} to react otherwise.
+ */
+public class StallWatchdog implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StallWatchdog.class);
+
+    private final long dispatcherNanos;
+
+    private final long handlerNanos;
+
+    private final Map<EventBusAsync<?>, Monitor> monitors = new ConcurrentHashMap<>();
+
+    private final ScheduledFuture<?> task;
+
+    private final LongAdder dispatcherStalls = new LongAdder();
+
+    private final LongAdder handlerStalls = new LongAdder();
+
+    private volatile Consumer<StallReport> listener = r -> logger.warn(r.toString());
+
+    private boolean closed;
+
+    /**
+     * @param dispatcherThreshold Max time of one events queue loop iteration
+     * @param handlerThreshold Max time of one handler call
+     * @param unit Thresholds time unit
+     */
+    public StallWatchdog(long dispatcherThreshold, long handlerThreshold, TimeUnit unit) {
+        if (dispatcherThreshold <= 0 || handlerThreshold <= 0) {
+            throw new IllegalArgumentException("Thresholds should be positive");
+        }
+        this.dispatcherNanos = unit.toNanos(dispatcherThreshold);
+        this.handlerNanos = unit.toNanos(handlerThreshold);
+        long period = Math.max(TimeUnit.MILLISECONDS.toNanos(10), Math.min(dispatcherNanos, handlerNanos) / 4);
+        this.task = Timer.executor.scheduleWithFixedDelay(this::check, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Start watching bus. One watchdog can watch several buses, bus can have one watchdog only.
+     *
+     * @throws IllegalStateException If bus is already watched or watchdog is closed
+     */
+    public synchronized void watch(EventBusAsync<?> bus) {
+        if (closed) {
+            throw new IllegalStateException("Watchdog is closed");
+        }
+        Monitor m = new Monitor(bus.getEventQueueThread());
+        if (!bus.attachMonitor(m)) {
+            throw new IllegalStateException("Bus is already watched");
+        }
+        monitors.put(bus, m);
+    }
+
+    /**
+     * Stop watching bus, unknown bus is ignored.
+     */
+    public synchronized void unwatch(EventBusAsync<?> bus) {
+        Monitor m = monitors.remove(bus);
+        if (m != null) {
+            bus.detachMonitor(m);
+        }
+    }
+
+    /**
+     * Set callback for detected stalls, it is called from watchdog thread.
+     */
+    public void setListener(Consumer<StallReport> listener) {
+        this.listener = Objects.requireNonNull(listener);
+    }
+
+    /**
+     * @return Count of detected events queue thread stalls
+     */
+    public long getDispatcherStalls() {
+        return dispatcherStalls.sum();
+    }
+
+    /**
+     * @return Count of detected handler stalls
+     */
+    public long getHandlerStalls() {
+        return handlerStalls.sum();
+    }
+
+    /**
+     * @return Count of handler calls running right now in all watched buses
+     */
+    public int getInFlight() {
+        int n = 0;
+        for (Monitor m : monitors.values()) {
+            for (Slot s : m.slots) {
+                if (s.start.get() != 0) {
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Stop checking and detach from watched buses, so they can be watched by other watchdog.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        task.cancel(false);
+        for (Map.Entry<EventBusAsync<?>, Monitor> e : monitors.entrySet()) {
+            e.getKey().detachMonitor(e.getValue());
+        }
+        monitors.clear();
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        for (Monitor m : monitors.values()) {
+            try {
+                checkDispatcher(m, now);
+                checkHandlers(m, now);
+            } catch (Throwable th) {
+                logger.error("Stall check fail. " + th.getMessage(), th);
+            }
+        }
+    }
+
+    private void checkDispatcher(Monitor m, long now) {
+        long start = m.loopStart.get();
+        boolean dead = !m.dispatcher.isAlive();
+        if (dead) {
+            if (m.reported != -1) {
+                m.reported = -1;
+                report(new StallReport(StallReport.Kind.DISPATCHER, m.dispatcher, null, null, start == 0 ? 0 : now - start));
+            }
+        } else if (start != 0 && now - start > dispatcherNanos && m.reported != start) {
+            m.reported = start;
+            report(new StallReport(StallReport.Kind.DISPATCHER, m.dispatcher, null, null, now - start));
+        }
+    }
+
+    private void checkHandlers(Monitor m, long now) {
+        for (Slot s : m.slots) {
+            long start = s.start.get();
+            if (start == 0) {
+                if (!s.thread.isAlive()) {
+                    m.slots.remove(s);
+                }
+                continue;
+            }
+            if (now - start > handlerNanos && s.reported != start) {
+                Class<?> handler = s.handler;
+                Class<?> event = s.event;
+                // Recheck, slot could be reused by next call while classes were read
+                if (s.start.get() == start) {
+                    s.reported = start;
+                    report(new StallReport(StallReport.Kind.HANDLER, s.thread, handler, event, now - start));
+                }
+            }
+        }
+    }
+
+    private void report(StallReport r) {
+        if (r.getKind() == StallReport.Kind.DISPATCHER) {
+            dispatcherStalls.increment();
+        } else {
+            handlerStalls.increment();
+        }
+        try {
+            listener.accept(r);
+        } catch (Throwable th) {
+            logger.error("Stall listener fail. " + th.getMessage(), th);
+        }
+    }
+
+    /**
+     * Heartbeats of one bus.
+     */
+    static class Monitor {
+
+        final Thread dispatcher;
+
+        final AtomicLong loopStart = new AtomicLong();
+
+        final Set<Slot> slots = ConcurrentHashMap.newKeySet();
+
+        private final ThreadLocal<Slot> local = ThreadLocal.withInitial(this::register);
+
+        // Watchdog thread state
+        long reported;
+
+        Monitor(Thread dispatcher) {
+            this.dispatcher = dispatcher;
+        }
+
+        /**
+         * Events queue thread only.
+         */
+        void loopStarted(long now) {
+            loopStart.lazySet(now == 0 ? 1 : now);
+        }
+
+        /**
+         * Events queue thread only.
+         */
+        void loopFinished() {
+            loopStart.lazySet(0);
+        }
+
+        /**
+         * Mark handler call start in current thread slot.
+         *
+         * @return Previous start if calls are nested, for example inline handler publishing to {@link EventBusSimple}
+         */
+        long enter(EventBusHandler<?> handler, EventBusEvent event) {
+            Slot s = local.get();
+            long prev = s.start.get();
+            if (prev == 0) {
+                s.handler = handler.getClass();
+                s.event = event.getClass();
+                long now = System.nanoTime();
+                s.start.lazySet(now == 0 ? 1 : now);
+            }
+            return prev;
+        }
+
+        void exit(long prev) {
+            if (prev == 0) {
+                local.get().start.lazySet(0);
+            }
+        }
+
+        private Slot register() {
+            Slot s = new Slot(Thread.currentThread());
+            slots.add(s);
+            return s;
+        }
+    }
+
+    private static class Slot {
+
+        final Thread thread;
+
+        final AtomicLong start = new AtomicLong();
+
+        volatile Class<?> handler;
+
+        volatile Class<?> event;
+
+        // Watchdog thread state
+        long reported;
+
+        Slot(Thread thread) {
+            this.thread = thread;
+        }
+    }
+
+    private static class Timer {
+
+        static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread th = new Thread(r, "EventBus stall watchdog");
+            th.setDaemon(true);
+            return th;
+        });
+    }
+}
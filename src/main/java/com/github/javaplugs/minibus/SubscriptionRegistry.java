@@ -0,0 +1,257 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registry of handlers subscribed to exact event class.
+ *
+ * Subscribe and unsubscribe from any thread only push operation into lock free stack,
+ * so they never block each other. Owner thread (bus dispatcher) takes all pushed operations
+ * at once and applies them in order before dispatching, and only owner thread reads handler arrays, so there are no locks or
+ * copying on either side. Each event class keeps handlers in compact array with hash index
+ * for O(1) removal by swapping with last element.
+ *
+ * Subscribers count of each class is published with volatile write and can be read
+ * from any thread.
+ */
+class SubscriptionRegistry {
+
+    private static final WeakHandler[] EMPTY = new WeakHandler[0];
+
+    private final AtomicReference<Op> pending = new AtomicReference<>();
+
+    private final Map<Class, Subscribers> byClass = new ConcurrentHashMap<>();
+
+    /**
+     * Any thread.
+     */
+    void add(WeakHandler wh) {
+        push(new Op(wh, true));
+    }
+
+    /**
+     * Any thread.
+     */
+    void remove(WeakHandler wh) {
+        push(new Op(wh, false));
+    }
+
+    private void push(Op op) {
+        Op top;
+        do {
+            top = pending.get();
+            op.next = top;
+        } while (!pending.compareAndSet(top, op));
+    }
+
+    /**
+     * Apply queued operations. Owner thread only.
+     */
+    void apply() {
+        if (pending.get() == null) {
+            return;
+        }
+        // Take whole stack, so concurrent churn can not keep owner here forever, and reverse it
+        Op op = pending.getAndSet(null);
+        Op ordered = null;
+        while (op != null) {
+            Op next = op.next;
+            op.next = ordered;
+            ordered = op;
+            op = next;
+        }
+        for (op = ordered; op != null; op = op.next) {
+            Class cls = op.handler.getHandlerTypeClass();
+            Subscribers s = byClass.get(cls);
+            if (op.add) {
+                if (s == null) {
+                    s = new Subscribers();
+                    byClass.put(cls, s);
+                }
+                s.add(op.handler);
+            } else if (s != null) {
+                if (s.remove(op.handler) != null && s.size == 0) {
+                    byClass.remove(cls);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return subscribers of exact event class or null. Owner thread only.
+     */
+    Subscribers get(Class cls) {
+        return byClass.get(cls);
+    }
+
+    /**
+     * True if handler is subscribed. Owner thread only.
+     */
+    boolean contains(WeakHandler wh) {
+        Subscribers s = byClass.get(wh.getHandlerTypeClass());
+        return s != null && s.find(wh) >= 0;
+    }
+
+    /**
+     * Any thread, result does not include operations which are not applied yet.
+     */
+    int count(Class cls) {
+        Subscribers s = byClass.get(cls);
+        return s == null ? 0 : s.count;
+    }
+
+    /**
+     * Any thread, true if there are operations which are not applied yet.
+     */
+    boolean hasPending() {
+        return pending.get() != null;
+    }
+
+    /**
+     * Handlers of one event class, elements from 0 to size are valid.
+     * Positions are indexed by open addressing table of ints with linear probing,
+     * so there is no boxing and no entry objects.
+     */
+    static final class Subscribers {
+
+        WeakHandler[] handlers = EMPTY;
+
+        int size;
+
+        volatile int count;
+
+        /**
+         * Position in handlers plus one, zero marks free slot. Length is power of two at least twice size.
+         */
+        private int[] table = new int[8];
+
+        private void add(WeakHandler wh) {
+            if (find(wh) >= 0) {
+                return;
+            }
+            if (size == handlers.length) {
+                handlers = Arrays.copyOf(handlers, Math.max(4, size * 2));
+            }
+            if ((size + 1) * 2 > table.length) {
+                rehash(table.length * 2);
+            }
+            handlers[size] = wh;
+            insert(wh, size);
+            size++;
+            count = size;
+        }
+
+        private WeakHandler remove(WeakHandler wh) {
+            int slot = find(wh);
+            if (slot < 0) {
+                return null;
+            }
+            int i = table[slot] - 1;
+            delete(slot);
+            WeakHandler found = handlers[i];
+            int last = --size;
+            if (i != last) {
+                handlers[i] = handlers[last];
+                table[find(handlers[i])] = i + 1;
+            }
+            handlers[last] = null;
+            if (handlers.length > 16 && size < handlers.length / 4) {
+                handlers = Arrays.copyOf(handlers, handlers.length / 2);
+                rehash(Math.max(8, table.length / 2));
+            }
+            count = size;
+            return found;
+        }
+
+        /**
+         * @return Table slot of handler or -1
+         */
+        private int find(WeakHandler wh) {
+            int mask = table.length - 1;
+            for (int slot = spread(wh.hashCode()) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                WeakHandler h = handlers[table[slot] - 1];
+                if (h == wh || h.equals(wh)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private void insert(WeakHandler wh, int position) {
+            int mask = table.length - 1;
+            int slot = spread(wh.hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = position + 1;
+        }
+
+        /**
+         * Free slot and shift following entries of the probe run back, so lookups need no tombstones.
+         */
+        private void delete(int slot) {
+            int mask = table.length - 1;
+            int free = slot;
+            for (int next = (free + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+                int home = spread(handlers[table[next] - 1].hashCode()) & mask;
+                // Move entry if its home slot is not within (free, next]
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    table[free] = table[next];
+                    free = next;
+                }
+            }
+            table[free] = 0;
+        }
+
+        private void rehash(int length) {
+            table = new int[length];
+            for (int i = 0; i < size; i++) {
+                insert(handlers[i], i);
+            }
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private static class Op {
+
+        final WeakHandler handler;
+
+        final boolean add;
+
+        Op next;
+
+        Op(WeakHandler handler, boolean add) {
+            this.handler = handler;
+            this.add = add;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Hashed hierarchical timing wheel.
+ * Level 0 has one slot per tick, each next level slot covers whole previous level.
+ * When lower level wraps around, timeouts from appropriate upper level slot are moved down,
+ * so each timeout is touched at most once per level.
+ *
+ * Scheduling and cancellation can be called from any thread and are O(1): they only
+ * put timeout into lock free queue. All other work is done in {@link #advance} which
+ * should be called periodically from one owner thread only (bus dispatcher).
+ */
+class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    private static final int MASK = SLOTS - 1;
+
+    private static final int LEVELS = 5;
+
+    /**
+     * Deadline can not be farther than this count of ticks, farther timeouts will be
+     * re-inserted when they reach top level slot.
+     */
+    private static final long MAX_SPAN = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickNanos;
+
+    private final Consumer<T> expired;
+
+    private final LongSupplier clock;
+
+    private final Timeout<T>[][] wheel = new Timeout[LEVELS][SLOTS];
+
+    private final Queue<Timeout<T>> scheduled = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timeout<T>> cancelled = new ConcurrentLinkedQueue<>();
+
+    private final long startNanos;
+
+    private long currentTick;
+
+    private volatile int size;
+
+    /**
+     * @param tickNanos Wheel resolution
+     * @param expired Will be called from owner thread for each expired item
+     */
+    TimingWheel(long tickNanos, Consumer<T> expired) {
+        this(tickNanos, expired, System::nanoTime);
+    }
+
+    /**
+     * @param tickNanos Wheel resolution
+     * @param expired Will be called from owner thread for each expired item
+     * @param clock Time source in nanoseconds, same as used for {@link #advance}
+     */
+    TimingWheel(long tickNanos, Consumer<T> expired, LongSupplier clock) {
+        this.tickNanos = tickNanos;
+        this.expired = expired;
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+    }
+
+    /**
+     * Schedule item, can be called from any thread.
+     * Deadline is computed relative to wheel start, so any delay is safe:
+     * huge delays are saturated instead of overflowing into the past.
+     *
+     * @param item Item to pass to consumer on expiration
+     * @param delayNanos Delay from now, item expires as soon as possible if not positive
+     */
+    Timeout<T> schedule(T item, long delayNanos) {
+        long elapsed = Math.max(0, clock.getAsLong() - startNanos);
+        long delay = Math.max(0, delayNanos);
+        long deadline = delay >= Long.MAX_VALUE - elapsed - tickNanos
+            ? Long.MAX_VALUE
+            : (elapsed + delay + tickNanos - 1) / tickNanos;
+        Timeout<T> t = new Timeout<>(this, item, deadline);
+        scheduled.add(t);
+        return t;
+    }
+
+    /**
+     * True if there is no scheduled items. Can be called from any thread, result is approximate.
+     */
+    boolean isEmpty() {
+        return size == 0 && scheduled.isEmpty();
+    }
+
+    /**
+     * Move wheel to current time and fire expired items. Owner thread only.
+     */
+    void advance(long nowNanos) {
+        Timeout<T> t;
+        while ((t = cancelled.poll()) != null) {
+            if (t.level >= 0) {
+                unlink(t);
+            }
+        }
+        while ((t = scheduled.poll()) != null) {
+            if (t.state == Timeout.PENDING) {
+                insert(t);
+            }
+        }
+
+        long nowTick = (nowNanos - startNanos) / tickNanos;
+        if (size == 0) {
+            currentTick = Math.max(currentTick, nowTick);
+            return;
+        }
+        while (currentTick < nowTick) {
+            currentTick++;
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                cascade(level, (int)(currentTick >>> (SLOT_BITS * level)) & MASK);
+            }
+            fire((int)currentTick & MASK);
+            if (size == 0) {
+                currentTick = nowTick;
+            }
+        }
+    }
+
+    private void insert(Timeout<T> t) {
+        long delta = t.deadline - currentTick;
+        if (delta <= 0) {
+            expire(t);
+            return;
+        }
+
+        long tick = delta > MAX_SPAN ? currentTick + MAX_SPAN : t.deadline;
+        int level = 0;
+        while (level < LEVELS - 1 && (tick >>> (SLOT_BITS * (level + 1))) != (currentTick >>> (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int)(tick >>> (SLOT_BITS * level)) & MASK;
+        t.level = level;
+        t.slot = slot;
+        t.next = wheel[level][slot];
+        if (t.next != null) {
+            t.next.prev = t;
+        }
+        wheel[level][slot] = t;
+        size++;
+    }
+
+    private void unlink(Timeout<T> t) {
+        if (t.prev == null) {
+            wheel[t.level][t.slot] = t.next;
+        } else {
+            t.prev.next = t.next;
+        }
+        if (t.next != null) {
+            t.next.prev = t.prev;
+        }
+        t.prev = null;
+        t.next = null;
+        t.level = -1;
+        size--;
+    }
+
+    private void cascade(int level, int slot) {
+        Timeout<T> t = wheel[level][slot];
+        wheel[level][slot] = null;
+        while (t != null) {
+            Timeout<T> next = t.next;
+            t.prev = null;
+            t.next = null;
+            t.level = -1;
+            size--;
+            insert(t);
+            t = next;
+        }
+    }
+
+    private void fire(int slot) {
+        Timeout<T> t = wheel[0][slot];
+        wheel[0][slot] = null;
+        while (t != null) {
+            Timeout<T> next = t.next;
+            t.prev = null;
+            t.next = null;
+            t.level = -1;
+            size--;
+            expire(t);
+            t = next;
+        }
+    }
+
+    private void expire(Timeout<T> t) {
+        if (Timeout.STATE.compareAndSet(t, Timeout.PENDING, Timeout.EXPIRED)) {
+            expired.accept(t.item);
+        }
+    }
+
+    /**
+     * Intrusive wheel list node which is also user handle.
+     */
+    static class Timeout<T> implements ScheduledEvent {
+
+        static final int PENDING = 0;
+
+        static final int CANCELLED = 1;
+
+        static final int EXPIRED = 2;
+
+        static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel<T> owner;
+
+        final T item;
+
+        final long deadline;
+
+        volatile int state = PENDING;
+
+        Timeout<T> prev;
+
+        Timeout<T> next;
+
+        int level = -1;
+
+        int slot;
+
+        Timeout(TimingWheel<T> owner, T item, long deadline) {
+            this.owner = owner;
+            this.item = item;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                owner.cancelled.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        @Override
+        public boolean isPublished() {
+            return state == EXPIRED;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+/**
+ * Trace identifiers of sampled event.
+ * Correlation id is shared by whole cascade of events started from one sampled root event,
+ * causation id is id of event which handler published current event.
+ */
+public final class TraceContext {
+
+    final EventTracer tracer;
+
+    private final long correlationId;
+
+    private final long eventId;
+
+    private final long causationId;
+
+    TraceContext(EventTracer tracer, long correlationId, long eventId, long causationId) {
+        this.tracer = tracer;
+        this.correlationId = correlationId;
+        this.eventId = eventId;
+        this.causationId = causationId;
+    }
+
+    /**
+     * @return Id of root event of this cascade
+     */
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    /**
+     * @return Id of this event
+     */
+    public long getEventId() {
+        return eventId;
+    }
+
+    /**
+     * @return Id of event which caused this event or 0 for root event
+     */
+    public long getCausationId() {
+        return causationId;
+    }
+
+    @Override
+    public String toString() {
+        return "TraceContext{correlation " + correlationId + ", event " + eventId + ", causation " + causationId + "}";
+    }
+}
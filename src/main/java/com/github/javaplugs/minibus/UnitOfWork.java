@@ -0,0 +1,201 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread bound scope which buffers published events.
+ * While unit of work is open on current thread, events published to {@link EventBusAsync}
+ * or {@link EventBusSimple} from this thread are kept locally. On {@link #commit()} they are
+ * passed to each bus as one batch with {@link EventBus#publishAll}, on {@link #rollback()}
+ * they are discarded. Buses get their batches in order of first event buffered for them.
+ *
+ * <pre>
+ * try (UnitOfWork uow = UnitOfWork.begin()) {
+ *     eventBus.publish(event1);
+ *     eventBus.publish(event2);
+ *     uow.commit();
+ * } // not committed unit is rolled back on close
+ * </pre>
+ *
+ * Units can be nested, commit of inner unit moves its events to outer one.
+ */
+public final class UnitOfWork implements AutoCloseable {
+
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    /**
+     * Count of open units in all threads, so publishing does not touch thread local
+     * when there are none.
+     */
+    private static final AtomicInteger open = new AtomicInteger();
+
+    private final UnitOfWork outer;
+
+    private final Thread owner = Thread.currentThread();
+
+    private final Map<EventBus, List<EventBusEvent>> buffered = new LinkedHashMap<>(4);
+
+    private int size;
+
+    private boolean finished;
+
+    private UnitOfWork(UnitOfWork outer) {
+        this.outer = outer;
+    }
+
+    /**
+     * Open new unit of work bound to current thread.
+     */
+    public static UnitOfWork begin() {
+        UnitOfWork uow = new UnitOfWork(current.get());
+        current.set(uow);
+        open.incrementAndGet();
+        return uow;
+    }
+
+    /**
+     * @return Innermost unit of work open on current thread or null
+     */
+    public static UnitOfWork current() {
+        return open.get() == 0 ? null : current.get();
+    }
+
+    /**
+     * @return Count of buffered events
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Close unit and publish buffered events.
+     * Failure of one bus does not stop publishing to others, first failure is thrown
+     * after all buses got their events, with later ones added as suppressed.
+     *
+     * @throws RuntimeException First failure of {@link EventBus#publishAll}
+     */
+    public void commit() {
+        finish();
+        if (outer != null) {
+            buffered.forEach((bus, events) -> outer.add(bus, events));
+            buffered.clear();
+            return;
+        }
+        RuntimeException failure = null;
+        for (Map.Entry<EventBus, List<EventBusEvent>> e : buffered.entrySet()) {
+            try {
+                e.getKey().publishAll(e.getValue());
+            } catch (RuntimeException ex) {
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        buffered.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Close unit and discard buffered events.
+     */
+    public void rollback() {
+        finish();
+        buffered.clear();
+    }
+
+    /**
+     * Rollback unit if it was not committed.
+     */
+    @Override
+    public void close() {
+        if (!finished) {
+            rollback();
+        }
+    }
+
+    private void finish() {
+        if (finished) {
+            throw new IllegalStateException("Unit of work is already finished");
+        }
+        if (Thread.currentThread() != owner || current.get() != this) {
+            throw new IllegalStateException("Unit of work can be finished only by innermost scope of owner thread");
+        }
+        finished = true;
+        if (outer == null) {
+            current.remove();
+        } else {
+            current.set(outer);
+        }
+        open.decrementAndGet();
+    }
+
+    private void add(EventBus bus, Collection<? extends EventBusEvent> events) {
+        buffered.computeIfAbsent(bus, b -> new ArrayList<>()).addAll(events);
+        size += events.size();
+    }
+
+    /**
+     * Buffer event if unit of work is open on current thread.
+     *
+     * @return True if event was buffered and should not be published now
+     */
+    static boolean buffer(EventBus bus, EventBusEvent event) {
+        UnitOfWork uow = current();
+        if (uow == null) {
+            return false;
+        }
+        uow.buffered.computeIfAbsent(bus, b -> new ArrayList<>()).add(event);
+        uow.size++;
+        return true;
+    }
+
+    /**
+     * Buffer events if unit of work is open on current thread.
+     *
+     * @return True if events were buffered and should not be published now
+     */
+    static boolean buffer(EventBus bus, Collection<? extends EventBusEvent> events) {
+        UnitOfWork uow = current();
+        if (uow == null) {
+            return false;
+        }
+        uow.add(bus, events);
+        return true;
+    }
+}
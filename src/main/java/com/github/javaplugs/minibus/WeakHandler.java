@@ -25,6 +25,7 @@ package com.github.javaplugs.minibus;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.concurrent.Executor;
 
 /**
  * Provide weak link wrapper for handler class and expose some generic handlers methods.
@@ -35,16 +36,52 @@ class WeakHandler<H extends EventBusHandler> extends WeakReference<H> {
 
     private final Class handlerTypeClass;
 
+    private final boolean canHandlePure;
+
+    private Executor executor;
+
+    private HandlerCost cost;
+
     WeakHandler(H handler, ReferenceQueue q) {
         super(handler, q);
         hash = handler.hashCode();
         handlerTypeClass = handler.getTypeClass();
+        canHandlePure = handlerTypeClass == null && handler.isCanHandlePure();
     }
 
     public Class getHandlerTypeClass() {
         return handlerTypeClass;
     }
 
+    /**
+     * True if handler is subscribed using {@link EventBusHandler#canHandle} which result can be cached.
+     */
+    public boolean isCanHandlePure() {
+        return canHandlePure;
+    }
+
+    /**
+     * Executor from {@link HandlerAffinity} or null if handler is run by bus executor.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Cost estimate used by {@link EventBusHybrid}, created lazily by dispatcher thread.
+     */
+    HandlerCost getCost() {
+        return cost;
+    }
+
+    void setCost(HandlerCost cost) {
+        this.cost = cost;
+    }
+
     @Override
     public int hashCode() {
         return hash;
@@ -61,12 +98,10 @@ class WeakHandler<H extends EventBusHandler> extends WeakReference<H> {
 
         Object t = this.get();
         Object u = ((WeakHandler)obj).get();
-        if (t == u) {
-            return true;
-        }
+        // Collected handlers are equal only to the same reference
         if (t == null || u == null) {
             return false;
         }
-        return t.equals(u);
+        return t == u || t.equals(u);
     }
 }
@@ -0,0 +1,371 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handler which aggregates events of one class in time windows and publishes result event
+ * for each key when window closes.
+ *
+ * <pre>
+ * WindowAggregator&lt;OrderEvent&gt; orders = WindowAggregator.sliding(OrderEvent.class, 10, 1, TimeUnit.SECONDS)
+ *     .withKey(e -&gt; e.region)
+ *     .withValue(e -&gt; e.amount)
+ *     .withQuantiles(0.5, 0.99);
+ * orders.start(eventBus, OrderStats::new);
+ * </pre>
+ *
+ * Tumbling window is sliding window with step equal to size. Sliding window is split
+ * into panes of step length, so each event updates one pane and panes are merged on close.
+ * Pane state is primitive counters plus optional quantile sketch, updating it does not allocate.
+ * Infinite and NaN values are not aggregated, they are counted in {@link WindowResult#getInvalid()}.
+ * Windows are based on arrival time and aligned to step boundaries of wall clock.
+ *
+ * Started aggregator is referenced by timer, so it stays subscribed until {@link #stop()}.
+ */
+public class WindowAggregator<E extends EventBusEvent> extends EventBusHandler<E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(WindowAggregator.class);
+
+    private final Class<E> cls;
+
+    private final long stepMillis;
+
+    private final int panes;
+
+    private Function<? super E, ?> key;
+
+    private ToDoubleFunction<? super E> value;
+
+    private double[] quantiles = new double[0];
+
+    private double accuracy = 0.01;
+
+    private final Map<Object, Pane[]> state = new HashMap<>();
+
+    private int current;
+
+    private long closes;
+
+    private long firstEnd;
+
+    private EventBus bus;
+
+    private Function<WindowResult, ? extends EventBusEvent> result;
+
+    private ScheduledFuture<?> task;
+
+    private WindowAggregator(Class<E> cls, long stepMillis, int panes) {
+        this.cls = Objects.requireNonNull(cls);
+        this.stepMillis = stepMillis;
+        this.panes = panes;
+    }
+
+    /**
+     * Create aggregator with non overlapping windows.
+     */
+    public static <E extends EventBusEvent> WindowAggregator<E> tumbling(Class<E> cls, long size, TimeUnit unit) {
+        return sliding(cls, size, size, unit);
+    }
+
+    /**
+     * Create aggregator with window of provided size closed every step.
+     *
+     * @param size Window length
+     * @param step How often window closes, size should be multiple of step
+     */
+    public static <E extends EventBusEvent> WindowAggregator<E> sliding(Class<E> cls, long size, long step,
+        TimeUnit unit) {
+        long stepMillis = unit.toMillis(step);
+        long sizeMillis = unit.toMillis(size);
+        if (stepMillis <= 0 || sizeMillis < stepMillis || sizeMillis % stepMillis != 0) {
+            throw new IllegalArgumentException("Window size should be positive multiple of step");
+        }
+        return new WindowAggregator<>(cls, stepMillis, (int)(sizeMillis / stepMillis));
+    }
+
+    /**
+     * Aggregate events separately for each key. Key objects should be stable,
+     * as they are used as hash map keys.
+     */
+    public WindowAggregator<E> withKey(Function<? super E, ?> key) {
+        this.key = key;
+        return this;
+    }
+
+    /**
+     * Value to compute sum, min, max and quantiles of. Without value function only count is computed.
+     */
+    public WindowAggregator<E> withValue(ToDoubleFunction<? super E> value) {
+        this.value = value;
+        return this;
+    }
+
+    /**
+     * Compute approximate quantiles of value.
+     *
+     * @param levels Quantile levels from 0 to 1
+     */
+    public WindowAggregator<E> withQuantiles(double... levels) {
+        for (double q : levels) {
+            if (q < 0 || q > 1) {
+                throw new IllegalArgumentException("Quantile level should be between 0 and 1: " + q);
+            }
+        }
+        this.quantiles = levels.clone();
+        return this;
+    }
+
+    /**
+     * Relative error of quantiles, 0.01 by default.
+     *
+     * @param relativeAccuracy Error greater than 0 and less than 1
+     */
+    public WindowAggregator<E> withAccuracy(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy should be between 0 and 1: " + relativeAccuracy);
+        }
+        this.accuracy = relativeAccuracy;
+        return this;
+    }
+
+    /**
+     * Subscribe to bus and publish result events to it on each window close.
+     *
+     * @param bus Event bus
+     * @param result Factory of result events, can return null to skip publishing
+     */
+    public synchronized void start(EventBus bus, Function<WindowResult, ? extends EventBusEvent> result) {
+        if (task != null) {
+            throw new IllegalStateException("Aggregator is already started");
+        }
+        if (quantiles.length > 0 && value == null) {
+            throw new IllegalStateException("Quantiles require value function");
+        }
+        this.bus = bus;
+        this.result = result;
+        long now = System.currentTimeMillis();
+        long delay = stepMillis - now % stepMillis;
+        firstEnd = now + delay;
+        closes = 0;
+        bus.subscribe(this);
+        task = Timer.executor.scheduleAtFixedRate(this::close, delay, stepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Unsubscribe and stop publishing results. Data of not closed windows is dropped.
+     */
+    public synchronized void stop() {
+        if (task == null) {
+            return;
+        }
+        task.cancel(false);
+        task = null;
+        bus.unsubscribe(this);
+        state.clear();
+    }
+
+    @Override
+    Class<E> getTypeClass() {
+        return cls;
+    }
+
+    @Override
+    public void handleEvent(EventBusEvent event) {
+        handle(cls.cast(event));
+    }
+
+    @Override
+    void handle(E event) {
+        Object k = key == null ? null : key.apply(event);
+        double v = value == null ? 0 : value.applyAsDouble(event);
+        synchronized (this) {
+            Pane[] ps = state.get(k);
+            if (ps == null) {
+                ps = new Pane[panes];
+                for (int i = 0; i < panes; i++) {
+                    ps[i] = new Pane(quantiles.length > 0 ? new QuantileSketch(accuracy) : null);
+                }
+                state.put(k, ps);
+            }
+            ps[current].add(v, value != null);
+        }
+    }
+
+    private void close() {
+        List<WindowResult> results;
+        try {
+            results = closeWindow();
+        } catch (Throwable th) {
+            logger.error("Window close fail for " + cls.getSimpleName() + ". " + th.getMessage(), th);
+            return;
+        }
+        for (WindowResult r : results) {
+            try {
+                EventBusEvent ev = result.apply(r);
+                if (ev != null) {
+                    bus.publish(ev);
+                }
+            } catch (Throwable th) {
+                logger.error("Window result publishing fail for " + cls.getSimpleName() + ". " + th.getMessage(), th);
+            }
+        }
+    }
+
+    synchronized List<WindowResult> closeWindow() {
+        if (task == null) {
+            return new ArrayList<>(0);
+        }
+        long end = firstEnd + closes++ * stepMillis;
+        long start = end - panes * stepMillis;
+        List<WindowResult> results = new ArrayList<>(state.size());
+        Pane merged = new Pane(quantiles.length > 0 ? new QuantileSketch(accuracy) : null);
+        int next = (current + 1) % panes;
+        for (Iterator<Map.Entry<Object, Pane[]>> it = state.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Object, Pane[]> e = it.next();
+            Pane[] ps = e.getValue();
+            merged.clear();
+            for (Pane p : ps) {
+                merged.merge(p);
+            }
+            if (merged.count > 0 || merged.invalid > 0) {
+                double[] qs = new double[quantiles.length];
+                for (int i = 0; i < qs.length; i++) {
+                    qs[i] = merged.sketch.quantile(quantiles[i]);
+                }
+                results.add(new WindowResult(e.getKey(), start, end, merged.count, merged.invalid,
+                    merged.sum, merged.min, merged.max, quantiles, qs));
+            }
+            // Oldest pane becomes current one
+            ps[next].clear();
+            if (isEmpty(ps)) {
+                it.remove();
+            }
+        }
+        current = next;
+        return results;
+    }
+
+    synchronized int getKeyCount() {
+        return state.size();
+    }
+
+    private static boolean isEmpty(Pane[] ps) {
+        for (Pane p : ps) {
+            if (p.count > 0 || p.invalid > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Aggregates of one key for one step.
+     */
+    private static class Pane {
+
+        long count;
+
+        long invalid;
+
+        double sum;
+
+        double min = Double.NaN;
+
+        double max = Double.NaN;
+
+        final QuantileSketch sketch;
+
+        Pane(QuantileSketch sketch) {
+            this.sketch = sketch;
+        }
+
+        void add(double v, boolean hasValue) {
+            if (!hasValue) {
+                count++;
+                return;
+            }
+            if (!Double.isFinite(v)) {
+                // Infinity or NaN would break sum, min, max and sketch of whole window
+                invalid++;
+                return;
+            }
+            count++;
+            sum += v;
+            min = count == 1 || v < min ? v : min;
+            max = count == 1 || v > max ? v : max;
+            if (sketch != null) {
+                sketch.add(v);
+            }
+        }
+
+        void merge(Pane p) {
+            invalid += p.invalid;
+            if (p.count == 0) {
+                return;
+            }
+            min = count == 0 || p.min < min ? p.min : min;
+            max = count == 0 || p.max > max ? p.max : max;
+            count += p.count;
+            sum += p.sum;
+            if (sketch != null) {
+                sketch.merge(p.sketch);
+            }
+        }
+
+        void clear() {
+            count = 0;
+            invalid = 0;
+            sum = 0;
+            min = Double.NaN;
+            max = Double.NaN;
+            if (sketch != null) {
+                sketch.clear();
+            }
+        }
+    }
+
+    private static class Timer {
+
+        static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread th = new Thread(r, "EventBus window timer");
+            th.setDaemon(true);
+            return th;
+        });
+    }
+}
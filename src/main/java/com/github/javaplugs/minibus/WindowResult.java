@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus;
+
+/**
+ * Aggregates of one key for one closed window of {@link WindowAggregator}.
+ */
+public final class WindowResult {
+
+    private final Object key;
+
+    private final long windowStart;
+
+    private final long windowEnd;
+
+    private final long count;
+
+    private final long invalid;
+
+    private final double sum;
+
+    private final double min;
+
+    private final double max;
+
+    private final double[] quantileLevels;
+
+    private final double[] quantiles;
+
+    WindowResult(Object key, long windowStart, long windowEnd, long count, long invalid, double sum, double min,
+        double max, double[] quantileLevels, double[] quantiles) {
+        this.key = key;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.count = count;
+        this.invalid = invalid;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.quantileLevels = quantileLevels;
+        this.quantiles = quantiles;
+    }
+
+    /**
+     * @return Key of aggregated events or null if aggregator has no key function
+     */
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * @return Window start in milliseconds since epoch
+     */
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * @return Window end (exclusive) in milliseconds since epoch
+     */
+    public long getWindowEnd() {
+        return windowEnd;
+    }
+
+    /**
+     * @return Count of events included into aggregates
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Count of events skipped because their value was infinite or NaN
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return Minimal value or NaN if there were no events
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return Maximal value or NaN if there were no events
+     */
+    public double getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Return approximate quantile, level must be one of levels configured in aggregator.
+     *
+     * @param level Quantile level from 0 to 1, for example 0.99
+     */
+    public double getQuantile(double level) {
+        for (int i = 0; i < quantileLevels.length; i++) {
+            if (quantileLevels[i] == level) {
+                return quantiles[i];
+            }
+        }
+        throw new IllegalArgumentException("Quantile " + level + " is not computed by aggregator");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("WindowResult{key=").append(key)
+            .append(", window=").append(windowStart).append("..").append(windowEnd)
+            .append(", count=").append(count).append(", invalid=").append(invalid).append(", sum=").append(sum)
+            .append(", min=").append(min).append(", max=").append(max);
+        for (int i = 0; i < quantileLevels.length; i++) {
+            sb.append(", q").append(quantileLevels[i]).append('=').append(quantiles[i]);
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -24,7 +24,6 @@
 package com.github.javaplugs.minibus.old;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -33,6 +32,8 @@ import java.util.Optional;
  * MUTABLE Event (or message) object that passed from publisher to consumer.
  * Be aware of possible message values mutability, do not try to edit this values in consumer.
  * Each event may contain key-value(object) map.
+ * Properties are stored in compact form: events with the same keys share one keys schema
+ * and Integer, Long, Double values are kept unboxed.
  *
  * Keep in mind that Event is not serializable because it should be used only in one active instance.
  */
@@ -41,7 +42,7 @@ public class Event {
 
     private final String type;
 
-    private final Map<String, Object> properties = new HashMap<>(8);
+    private final EventProperties properties = new EventProperties();
 
     private boolean locked;
 
@@ -62,7 +63,7 @@ public class Event {
      */
     public Event(String type, Map<String, Object> properties) {
         this.type = Objects.requireNonNull(type);;
-        this.properties.putAll(Objects.requireNonNull(properties));
+        Objects.requireNonNull(properties).forEach(this.properties::put);
     }
 
     /**
@@ -88,14 +89,20 @@ public class Event {
      * Return true if event has any properties (key-value maps is not empty).
      */
     public boolean hasProperties() {
-        return properties.isEmpty();
+        return properties.size() == 0;
+    }
+
+    EventProperties getProperties() {
+        return properties;
     }
 
     /**
      * Return all keys associated with key-value properties of current event.
+     * Keys are in order they were first set. Returned list is unmodifiable
+     * and is not updated by later {@code set} calls, unlike live key set returned by earlier versions.
      */
     public Collection<String> getKeys() {
-        return properties.keySet();
+        return properties.keys();
     }
 
     /**
@@ -110,6 +117,42 @@ public class Event {
         properties.put(key, value);
     }
 
+    /**
+     * Associate int property value with event without boxing.
+     *
+     * @param key Property key
+     * @param value Property value
+     * @throws UnsupportedOperationException If this method will be called during event processing
+     */
+    public void setInt(String key, int value) throws UnsupportedOperationException {
+        isLocked();
+        properties.putInt(key, value);
+    }
+
+    /**
+     * Associate long property value with event without boxing.
+     *
+     * @param key Property key
+     * @param value Property value
+     * @throws UnsupportedOperationException If this method will be called during event processing
+     */
+    public void setLong(String key, long value) throws UnsupportedOperationException {
+        isLocked();
+        properties.putLong(key, value);
+    }
+
+    /**
+     * Associate double property value with event without boxing.
+     *
+     * @param key Property key
+     * @param value Property value
+     * @throws UnsupportedOperationException If this method will be called during event processing
+     */
+    public void setDouble(String key, double value) throws UnsupportedOperationException {
+        isLocked();
+        properties.putDouble(key, value);
+    }
+
     /**
      * Return message property value casted to class if any.
      *
@@ -175,4 +218,36 @@ public class Event {
         String str = getString(key);
         return str == null ? defaultValue : str;
     }
+
+    /**
+     * Return Integer property value without boxing or default value.
+     *
+     * @param key Property key
+     * @return Value or default value if there is no Integer value for key
+     */
+    public int getIntOr(String key, int defaultValue) {
+        return properties.kind(key) == EventProperties.INT ? (int)properties.getPrimitive(key) : defaultValue;
+    }
+
+    /**
+     * Return Long property value without boxing or default value.
+     *
+     * @param key Property key
+     * @return Value or default value if there is no Long value for key
+     */
+    public long getLongOr(String key, long defaultValue) {
+        return properties.kind(key) == EventProperties.LONG ? properties.getPrimitive(key) : defaultValue;
+    }
+
+    /**
+     * Return Double property value without boxing or default value.
+     *
+     * @param key Property key
+     * @return Value or default value if there is no Double value for key
+     */
+    public double getDoubleOr(String key, double defaultValue) {
+        return properties.kind(key) == EventProperties.DOUBLE
+            ? Double.longBitsToDouble(properties.getPrimitive(key))
+            : defaultValue;
+    }
 }
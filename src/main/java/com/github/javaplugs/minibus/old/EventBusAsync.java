@@ -52,6 +52,10 @@ public class EventBusAsync<E extends Event> implements EventBus<E> {
 
     private final Set<WeakHandler> handlers = Collections.newSetFromMap(new ConcurrentHashMap<WeakHandler, Boolean>());
 
+    private final TopicTrie topics = new TopicTrie();
+
+    private final PropertyIndex properties = new PropertyIndex();
+
     private final ExecutorService handlersExecutor;
 
     /**
@@ -75,12 +79,29 @@ public class EventBusAsync<E extends Event> implements EventBus<E> {
 
     @Override
     public void subscribe(EventHandler<E> subscriber) {
-        handlers.add(new WeakHandler(subscriber, gcQueue));
+        WeakHandler wh = new WeakHandler(subscriber, gcQueue);
+        if (wh.getConditions() != null) {
+            properties.add(wh);
+        } else if (wh.getPattern() == null) {
+            handlers.add(wh);
+        } else {
+            topics.add(wh);
+        }
     }
 
     @Override
     public void unsubscribe(EventHandler<E> subscriber) {
-        handlers.remove(new WeakHandler(subscriber, gcQueue));
+        removeHandler(new WeakHandler(subscriber, gcQueue));
+    }
+
+    private void removeHandler(WeakHandler wh) {
+        if (wh.getConditions() != null) {
+            properties.remove(wh);
+        } else if (wh.getPattern() == null) {
+            handlers.remove(wh);
+        } else {
+            topics.remove(wh);
+        }
     }
 
     @Override
@@ -101,7 +122,7 @@ public class EventBusAsync<E extends Event> implements EventBus<E> {
         while (true) {
             WeakHandler wh;
             while ((wh = (WeakHandler)gcQueue.poll()) != null) {
-                handlers.remove(wh);
+                removeHandler(wh);
             }
 
             E event = eventsQueue.poll();
@@ -112,6 +133,21 @@ public class EventBusAsync<E extends Event> implements EventBus<E> {
     }
 
     private void notifySubscribers(E event) {
+        for (WeakHandler wh : topics.route(event.getType())) {
+            EventHandler eh = wh.get();
+            if (eh == null) {
+                continue;
+            }
+
+            try {
+                handlersExecutor.submit(() -> {
+                    runHandler(eh, event);
+                });
+            } catch (Throwable th) {
+                logger.error("Handler notify fail on event " + event.getType() + ". " + th.getMessage(), th);
+            }
+        }
+
         for (WeakHandler wh : handlers) {
             EventHandler eh = wh.get();
             if (eh == null) {
@@ -119,13 +155,24 @@ public class EventBusAsync<E extends Event> implements EventBus<E> {
             }
 
             try {
-                if (eh.getType() == null) {
-                    if (eh.canHandle(event.getType())) {
-                        handlersExecutor.submit(() -> {
-                            runHandler(eh, event);
-                        });
-                    }
-                } else if (eh.getType().equals(event.getType())) {
+                if (eh.canHandle(event.getType())) {
+                    handlersExecutor.submit(() -> {
+                        runHandler(eh, event);
+                    });
+                }
+            } catch (Throwable th) {
+                logger.error("Handler notify fail on event " + event.getType() + ". " + th.getMessage(), th);
+            }
+        }
+
+        for (WeakHandler wh : properties.match(event)) {
+            EventHandler eh = wh.get();
+            if (eh == null) {
+                continue;
+            }
+
+            try {
+                if (wh.isTypeMatched(eh, event.getType())) {
                     handlersExecutor.submit(() -> {
                         runHandler(eh, event);
                     });
@@ -49,14 +49,35 @@ public class EventBusSimple<E extends Event> implements EventBus<E> {
 
     private final Set<WeakHandler> handlers = Collections.newSetFromMap(new ConcurrentHashMap<WeakHandler, Boolean>());
 
+    private final TopicTrie topics = new TopicTrie();
+
+    private final PropertyIndex properties = new PropertyIndex();
+
     @Override
     public void subscribe(EventHandler<E> subscriber) {
-        handlers.add(new WeakHandler(subscriber, gcQueue));
+        WeakHandler wh = new WeakHandler(subscriber, gcQueue);
+        if (wh.getConditions() != null) {
+            properties.add(wh);
+        } else if (wh.getPattern() == null) {
+            handlers.add(wh);
+        } else {
+            topics.add(wh);
+        }
     }
 
     @Override
     public void unsubscribe(EventHandler<E> subscriber) {
-        handlers.remove(new WeakHandler(subscriber, gcQueue));
+        removeHandler(new WeakHandler(subscriber, gcQueue));
+    }
+
+    private void removeHandler(WeakHandler wh) {
+        if (wh.getConditions() != null) {
+            properties.remove(wh);
+        } else if (wh.getPattern() == null) {
+            handlers.remove(wh);
+        } else {
+            topics.remove(wh);
+        }
     }
 
     @Override
@@ -81,7 +102,7 @@ public class EventBusSimple<E extends Event> implements EventBus<E> {
     private void processEvent(E event) {
         WeakHandler wh;
         while ((wh = (WeakHandler)gcQueue.poll()) != null) {
-            handlers.remove(wh);
+            removeHandler(wh);
         }
         if (event != null) {
             notifySubscribers(event);
@@ -89,6 +110,19 @@ public class EventBusSimple<E extends Event> implements EventBus<E> {
     }
 
     private void notifySubscribers(E event) {
+        for (WeakHandler wh : topics.route(event.getType())) {
+            EventHandler eh = wh.get();
+            if (eh == null) {
+                continue;
+            }
+
+            try {
+                eh.handle(event);
+            } catch (Throwable th) {
+                logger.error("Handler fail on event " + event.getType() + ". " + th.getMessage(), th);
+            }
+        }
+
         for (WeakHandler wh : handlers) {
             EventHandler eh = wh.get();
             if (eh == null) {
@@ -96,11 +130,22 @@ public class EventBusSimple<E extends Event> implements EventBus<E> {
             }
 
             try {
-                if (eh.getType() == null) {
-                    if (eh.canHandle(event.getType())) {
-                        eh.handle(event);
-                    }
-                } else if (eh.getType().equals(event.getType())) {
+                if (eh.canHandle(event.getType())) {
+                    eh.handle(event);
+                }
+            } catch (Throwable th) {
+                logger.error("Handler fail on event " + event.getType() + ". " + th.getMessage(), th);
+            }
+        }
+
+        for (WeakHandler wh : properties.match(event)) {
+            EventHandler eh = wh.get();
+            if (eh == null) {
+                continue;
+            }
+
+            try {
+                if (wh.isTypeMatched(eh, event.getType())) {
                     eh.handle(event);
                 }
             } catch (Throwable th) {
@@ -0,0 +1,295 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus.old;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact storage for {@link Event} properties.
+ * Keys set of event is interned into shared {@link Schema}, so event itself keeps only
+ * reference to schema and flat arrays with values.
+ * Integer, Long and Double values are stored unboxed in primitive slots.
+ *
+ * Like HashMap before it, this class is not thread safe.
+ */
+@Deprecated
+final class EventProperties {
+
+    static final byte OBJECT = 0;
+
+    static final byte INT = 1;
+
+    static final byte LONG = 2;
+
+    static final byte DOUBLE = 3;
+
+    private static final Object[] NO_REFS = new Object[0];
+
+    private static final long[] NO_PRIMS = new long[0];
+
+    private Schema schema = Schema.EMPTY;
+
+    private Object[] refs = NO_REFS;
+
+    private long[] prims = NO_PRIMS;
+
+    int size() {
+        return schema.keys.length;
+    }
+
+    List<String> keys() {
+        return schema.keyList;
+    }
+
+    void put(String key, Object value) {
+        if (value instanceof Integer) {
+            putInt(key, (Integer)value);
+        } else if (value instanceof Long) {
+            putLong(key, (Long)value);
+        } else if (value instanceof Double) {
+            putDouble(key, (Double)value);
+        } else {
+            int slot = slot(key, OBJECT);
+            refs[schema.offsets[slot]] = value;
+        }
+    }
+
+    void putInt(String key, int value) {
+        int slot = slot(key, INT);
+        prims[schema.offsets[slot]] = value;
+    }
+
+    void putLong(String key, long value) {
+        int slot = slot(key, LONG);
+        prims[schema.offsets[slot]] = value;
+    }
+
+    void putDouble(String key, double value) {
+        int slot = slot(key, DOUBLE);
+        prims[schema.offsets[slot]] = Double.doubleToRawLongBits(value);
+    }
+
+    /**
+     * Return kind of value stored for key or -1 if there is no such key.
+     */
+    byte kind(String key) {
+        int slot = schema.indexOf(key);
+        return slot < 0 ? -1 : schema.kinds[slot];
+    }
+
+    /**
+     * Return value for key, primitive values are boxed.
+     */
+    Object get(String key) {
+        int slot = schema.indexOf(key);
+        return slot < 0 ? null : value(slot);
+    }
+
+    String keyAt(int slot) {
+        return schema.keys[slot];
+    }
+
+    byte kindAt(int slot) {
+        return schema.kinds[slot];
+    }
+
+    /**
+     * Return raw primitive value of slot, caller should check {@link #kindAt} first.
+     */
+    long primitiveAt(int slot) {
+        return prims[schema.offsets[slot]];
+    }
+
+    /**
+     * Return value of slot, primitive values are boxed.
+     */
+    Object valueAt(int slot) {
+        return value(slot);
+    }
+
+    /**
+     * Return raw primitive slot for key, caller should check {@link #kind} first.
+     */
+    long getPrimitive(String key) {
+        return prims[schema.offsets[schema.indexOf(key)]];
+    }
+
+    private Object value(int slot) {
+        int offset = schema.offsets[slot];
+        switch (schema.kinds[slot]) {
+            case INT:
+                return (int)prims[offset];
+            case LONG:
+                return prims[offset];
+            case DOUBLE:
+                return Double.longBitsToDouble(prims[offset]);
+            default:
+                return refs[offset];
+        }
+    }
+
+    /**
+     * Find slot for key with appropriate kind, add it to schema if needed.
+     */
+    private int slot(String key, byte kind) {
+        int slot = schema.indexOf(key);
+        if (slot < 0) {
+            return append(key, kind);
+        }
+        if (schema.kinds[slot] == kind) {
+            return slot;
+        }
+
+        // Value kind changed, rare case, so we just rebuild schema keeping keys order
+        Schema old = schema;
+        Object[] oldRefs = refs;
+        long[] oldPrims = prims;
+        schema = Schema.EMPTY;
+        refs = NO_REFS;
+        prims = NO_PRIMS;
+        for (int i = 0; i < old.keys.length; i++) {
+            if (i == slot) {
+                append(key, kind);
+                continue;
+            }
+            int s = append(old.keys[i], old.kinds[i]);
+            if (old.kinds[i] == OBJECT) {
+                refs[schema.offsets[s]] = oldRefs[old.offsets[i]];
+            } else {
+                prims[schema.offsets[s]] = oldPrims[old.offsets[i]];
+            }
+        }
+        return slot;
+    }
+
+    private int append(String key, byte kind) {
+        schema = schema.with(key, kind);
+        if (refs.length < schema.refCount) {
+            refs = Arrays.copyOf(refs, schema.refCount);
+        }
+        if (prims.length < schema.primCount) {
+            prims = Arrays.copyOf(prims, schema.primCount);
+        }
+        return schema.keys.length - 1;
+    }
+
+    /**
+     * Immutable ordered set of keys with value kinds.
+     * Schemas are interned using transitions from parent schema,
+     * so events with the same keys added in the same order share one schema instance.
+     */
+    static final class Schema {
+
+        static final Schema EMPTY = new Schema(new String[0], new byte[0], new int[0], 0, 0);
+
+        /**
+         * Limit for transitions from one schema, protects from unbounded growth
+         * if keys are generated dynamically.
+         */
+        static final int MAX_TRANSITIONS = 64;
+
+        /**
+         * Schemas with more keys use hash index instead of linear scan.
+         */
+        private static final int LINEAR_SCAN_LIMIT = 8;
+
+        final String[] keys;
+
+        final byte[] kinds;
+
+        final int[] offsets;
+
+        final int refCount;
+
+        final int primCount;
+
+        final List<String> keyList;
+
+        private final Map<String, Integer> index;
+
+        private final Map<String, Schema[]> transitions = new ConcurrentHashMap<>(4);
+
+        private Schema(String[] keys, byte[] kinds, int[] offsets, int refCount, int primCount) {
+            this.keys = keys;
+            this.kinds = kinds;
+            this.offsets = offsets;
+            this.refCount = refCount;
+            this.primCount = primCount;
+            this.keyList = Collections.unmodifiableList(Arrays.asList(keys));
+            if (keys.length > LINEAR_SCAN_LIMIT) {
+                index = new HashMap<>(keys.length * 2);
+                for (int i = 0; i < keys.length; i++) {
+                    index.put(keys[i], i);
+                }
+            } else {
+                index = null;
+            }
+        }
+
+        int indexOf(String key) {
+            if (index != null) {
+                Integer i = index.get(key);
+                return i == null ? -1 : i;
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (Objects.equals(keys[i], key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Schema with(String key, byte kind) {
+            Schema[] next = key == null ? null : transitions.get(key);
+            if (next != null && next[kind] != null) {
+                return next[kind];
+            }
+
+            int n = keys.length;
+            String[] k = Arrays.copyOf(keys, n + 1);
+            byte[] kd = Arrays.copyOf(kinds, n + 1);
+            int[] off = Arrays.copyOf(offsets, n + 1);
+            k[n] = key;
+            kd[n] = kind;
+            off[n] = kind == OBJECT ? refCount : primCount;
+            Schema schema = new Schema(k, kd, off,
+                kind == OBJECT ? refCount + 1 : refCount,
+                kind == OBJECT ? primCount : primCount + 1);
+
+            if (key != null && (next != null || transitions.size() < MAX_TRANSITIONS)) {
+                if (next == null) {
+                    next = transitions.computeIfAbsent(key, x -> new Schema[DOUBLE + 1]);
+                }
+                next[kind] = schema;
+            }
+            return schema;
+        }
+    }
+}
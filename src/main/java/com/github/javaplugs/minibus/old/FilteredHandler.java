@@ -0,0 +1,43 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus.old;
+
+/**
+ * Handler that receive only events with properties matching {@link PropertyFilter}.
+ * Event type is still checked using {@link EventHandler#getType()} or {@link EventHandler#canHandle},
+ * or using pattern if handler is also {@link TopicHandler}.
+ * Filters of all subscribed handlers are evaluated by one shared index, so there is no need
+ * to check properties inside {@link EventHandler#handle}.
+ */
+@Deprecated
+public interface FilteredHandler<E extends Event> extends EventHandler<E> {
+
+    /**
+     * Return properties filter for this handler.
+     * Filter is copied into bus index on subscription, so changing it later has no effect.
+     *
+     * @return Properties filter, not null
+     */
+    PropertyFilter getPropertyFilter();
+}
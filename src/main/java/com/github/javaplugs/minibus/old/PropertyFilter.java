@@ -0,0 +1,167 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus.old;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Declarative filter on {@link Event} properties.
+ * All conditions should be satisfied for handler to receive event.
+ * Values are compared using equals method, so keep in mind that Integer 5 and Long 5 are different values.
+ * Ranges are inclusive and apply only to Number values.
+ *
+ * <pre>
+ * PropertyFilter.create()
+ *     .eq("region", "EU")
+ *     .in("tier", "gold", "silver")
+ *     .range("amount", 10, 100);
+ * </pre>
+ */
+@Deprecated
+public class PropertyFilter {
+
+    private final List<Condition> conditions = new ArrayList<>();
+
+    /**
+     * Create empty filter that match any event.
+     */
+    public static PropertyFilter create() {
+        return new PropertyFilter();
+    }
+
+    /**
+     * Property value should be equal to provided one.
+     */
+    public PropertyFilter eq(String key, Object value) {
+        return in(key, Collections.singleton(value));
+    }
+
+    /**
+     * Property value should be equal to one of provided values.
+     */
+    public PropertyFilter in(String key, Object... values) {
+        return in(key, Arrays.asList(values));
+    }
+
+    /**
+     * Property value should be equal to one of provided values.
+     */
+    public PropertyFilter in(String key, Collection<?> values) {
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("Values set for " + key + " can not be empty");
+        }
+        conditions.add(new Condition(key, new HashSet<>(values), 0, 0));
+        return this;
+    }
+
+    /**
+     * Property should be a Number with value between from and to (inclusive).
+     */
+    public PropertyFilter range(String key, double from, double to) {
+        if (from > to) {
+            throw new IllegalArgumentException("Wrong range for " + key + ": " + from + " > " + to);
+        }
+        conditions.add(new Condition(key, null, from, to));
+        return this;
+    }
+
+    /**
+     * Return true if filter has no conditions.
+     */
+    public boolean isEmpty() {
+        return conditions.isEmpty();
+    }
+
+    List<Condition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Check event against this filter without any index.
+     */
+    public boolean matches(Event event) {
+        for (Condition c : conditions) {
+            if (!c.matches(event.get(c.key, Object.class))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return conditions.toString();
+    }
+
+    /**
+     * Single condition on one property, values set for equality or range for numbers.
+     */
+    static class Condition {
+
+        final String key;
+
+        final Set<Object> values;
+
+        final double from;
+
+        final double to;
+
+        Condition(String key, Set<Object> values, double from, double to) {
+            this.key = Objects.requireNonNull(key);
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean isRange() {
+            return values == null;
+        }
+
+        boolean matches(Object value) {
+            if (value == null) {
+                return false;
+            }
+            if (isRange()) {
+                if (!(value instanceof Number)) {
+                    return false;
+                }
+                double v = ((Number)value).doubleValue();
+                return v >= from && v <= to;
+            }
+            return values.contains(value);
+        }
+
+        @Override
+        public String toString() {
+            return isRange() ? key + " in [" + from + ", " + to + "]" : key + " in " + values;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus.old;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared index for handlers subscribed with {@link PropertyFilter}.
+ * It is counting algorithm: each satisfied condition increments counter of its subscription
+ * and subscription match when all its conditions are counted.
+ * Equality conditions are found using hash lookup and ranges of each key are kept in
+ * interval tree, so cost depends on number of satisfied conditions instead of handlers count.
+ * Primitive property values are read without boxing unless key has equality conditions.
+ *
+ * Index is rebuilt on each subscription change and read without locks.
+ */
+@Deprecated
+class PropertyIndex {
+
+    private final Set<WeakHandler> subscribed = new LinkedHashSet<>();
+
+    private final ThreadLocal<Counters> counters = ThreadLocal.withInitial(Counters::new);
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptySet());
+
+    synchronized void add(WeakHandler wh) {
+        if (subscribed.add(wh)) {
+            snapshot = new Snapshot(subscribed);
+        }
+    }
+
+    synchronized void remove(WeakHandler wh) {
+        if (subscribed.remove(wh)) {
+            snapshot = new Snapshot(subscribed);
+        }
+    }
+
+    /**
+     * Return handlers whose filters are satisfied by event properties.
+     * Returned list should not be modified.
+     */
+    List<WeakHandler> match(Event event) {
+        Snapshot s = snapshot;
+        if (s.handlers.length == 0) {
+            return Collections.emptyList();
+        }
+
+        Counters c = counters.get();
+        c.ensure(s.handlers.length);
+        c.found = s.always.isEmpty() ? null : new ArrayList<>(s.always);
+        try {
+            EventProperties props = event.getProperties();
+            for (int slot = 0, n = props.size(); slot < n; slot++) {
+                String key = props.keyAt(slot);
+                Map<Object, int[]> byValue = s.values.get(key);
+                RangeTree ranges = s.ranges.get(key);
+                if (byValue == null && ranges == null) {
+                    continue;
+                }
+
+                byte kind = props.kindAt(slot);
+                if (byValue != null) {
+                    Object value = props.valueAt(slot);
+                    int[] ids = value == null ? null : byValue.get(value);
+                    if (ids != null) {
+                        for (int id : ids) {
+                            c.hit(s, id);
+                        }
+                    }
+                }
+                if (ranges != null) {
+                    double v;
+                    if (kind == EventProperties.INT || kind == EventProperties.LONG) {
+                        v = props.primitiveAt(slot);
+                    } else if (kind == EventProperties.DOUBLE) {
+                        v = Double.longBitsToDouble(props.primitiveAt(slot));
+                    } else {
+                        Object value = props.valueAt(slot);
+                        if (!(value instanceof Number)) {
+                            continue;
+                        }
+                        v = ((Number)value).doubleValue();
+                    }
+                    ranges.find(v, s, c);
+                }
+            }
+            return c.found == null ? Collections.emptyList() : c.found;
+        } finally {
+            c.reset();
+        }
+    }
+
+    private static class Snapshot {
+
+        final WeakHandler[] handlers;
+
+        final int[] required;
+
+        final List<WeakHandler> always = new ArrayList<>();
+
+        final Map<String, Map<Object, int[]>> values = new HashMap<>();
+
+        final Map<String, RangeTree> ranges = new HashMap<>();
+
+        Snapshot(Set<WeakHandler> subscribed) {
+            handlers = subscribed.toArray(new WeakHandler[subscribed.size()]);
+            required = new int[handlers.length];
+
+            Map<String, Map<Object, List<Integer>>> vals = new HashMap<>();
+            Map<String, List<Range>> rngs = new HashMap<>();
+            for (int id = 0; id < handlers.length; id++) {
+                List<PropertyFilter.Condition> conditions = handlers[id].getConditions();
+                required[id] = conditions.size();
+                if (conditions.isEmpty()) {
+                    always.add(handlers[id]);
+                }
+                for (PropertyFilter.Condition c : conditions) {
+                    if (c.isRange()) {
+                        rngs.computeIfAbsent(c.key, k -> new ArrayList<>()).add(new Range(c.from, c.to, id));
+                    } else {
+                        Map<Object, List<Integer>> byValue = vals.computeIfAbsent(c.key, k -> new HashMap<>());
+                        for (Object v : c.values) {
+                            byValue.computeIfAbsent(v, k -> new ArrayList<>()).add(id);
+                        }
+                    }
+                }
+            }
+
+            vals.forEach((key, byValue) -> {
+                Map<Object, int[]> m = new HashMap<>(byValue.size() * 2);
+                byValue.forEach((v, ids) -> m.put(v, ids.stream().mapToInt(Integer::intValue).toArray()));
+                values.put(key, m);
+            });
+            rngs.forEach((key, list) -> ranges.put(key, new RangeTree(list)));
+        }
+    }
+
+    private static class Range {
+
+        final double from;
+
+        final double to;
+
+        final int id;
+
+        Range(double from, double to, int id) {
+            this.from = from;
+            this.to = to;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Static interval tree: ranges sorted by lower bound form implicit balanced tree
+     * where middle element of each subarray is node, and each node keeps max upper bound
+     * of its subtree. Lookup is O(log n + matches).
+     */
+    private static class RangeTree {
+
+        final double[] from;
+
+        final double[] to;
+
+        final int[] ids;
+
+        final double[] maxTo;
+
+        RangeTree(List<Range> list) {
+            Range[] arr = list.toArray(new Range[list.size()]);
+            Arrays.sort(arr, (a, b) -> Double.compare(a.from, b.from));
+            int n = arr.length;
+            from = new double[n];
+            to = new double[n];
+            ids = new int[n];
+            maxTo = new double[n];
+            for (int i = 0; i < n; i++) {
+                from[i] = arr[i].from;
+                to[i] = arr[i].to;
+                ids[i] = arr[i].id;
+            }
+            build(0, n);
+        }
+
+        private double build(int lo, int hi) {
+            if (lo >= hi) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            int mid = (lo + hi) >>> 1;
+            double max = Math.max(to[mid], Math.max(build(lo, mid), build(mid + 1, hi)));
+            maxTo[mid] = max;
+            return max;
+        }
+
+        void find(double v, Snapshot s, Counters c) {
+            find(0, from.length, v, s, c);
+        }
+
+        private void find(int lo, int hi, double v, Snapshot s, Counters c) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (maxTo[mid] < v) {
+                    return;
+                }
+                find(lo, mid, v, s, c);
+                if (from[mid] > v) {
+                    // Right subtree starts even later
+                    return;
+                }
+                if (to[mid] >= v) {
+                    c.hit(s, ids[mid]);
+                }
+                lo = mid + 1;
+            }
+        }
+    }
+
+    /**
+     * Per thread counters, so matching does not allocate arrays for each event.
+     */
+    private static class Counters {
+
+        int[] counts = new int[16];
+
+        int[] touched = new int[16];
+
+        int touchedSize;
+
+        List<WeakHandler> found;
+
+        void ensure(int size) {
+            if (counts.length < size) {
+                counts = new int[size];
+                touched = new int[size];
+            }
+        }
+
+        void hit(Snapshot s, int id) {
+            if (counts[id] == 0) {
+                touched[touchedSize++] = id;
+            }
+            if (++counts[id] == s.required[id]) {
+                if (found == null) {
+                    found = new ArrayList<>(4);
+                }
+                found.add(s.handlers[id]);
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedSize; i++) {
+                counts[touched[i]] = 0;
+            }
+            touchedSize = 0;
+            found = null;
+        }
+    }
+}
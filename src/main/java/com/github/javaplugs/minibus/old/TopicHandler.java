@@ -0,0 +1,51 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus.old;
+
+/**
+ * Handler that declare event types it is interested in using {@link TopicPattern}.
+ * Event buses index such handlers, so {@link EventHandler#canHandle(java.lang.String)}
+ * is not called for each event.
+ */
+@Deprecated
+public interface TopicHandler<E extends Event> extends EventHandler<E> {
+
+    /**
+     * Return pattern for event types that should be handled by this handler.
+     * Result should not change while handler is subscribed.
+     *
+     * @return Topic pattern, not null
+     */
+    TopicPattern getTopicPattern();
+
+    @Override
+    default String getType() {
+        return null;
+    }
+
+    @Override
+    default boolean canHandle(String eventType) {
+        return getTopicPattern().matches(eventType);
+    }
+}
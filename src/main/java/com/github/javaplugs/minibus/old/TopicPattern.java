@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus.old;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Declarative hierarchical pattern for event types.
+ * Event type is treated as a topic split into segments by '.' character.
+ * Supported forms:
+ * <ul>
+ *     <li>exact - {@code "USER_CREATED"} matches only the same type</li>
+ *     <li>prefix - {@code "USER_#"} matches any type starting with "USER_"</li>
+ *     <li>wildcard segments - {@code "order.*.created"} where '*' matches exactly one non empty segment</li>
+ * </ul>
+ * Forms can be combined, e.g. {@code "order.*.#"}.
+ * Patterns are indexed by event bus, so routing cost depends on topic length but not on handlers count.
+ */
+@Deprecated
+public final class TopicPattern {
+
+    /**
+     * Segments separator.
+     */
+    public static final char SEPARATOR = '.';
+
+    private static final String WILDCARD = "*";
+
+    private static final String PREFIX = "#";
+
+    private final String pattern;
+
+    private final List<String> tokens;
+
+    private final boolean prefix;
+
+    private TopicPattern(String pattern, List<String> tokens, boolean prefix) {
+        this.pattern = pattern;
+        this.tokens = Collections.unmodifiableList(tokens);
+        this.prefix = prefix;
+    }
+
+    /**
+     * Pattern that will match only event type equal to provided one.
+     */
+    public static TopicPattern exact(String type) {
+        return new TopicPattern(Objects.requireNonNull(type), Collections.singletonList(type), false);
+    }
+
+    /**
+     * Pattern that will match any event type starting with provided prefix.
+     */
+    public static TopicPattern prefix(String prefix) {
+        return new TopicPattern(Objects.requireNonNull(prefix) + PREFIX, Collections.singletonList(prefix), true);
+    }
+
+    /**
+     * Parse pattern string, see class description for syntax.
+     *
+     * @param pattern Pattern string
+     * @throws IllegalArgumentException If pattern is empty
+     */
+    public static TopicPattern parse(String pattern) throws IllegalArgumentException {
+        if (pattern == null || pattern.isEmpty()) {
+            throw new IllegalArgumentException("Topic pattern can not be empty");
+        }
+
+        String body = pattern;
+        boolean prefix = false;
+        if (body.endsWith(PREFIX)) {
+            body = body.substring(0, body.length() - 1);
+            prefix = true;
+        }
+
+        List<String> tokens = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int start = 0;
+        while (start <= body.length()) {
+            int end = body.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = body.length();
+            }
+            String segment = body.substring(start, end);
+            if (WILDCARD.equals(segment)) {
+                if (literal.length() > 0) {
+                    tokens.add(literal.toString());
+                    literal.setLength(0);
+                }
+                tokens.add(null);
+            } else {
+                literal.append(segment);
+            }
+            if (end < body.length()) {
+                literal.append(SEPARATOR);
+            }
+            start = end + 1;
+        }
+        if (literal.length() > 0) {
+            tokens.add(literal.toString());
+        }
+        return new TopicPattern(pattern, tokens, prefix);
+    }
+
+    /**
+     * Literal parts in order of appearance, null stands for one segment wildcard.
+     */
+    List<String> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * True if pattern match any remainder after last token.
+     */
+    boolean isPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Check if event type match this pattern without any index.
+     *
+     * @param type Event type
+     * @return True if type matches
+     */
+    public boolean matches(String type) {
+        return type != null && matches(type, 0, 0);
+    }
+
+    private boolean matches(String type, int pos, int token) {
+        if (token == tokens.size()) {
+            return prefix || pos == type.length();
+        }
+
+        String t = tokens.get(token);
+        if (t == null) {
+            int end = type.indexOf(SEPARATOR, pos);
+            if (end < 0) {
+                end = type.length();
+            }
+            return end > pos && matches(type, end, token + 1);
+        }
+        return type.startsWith(t, pos) && matches(type, pos + t.length(), token + 1);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tokens, prefix);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof TopicPattern)) {
+            return false;
+        }
+        TopicPattern other = (TopicPattern)obj;
+        return prefix == other.prefix && tokens.equals(other.tokens);
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.javaplugs.minibus.old;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of handlers subscribed with {@link TopicPattern}.
+ * Patterns are stored in character trie with additional edge for one segment wildcards.
+ * Event types seen by the bus are interned into routes that cache matched handlers
+ * until next subscription change, so trie is walked only once per type and subscriptions version.
+ * Count of cached routes is limited, types seen after limit is reached are matched without cache,
+ * and all routes are dropped on subscription change.
+ */
+@Deprecated
+class TopicTrie {
+
+    private static final WeakHandler[] EMPTY = new WeakHandler[0];
+
+    static final int MAX_ROUTES = 4096;
+
+    private final Node root = new Node();
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    private volatile long version;
+
+    /**
+     * Add handler with not null pattern to index.
+     */
+    synchronized void add(WeakHandler wh) {
+        Node node = root;
+        for (String token : wh.getPattern().getTokens()) {
+            if (token == null) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+                continue;
+            }
+            for (int i = 0; i < token.length(); i++) {
+                node = node.children.computeIfAbsent(token.charAt(i), c -> new Node());
+            }
+        }
+        Set<WeakHandler> set = wh.getPattern().isPrefix() ? node.prefix : node.exact;
+        if (set.add(wh)) {
+            changed();
+        }
+    }
+
+    /**
+     * Remove handler with not null pattern from index.
+     */
+    synchronized void remove(WeakHandler wh) {
+        Node node = root;
+        for (String token : wh.getPattern().getTokens()) {
+            if (token == null) {
+                node = node.wildcard;
+            } else {
+                for (int i = 0; i < token.length() && node != null; i++) {
+                    node = node.children.get(token.charAt(i));
+                }
+            }
+            if (node == null) {
+                return;
+            }
+        }
+        Set<WeakHandler> set = wh.getPattern().isPrefix() ? node.prefix : node.exact;
+        if (set.remove(wh)) {
+            changed();
+        }
+    }
+
+    private void changed() {
+        version++;
+        routes.clear();
+    }
+
+    /**
+     * Return handlers matching event type.
+     * Returned array is shared and should not be modified.
+     */
+    WeakHandler[] route(String type) {
+        Route route = routes.get(type);
+        if (route == null) {
+            if (routes.size() >= MAX_ROUTES) {
+                synchronized (this) {
+                    return match(type);
+                }
+            }
+            route = routes.computeIfAbsent(type, t -> new Route());
+        }
+
+        long v = route.version;
+        WeakHandler[] handlers = route.handlers;
+        if (v != version || handlers == null) {
+            synchronized (this) {
+                handlers = match(type);
+                route.handlers = handlers;
+                route.version = version;
+            }
+        }
+        return handlers;
+    }
+
+    /**
+     * @return Count of cached routes
+     */
+    int routes() {
+        return routes.size();
+    }
+
+    private WeakHandler[] match(String type) {
+        List<WeakHandler> found = new ArrayList<>();
+        collect(root, type, 0, found);
+        return found.isEmpty() ? EMPTY : found.toArray(new WeakHandler[found.size()]);
+    }
+
+    private void collect(Node node, String type, int pos, List<WeakHandler> found) {
+        while (node != null) {
+            found.addAll(node.prefix);
+            if (node.wildcard != null) {
+                int end = type.indexOf(TopicPattern.SEPARATOR, pos);
+                if (end < 0) {
+                    end = type.length();
+                }
+                if (end > pos) {
+                    collect(node.wildcard, type, end, found);
+                }
+            }
+            if (pos == type.length()) {
+                found.addAll(node.exact);
+                return;
+            }
+            node = node.children.get(type.charAt(pos++));
+        }
+    }
+
+    private static class Node {
+
+        final Map<Character, Node> children = new HashMap<>(4);
+
+        final Set<WeakHandler> exact = new LinkedHashSet<>(2);
+
+        final Set<WeakHandler> prefix = new LinkedHashSet<>(2);
+
+        Node wildcard;
+    }
+
+    private static class Route {
+
+        volatile long version = -1;
+
+        volatile WeakHandler[] handlers;
+    }
+}
@@ -25,6 +25,8 @@ package com.github.javaplugs.minibus.old;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Provide weak link wrapper for handler class and expose some generic handlers methods.
@@ -34,9 +36,46 @@ class WeakHandler extends WeakReference<EventHandler> {
 
     private final int hash;
 
+    private final TopicPattern pattern;
+
+    private final List<PropertyFilter.Condition> conditions;
+
     WeakHandler(EventHandler handler, ReferenceQueue q) {
         super(handler, q);
         hash = handler.hashCode();
+        if (handler instanceof TopicHandler) {
+            pattern = ((TopicHandler)handler).getTopicPattern();
+        } else if (handler.getType() != null) {
+            pattern = TopicPattern.exact(handler.getType());
+        } else {
+            pattern = null;
+        }
+        if (handler instanceof FilteredHandler) {
+            conditions = new ArrayList<>(((FilteredHandler)handler).getPropertyFilter().getConditions());
+        } else {
+            conditions = null;
+        }
+    }
+
+    /**
+     * Return pattern handler was subscribed with or null if {@link EventHandler#canHandle} is in charge.
+     */
+    TopicPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Return copy of properties filter conditions or null if handler is not {@link FilteredHandler}.
+     */
+    List<PropertyFilter.Condition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Check event type for handler which was found by properties filter.
+     */
+    boolean isTypeMatched(EventHandler handler, String type) {
+        return pattern == null ? handler.canHandle(type) : pattern.matches(type);
     }
 
     @Override
@@ -0,0 +1,146 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+public class AdaptiveExecutorTest {
+
+    static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    void growsWhileTasksWait() throws InterruptedException {
+        AdaptiveExecutor ex = new AdaptiveExecutor(1, 3, () -> -1, false);
+        CountDownLatch release = new CountDownLatch(1);
+        block(ex, release, 10);
+
+        ex.resize(INTERVAL, System.nanoTime());
+        assertThat(ex.getTargetSize()).isEqualTo(2);
+        assertThat(ex.getPoolSize()).isEqualTo(2);
+        SizingDecision d = ex.getLastDecision();
+        assertThat(d.getPreviousSize()).isEqualTo(1);
+        assertThat(d.getNewSize()).isEqualTo(2);
+
+        // Growth is bounded by max threads
+        for (int i = 0; i < 5; i++) {
+            ex.resize(INTERVAL, System.nanoTime());
+        }
+        assertThat(ex.getTargetSize()).isEqualTo(3);
+        assertThat(ex.getGrowCount()).isEqualTo(2);
+
+        release.countDown();
+        ex.shutdown();
+        assertThat(ex.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void saturatedCpuBlocksGrowth() throws InterruptedException {
+        AdaptiveExecutor ex = new AdaptiveExecutor(1, 4, () -> 0.95, false);
+        CountDownLatch release = new CountDownLatch(1);
+        block(ex, release, 10);
+
+        for (int i = 0; i < 5; i++) {
+            ex.resize(INTERVAL, System.nanoTime());
+        }
+        assertThat(ex.getTargetSize()).isEqualTo(1);
+        assertThat(ex.getLastDecision()).isNull();
+
+        release.countDown();
+        ex.shutdownNow();
+    }
+
+    @Test
+    void shrinksOneByOneWhenIdle() throws InterruptedException {
+        AdaptiveExecutor ex = new AdaptiveExecutor(1, 4, () -> 0.1, false);
+        CountDownLatch release = new CountDownLatch(1);
+        block(ex, release, 10);
+        for (int i = 0; i < 3; i++) {
+            ex.resize(INTERVAL, System.nanoTime());
+        }
+        assertThat(ex.getTargetSize()).isEqualTo(4);
+        release.countDown();
+        Thread.sleep(50);
+
+        int intervals = 0;
+        int prev = ex.getTargetSize();
+        while (ex.getTargetSize() > 1 && intervals < 100) {
+            ex.resize(INTERVAL, System.nanoTime());
+            intervals++;
+            assertThat(prev - ex.getTargetSize()).isBetween(0, 1);
+            prev = ex.getTargetSize();
+        }
+        assertThat(ex.getTargetSize()).isEqualTo(1);
+        assertThat(ex.getShrinkCount()).isEqualTo(3);
+        // Wait has to decay first, then every shrink needs several idle intervals
+        assertThat(intervals).isGreaterThanOrEqualTo(15);
+
+        for (int i = 0; i < 10; i++) {
+            ex.resize(INTERVAL, System.nanoTime());
+        }
+        assertThat(ex.getTargetSize()).isEqualTo(1);
+        ex.shutdown();
+        assertThat(ex.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void taskIsNotStrandedByConcurrentShutdown() throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            AdaptiveExecutor ex = new AdaptiveExecutor(1, 1, () -> -1, false);
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger ran = new AtomicInteger();
+            Thread producer = new Thread(() -> {
+                try {
+                    while (true) {
+                        ex.execute(ran::incrementAndGet);
+                        accepted.incrementAndGet();
+                    }
+                } catch (RejectedExecutionException e) {
+                    // shut down
+                }
+            });
+            producer.start();
+            Thread.sleep(1);
+            ex.shutdown();
+            producer.join();
+
+            assertThat(ex.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+            assertThat(ran.get()).isEqualTo(accepted.get());
+        }
+    }
+
+    @Test
+    void systemLoadIsFractionOfCpu() {
+        double load = AdaptiveExecutor.systemLoad();
+        assertThat(load).isGreaterThanOrEqualTo(-1.0);
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean) {
+            assertThat(load).isBetween(0.0, 1.0);
+        }
+    }
+
+    private static void block(AdaptiveExecutor ex, CountDownLatch release, int queued) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        ex.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        for (int i = 0; i < queued; i++) {
+            ex.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        Thread.sleep(20);
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.concurrent.ExecutorService;
+import org.testng.annotations.Test;
+
+public class AffinityExecutorsTest {
+
+    @Test
+    void eventLoopIsStoppedWithLastHandler() {
+        AffinityExecutors affinity = new AffinityExecutors();
+        LoopHandler h1 = new LoopHandler("ui");
+        LoopHandler h2 = new LoopHandler("ui");
+        WeakHandler wh1 = new WeakHandler(h1, null);
+        WeakHandler wh2 = new WeakHandler(h2, null);
+
+        ExecutorService loop = (ExecutorService)affinity.acquire(wh1, h1);
+        assertThat(affinity.acquire(wh2, h2)).isEqualTo(loop);
+        assertThat(affinity.acquire(wh2, h2)).isEqualTo(loop);
+        assertThat(affinity.getLoopCount()).isEqualTo(1);
+
+        affinity.release(new WeakHandler(h1, null));
+        assertThat(loop.isShutdown()).isFalse();
+        affinity.release(new WeakHandler(h2, null));
+        assertThat(loop.isShutdown()).isTrue();
+        assertThat(affinity.getLoopCount()).isZero();
+
+        ExecutorService next = (ExecutorService)affinity.acquire(wh1, h1);
+        assertThat(next.isShutdown()).isFalse();
+        affinity.release(wh1);
+        assertThat(next.isShutdown()).isTrue();
+    }
+
+    static class LoopHandler extends EventBusHandler<Event1> {
+
+        final HandlerAffinity affinity;
+
+        LoopHandler(String loop) {
+            this.affinity = HandlerAffinity.eventLoop(loop);
+        }
+
+        @Override
+        public HandlerAffinity getAffinity() {
+            return affinity;
+        }
+
+        @Override
+        void handle(Event1 event) {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class ChildBusTest {
+
+    @Test
+    void childReceivesOnlyFilteredEventsAndCleansUpOnClose() {
+        EventBusSimple<EventBusEvent> parent = new EventBusSimple<>();
+        ChildBus<EventBusEvent> child = new ChildBus<>(parent, Event1.class, Event2.class);
+        Handler1 h1 = new Handler1();
+        Handler234 h234 = new Handler234();
+        child.subscribe(h1);
+        child.subscribe(h234);
+
+        parent.publish(new Event1());
+        parent.publish(new Event2());
+        assertThat(h1.counter).hasValue(1);
+        assertThat(h234.counter).hasValue(0);
+
+        // Forwarded to parent but not received back, so delivered locally once
+        child.publish(new Event2());
+        assertThat(h234.counter).hasValue(1);
+
+        child.close();
+        parent.publish(new Event1());
+        assertThat(h1.counter).hasValue(1);
+        assertThatThrownBy(() -> child.publish(new Event1())).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void asyncParentForwardsToChild() throws InterruptedException {
+        EventBusAsync<EventBusEvent> parent = new EventBusAsync<>();
+        ChildBus<EventBusEvent> child = new ChildBus<>(parent);
+        Handler1 h1 = new Handler1();
+        Handler234 h234 = new Handler234();
+        child.subscribe(h1);
+        child.subscribe(h234);
+
+        parent.publish(new Event1());
+        parent.publish(new Event2());
+        parent.publish(new Event3());
+        for (int i = 0; i < 100 && (h1.counter.get() < 1 || h234.counter.get() < 2); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(h1.counter).hasValue(1);
+        assertThat(h234.counter).hasValue(2);
+        child.close();
+    }
+
+    @Test
+    void untypedForwarderAcceptsOnlyHandledClasses() {
+        RecordingBus parent = new RecordingBus();
+        ChildBus<EventBusEvent> child = new ChildBus<>(parent);
+        Handler1 h1 = new Handler1();
+        Handler234 h234 = new Handler234();
+        child.subscribe(h1);
+        child.subscribe(h234);
+
+        assertThat(parent.handlers).hasSize(2);
+        EventBusHandler any = parent.handlers.stream().filter(h -> h.getTypeClass() == null).findFirst().get();
+        assertThat(any.canHandle(Event2.class)).isTrue();
+        assertThat(any.canHandle(Event3.class)).isTrue();
+        // Delivered by typed forwarder
+        assertThat(any.canHandle(Event1.class)).isFalse();
+        assertThat(any.canHandle(OtherEvent.class)).isFalse();
+
+        child.unsubscribe(h234);
+        assertThat(parent.handlers).hasSize(1);
+    }
+
+    @Test
+    void forwardersOfCollectedHandlersAreRemovedOnDelivery() throws InterruptedException {
+        RecordingBus parent = new RecordingBus();
+        ChildBus<EventBusEvent> child = new ChildBus<>(parent);
+        child.subscribe(new Handler1());
+        child.subscribe(new Handler234());
+        assertThat(parent.handlers).hasSize(2);
+        EventBusHandler forwarder = parent.handlers.get(0);
+
+        // Parent keeps delivering to forwarder, child subscriptions do not change
+        for (int i = 0; i < 100 && !parent.handlers.isEmpty(); i++) {
+            System.gc();
+            Thread.sleep(10);
+            forwarder.handleEvent(new Event1());
+        }
+        assertThat(parent.handlers).isEmpty();
+        assertThat(child.hasSubscribers(Event1.class)).isFalse();
+    }
+
+    static class OtherEvent implements EventBusEvent {
+    }
+
+    static class RecordingBus implements EventBus<EventBusEvent> {
+
+        final List<EventBusHandler> handlers = new ArrayList<>();
+
+        @Override
+        public void subscribe(EventBusHandler<? extends EventBusEvent> subscriber) {
+            handlers.add(subscriber);
+        }
+
+        @Override
+        public void unsubscribe(EventBusHandler<? extends EventBusEvent> subscriber) {
+            handlers.remove(subscriber);
+        }
+
+        @Override
+        public void publish(EventBusEvent event) {
+        }
+
+        @Override
+        public boolean hasPendingEvents() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import org.testng.annotations.Test;
+
+public class DispatchersTest {
+
+    @Test
+    void generatedDispatcherIsUsed() {
+        assertThat(Dispatchers.find(GeneratedHandler1.class)).isNotNull();
+        assertThat(Dispatchers.find(Handler1.class)).isNull();
+
+        GeneratedHandler1 h = new GeneratedHandler1();
+        assertThat(h.getTypeClass()).isEqualTo(Event1.class);
+
+        EventBusSimple<EventBusEvent> eventBus = new EventBusSimple<>();
+        eventBus.subscribe(h);
+        eventBus.publish(new Event1());
+        eventBus.publish(new Event2());
+        h.handleEvent(new Event1());
+
+        assertThat(h.counter).hasValue(2);
+    }
+}
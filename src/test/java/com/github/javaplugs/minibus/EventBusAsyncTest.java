@@ -1,6 +1,15 @@
 package com.github.javaplugs.minibus;
 
 import static org.assertj.core.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
@@ -64,4 +73,251 @@ public class EventBusAsyncTest {
         assertThat(h3.counter).hasValue(1);
         assertThat(h234.counter).hasValue(3);
     }
+
+    @Test
+    void rejectedHandlerDoesNotSkipOthers() throws InterruptedException {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        RejectedHandler rejected = new RejectedHandler();
+        Handler1 h = new Handler1();
+        bus.subscribe(rejected);
+        bus.subscribe(h);
+
+        bus.publish(new Event1());
+        for (int i = 0; i < 100 && h.counter.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(h.counter).hasValue(1);
+        AggregatingErrorHandler errors = (AggregatingErrorHandler)bus.getErrorHandler();
+        assertThat(errors.getAggregate(RejectedHandler.class, Event1.class, RejectedExecutionException.class)
+            .getCount()).isEqualTo(1);
+    }
+
+    static class RejectedHandler extends EventBusHandler<Event1> {
+
+        @Override
+        public HandlerAffinity getAffinity() {
+            return HandlerAffinity.executor(r -> {
+                throw new RejectedExecutionException();
+            });
+        }
+
+        @Override
+        void handle(Event1 event) {
+        }
+    }
+
+    @Test
+    void pinnedHandlerCanBeSubscribedAgain() throws InterruptedException {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        PinnedHandler h = new PinnedHandler();
+        CountDownLatch parked = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        // Hold dispatcher, so all three operations are applied together
+        bus.attachMonitor(new StallWatchdog.Monitor(bus.getEventQueueThread()) {
+            @Override
+            void loopStarted(long now) {
+                if (parked.getCount() > 0) {
+                    parked.countDown();
+                    try {
+                        resume.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        assertThat(parked.await(1, TimeUnit.SECONDS)).isTrue();
+        bus.subscribe(h);
+        bus.unsubscribe(h);
+        bus.subscribe(h);
+        resume.countDown();
+
+        bus.publish(new Event1());
+        for (int i = 0; i < 100 && h.counter.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(h.counter).hasValue(1);
+        assertThat(((AggregatingErrorHandler)bus.getErrorHandler()).getTotal()).isZero();
+    }
+
+    static class PinnedHandler extends EventBusHandler<Event1> {
+
+        final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public HandlerAffinity getAffinity() {
+            return HandlerAffinity.pinned();
+        }
+
+        @Override
+        void handle(Event1 event) {
+            counter.incrementAndGet();
+        }
+    }
+
+    @Test
+    void retryAndRedriveKeepEventLoop() throws InterruptedException {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        bus.setRetryPolicy(RetryPolicy.exponential(2, 1, TimeUnit.MILLISECONDS));
+        LoopHandler h = new LoopHandler();
+        bus.subscribe(h);
+
+        h.failures.set(1);
+        bus.publish(new Event1());
+        for (int i = 0; i < 100 && h.threads.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(h.threads).containsExactly("EventBus loop retry", "EventBus loop retry");
+
+        DeadLetterStore<EventBusEvent> store = new DeadLetterStore<>(10);
+        bus.setDeadLetterStore(store);
+        bus.setRetryPolicy(RetryPolicy.none());
+        h.failures.set(1);
+        bus.publish(new Event1());
+        for (int i = 0; i < 100 && store.size() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(bus.redriveDeadLetters()).isEqualTo(1);
+        for (int i = 0; i < 100 && h.threads.size() < 4; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(h.threads).hasSize(4);
+        assertThat(h.threads.get(3)).isEqualTo("EventBus loop retry");
+    }
+
+    @Test
+    void retryIsDroppedAfterUnsubscribe() throws InterruptedException {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        bus.setRetryPolicy(RetryPolicy.exponential(2, 50, TimeUnit.MILLISECONDS).withJitter(0));
+        FailingHandler h = new FailingHandler();
+        bus.subscribe(h);
+
+        bus.publish(new Event1());
+        for (int i = 0; i < 100 && h.calls.get() == 0; i++) {
+            Thread.sleep(1);
+        }
+        bus.unsubscribe(h);
+        for (int i = 0; i < 100 && bus.hasPendingEvents(); i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(20);
+        assertThat(h.calls).hasValue(1);
+    }
+
+    static class FailingHandler extends EventBusHandler<Event1> {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        void handle(Event1 event) {
+            calls.incrementAndGet();
+            throw new IllegalStateException("fail");
+        }
+    }
+
+    static class LoopHandler extends EventBusHandler<Event1> {
+
+        final AtomicInteger failures = new AtomicInteger();
+
+        final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public HandlerAffinity getAffinity() {
+            return HandlerAffinity.eventLoop("retry");
+        }
+
+        @Override
+        void handle(Event1 event) {
+            threads.add(Thread.currentThread().getName());
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("fail");
+            }
+        }
+    }
+
+    @Test
+    void rejectedHandlerReleasesInFlightSlot() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>(executor);
+        bus.setMaxHandlersInFlight(1);
+        AtomicInteger errors = new AtomicInteger();
+        bus.setErrorHandler((h, e, th, attempt, retry) -> errors.incrementAndGet());
+        Handler2 h = new Handler2();
+        bus.subscribe(h);
+
+        for (int i = 0; i < 3; i++) {
+            bus.publish(new Event2());
+        }
+        for (int i = 0; i < 100 && errors.get() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(errors).hasValue(3);
+    }
+
+    @Test
+    void dispatcherParksAtInFlightLimit() throws InterruptedException {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        bus.setMaxHandlersInFlight(1);
+        BlockingHandler h = new BlockingHandler();
+        bus.subscribe(h);
+
+        bus.publish(new Event2());
+        bus.publish(new Event2());
+        assertThat(h.started.await(1, TimeUnit.SECONDS)).isTrue();
+        Thread.State state = null;
+        for (int i = 0; i < 100 && state != Thread.State.TIMED_WAITING; i++) {
+            Thread.sleep(1);
+            state = bus.getEventQueueThread().getState();
+        }
+        assertThat(state).isEqualTo(Thread.State.TIMED_WAITING);
+        assertThat(h.calls).hasValue(1);
+
+        h.release.countDown();
+        for (int i = 0; i < 100 && h.calls.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(h.calls).hasValue(2);
+    }
+
+    @Test
+    void publishListenerGetsScheduledEventWhenDue() throws InterruptedException {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        List<EventBusEvent> published = Collections.synchronizedList(new ArrayList<>());
+        bus.addPublishListener(published::add);
+
+        Event1 due = new Event1();
+        bus.publishAfter(due, 100, TimeUnit.MILLISECONDS);
+        ScheduledEvent cancelled = bus.publishAfter(new Event2(), 50, TimeUnit.MILLISECONDS);
+        assertThat(cancelled.cancel()).isTrue();
+        assertThat(published).isEmpty();
+
+        for (int i = 0; i < 100 && published.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        assertThat(published).containsExactly(due);
+        assertThat(bus.hasPendingEvents()).isFalse();
+    }
+
+    static class BlockingHandler extends EventBusHandler<Event2> {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        void handle(Event2 event) {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
@@ -0,0 +1,158 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class EventBusHybridTest {
+
+    EventBusHybrid<EventBusEvent> bus;
+
+    @BeforeMethod
+    void init() {
+        // Generous thresholds, so slow test machine still sees cheap handlers as cheap
+        bus = new EventBusHybrid<>(Executors.newCachedThreadPool(), 1, 5, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterMethod
+    void close() {
+        bus.getHandlersExecutor().shutdownNow();
+    }
+
+    @Test
+    void cheapHandlerIsInlined() throws InterruptedException {
+        ThreadHandler h = new ThreadHandler();
+        bus.subscribe(h);
+
+        publish(h, 50);
+        assertThat(bus.getInlined()).isGreaterThan(0L);
+        assertThat(bus.getInlined() + bus.getOffloaded()).isEqualTo(50L);
+        assertThat(h.last).isSameAs(bus.getEventQueueThread());
+    }
+
+    @Test
+    void blockingHandlerIsOffloaded() throws InterruptedException {
+        ThreadHandler h = new ThreadHandler();
+        bus.subscribe(h);
+        publish(h, 50);
+        assertThat(h.last).isSameAs(bus.getEventQueueThread());
+
+        // Call far above offload threshold moves handler to executor at once
+        h.sleepMillis = 60;
+        publish(h, 1);
+        assertThat(h.last).isSameAs(bus.getEventQueueThread());
+        long inlined = bus.getInlined();
+        long offloaded = bus.getOffloaded();
+        publish(h, 3);
+        assertThat(bus.getInlined()).isEqualTo(inlined);
+        assertThat(bus.getOffloaded()).isEqualTo(offloaded + 3);
+        assertThat(h.last).isNotSameAs(bus.getEventQueueThread());
+    }
+
+    @Test
+    void handlerWithAffinityIsNeverInlined() throws InterruptedException {
+        ThreadHandler h = new ThreadHandler(HandlerAffinity.pinned());
+        bus.subscribe(h);
+
+        publish(h, 50);
+        assertThat(bus.getInlined()).isZero();
+        assertThat(h.inlined).hasValue(0);
+        assertThat(h.last.getName()).startsWith("EventBus pinned");
+    }
+
+    @Test
+    void failingInlineHandlerIsRetriedAndDispatcherSurvives() throws InterruptedException {
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger retried = new AtomicInteger();
+        bus.setErrorHandler((handler, event, th, attempt, retry) -> {
+            errors.incrementAndGet();
+            if (retry) {
+                retried.incrementAndGet();
+            }
+        });
+        bus.setRetryPolicy(RetryPolicy.exponential(2, 1, TimeUnit.MILLISECONDS));
+        ThreadHandler h = new ThreadHandler();
+        bus.subscribe(h);
+        publish(h, 50);
+        assertThat(h.last).isSameAs(bus.getEventQueueThread());
+
+        h.failing = true;
+        publish(h, 1);
+        // Failed call and its retry
+        for (int i = 0; i < 100 && errors.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(errors).hasValue(2);
+        assertThat(retried).hasValue(1);
+
+        h.failing = false;
+        publish(h, 10);
+        assertThat(bus.getEventQueueThread().isAlive()).isTrue();
+        assertThat(errors).hasValue(2);
+    }
+
+    /**
+     * Publish events one by one and wait until handler got each of them.
+     */
+    private void publish(ThreadHandler h, int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            int expected = h.calls.get() + 1;
+            bus.publish(new Event1());
+            for (int j = 0; j < 200 && h.calls.get() < expected; j++) {
+                Thread.sleep(1);
+            }
+            assertThat(h.calls.get()).isGreaterThanOrEqualTo(expected);
+        }
+    }
+
+    static class ThreadHandler extends EventBusHandler<Event1> {
+
+        final HandlerAffinity affinity;
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final AtomicInteger inlined = new AtomicInteger();
+
+        volatile Thread last;
+
+        volatile long sleepMillis;
+
+        volatile boolean failing;
+
+        ThreadHandler() {
+            this(null);
+        }
+
+        ThreadHandler(HandlerAffinity affinity) {
+            this.affinity = affinity;
+        }
+
+        @Override
+        public HandlerAffinity getAffinity() {
+            return affinity;
+        }
+
+        @Override
+        void handle(Event1 event) {
+            last = Thread.currentThread();
+            if (last.getName().equals("EventQueue handlers thread")) {
+                inlined.incrementAndGet();
+            }
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            calls.incrementAndGet();
+            if (failing) {
+                throw new IllegalStateException("fail");
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+public class EventBusSimpleTest {
+
+    @Test
+    void pureCanHandleIsCalledOncePerClass() {
+        EventBusSimple<EventBusEvent> eventBus = new EventBusSimple<>();
+        PureHandler234 h = new PureHandler234();
+        eventBus.subscribe(h);
+
+        eventBus.publish(new Event1());
+        eventBus.publish(new Event1());
+        eventBus.publish(new Event2());
+        eventBus.publish(new Event2());
+        eventBus.publish(new Event2());
+
+        assertThat(h.counter).hasValue(3);
+        assertThat(h.checks).hasValue(2);
+
+        eventBus.subscribe(new PureHandler234());
+        eventBus.publish(new Event2());
+
+        assertThat(h.counter).hasValue(4);
+        assertThat(h.checks).hasValue(3);
+    }
+
+    @Test
+    void unitOfWorkPublishesOnlyOnCommit() {
+        EventBusSimple<EventBusEvent> eventBus = new EventBusSimple<>();
+        Handler1 h = new Handler1();
+        eventBus.subscribe(h);
+
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            eventBus.publish(new Event1());
+            eventBus.publish(new Event1());
+        }
+        assertThat(h.counter).hasValue(0);
+
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            eventBus.publish(new Event1());
+            eventBus.publish(new Event1());
+            assertThat(h.counter).hasValue(0);
+            uow.commit();
+        }
+        assertThat(h.counter).hasValue(2);
+        assertThat(UnitOfWork.current()).isNull();
+    }
+
+    @Test
+    void unitOfWorkCommitPublishesToAllBusesOnFailure() {
+        RejectingBus first = new RejectingBus("first");
+        EventBusSimple<EventBusEvent> second = new EventBusSimple<>();
+        RejectingBus third = new RejectingBus("third");
+        Handler1 h = new Handler1();
+        second.subscribe(h);
+
+        UnitOfWork uow = UnitOfWork.begin();
+        first.publish(new Event1());
+        second.publish(new Event1());
+        third.publish(new Event1());
+        first.rejecting = true;
+        third.rejecting = true;
+        assertThatThrownBy(uow::commit)
+            .isInstanceOf(EventRejectedException.class)
+            .hasMessage("first");
+        assertThat(h.counter).hasValue(1);
+        assertThat(third.batches).hasValue(1);
+        assertThat(uow.isFinished()).isTrue();
+        assertThat(UnitOfWork.current()).isNull();
+    }
+
+    @Test
+    void failuresAreAggregated() {
+        EventBusSimple<EventBusEvent> eventBus = new EventBusSimple<>();
+        FailingHandler h = new FailingHandler();
+        eventBus.subscribe(h);
+
+        for (int i = 0; i < 100; i++) {
+            eventBus.publish(new Event1());
+        }
+
+        AggregatingErrorHandler errors = (AggregatingErrorHandler)eventBus.getErrorHandler();
+        ErrorAggregate agg = errors.getAggregate(FailingHandler.class, Event1.class, IllegalStateException.class);
+        assertThat(agg.getCount()).isEqualTo(100);
+        assertThat(agg.getLastMessage()).isEqualTo("fail");
+        assertThat(errors.getAggregates()).hasSize(1);
+    }
+
+    @Test
+    void trampolinedPublishingDoesNotGrowStack() {
+        EventBusSimple<EventBusEvent> eventBus = new EventBusSimple<>(true);
+        CascadeHandler h = new CascadeHandler(eventBus, 100000);
+        eventBus.subscribe(h);
+
+        eventBus.publish(new Event1());
+        assertThat(h.counter).hasValue(100000);
+        assertThat(h.maxDepth).isEqualTo(1);
+        assertThat(eventBus.hasPendingEvents()).isFalse();
+    }
+
+    @Test
+    void supplierIsCalledOnlyWithSubscribers() {
+        EventBusSimple<EventBusEvent> eventBus = new EventBusSimple<>();
+        AtomicInteger built = new AtomicInteger();
+        Handler1 h = new Handler1();
+
+        assertThat(eventBus.hasSubscribers(Event1.class)).isFalse();
+        eventBus.publish(Event1.class, () -> {
+            built.incrementAndGet();
+            return new Event1();
+        });
+        assertThat(built).hasValue(0);
+
+        eventBus.subscribe(h);
+        assertThat(eventBus.hasSubscribers(Event1.class)).isTrue();
+        assertThat(eventBus.hasSubscribers(Event2.class)).isFalse();
+        eventBus.publish(Event1.class, () -> {
+            built.incrementAndGet();
+            return new Event1();
+        });
+        assertThat(built).hasValue(1);
+        assertThat(h.counter).hasValue(1);
+
+        eventBus.unsubscribe(h);
+        assertThat(eventBus.hasSubscribers(Event1.class)).isFalse();
+        PureHandler234 pure = new PureHandler234();
+        eventBus.subscribe(pure);
+        assertThat(eventBus.hasSubscribers(Event2.class)).isTrue();
+        assertThat(eventBus.hasSubscribers(Event1.class)).isFalse();
+    }
+
+    @Test
+    void unitOfWorkCommitSuppressesLaterFailures() {
+        RejectingBus first = new RejectingBus("first");
+        RejectingBus second = new RejectingBus("second");
+
+        UnitOfWork uow = UnitOfWork.begin();
+        second.publish(new Event1());
+        first.publish(new Event1());
+        second.publish(new Event1());
+        first.rejecting = true;
+        second.rejecting = true;
+        EventRejectedException thrown = null;
+        try {
+            uow.commit();
+        } catch (EventRejectedException ex) {
+            thrown = ex;
+        }
+        // Buses are published in order of their first buffered event
+        assertThat(thrown).hasMessage("second");
+        assertThat(thrown.getSuppressed()).hasSize(1);
+        assertThat(thrown.getSuppressed()[0]).hasMessage("first");
+    }
+
+    @Test
+    void retryIsDroppedAfterUnsubscribe() throws InterruptedException {
+        EventBusSimple<EventBusEvent> eventBus = new EventBusSimple<>();
+        FailingHandler h = new FailingHandler();
+        eventBus.subscribe(h);
+        eventBus.setRetryPolicy(RetryPolicy.exponential(2, 5, TimeUnit.MILLISECONDS).withJitter(0));
+
+        eventBus.publish(new Event1());
+        assertThat(h.calls).hasValue(1);
+        eventBus.unsubscribe(h);
+        Thread.sleep(20);
+        eventBus.processRetries();
+        assertThat(h.calls).hasValue(1);
+        assertThat(eventBus.hasPendingEvents()).isFalse();
+    }
+
+    @Test
+    void retriesArePendingAndRedriven() throws InterruptedException {
+        EventBusSimple<EventBusEvent> eventBus = new EventBusSimple<>();
+        FailingHandler h = new FailingHandler();
+        eventBus.subscribe(h);
+        eventBus.setRetryPolicy(RetryPolicy.exponential(2, 5, TimeUnit.MILLISECONDS).withJitter(0));
+
+        eventBus.publish(new Event1());
+        assertThat(h.calls).hasValue(1);
+        assertThat(eventBus.hasPendingEvents()).isTrue();
+        assertThat(eventBus.getDeadLetters()).isNull();
+        Thread.sleep(20);
+        eventBus.processRetries();
+        assertThat(h.calls).hasValue(2);
+        assertThat(eventBus.hasPendingEvents()).isFalse();
+        assertThat(eventBus.redriveDeadLetters()).isZero();
+
+        DeadLetterStore<EventBusEvent> store = new DeadLetterStore<>(10);
+        eventBus.setDeadLetterStore(store);
+        eventBus.publish(new Event1());
+        Thread.sleep(20);
+        eventBus.processRetries();
+        assertThat(h.calls).hasValue(4);
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.getAll().get(0).getAttempts()).isEqualTo(2);
+        assertThat(store.getAll().get(0).getHandler()).isEqualTo(h);
+
+        h.healed = true;
+        assertThat(eventBus.redriveDeadLetters()).isEqualTo(1);
+        assertThat(h.calls).hasValue(5);
+        assertThat(store.size()).isZero();
+        assertThat(eventBus.hasPendingEvents()).isFalse();
+    }
+
+    static class CascadeHandler extends EventBusHandler<Event1> {
+
+        final AtomicInteger counter = new AtomicInteger();
+
+        final EventBus<EventBusEvent> eventBus;
+
+        final int limit;
+
+        int depth;
+
+        int maxDepth;
+
+        CascadeHandler(EventBus<EventBusEvent> eventBus, int limit) {
+            this.eventBus = eventBus;
+            this.limit = limit;
+        }
+
+        @Override
+        void handle(Event1 event) {
+            maxDepth = Math.max(maxDepth, ++depth);
+            if (counter.incrementAndGet() < limit) {
+                eventBus.publish(new Event1());
+            }
+            depth--;
+        }
+    }
+
+    static class RejectingBus extends EventBusSimple<EventBusEvent> {
+
+        final String name;
+
+        final AtomicInteger batches = new AtomicInteger();
+
+        volatile boolean rejecting;
+
+        RejectingBus(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void publishAll(Collection<? extends EventBusEvent> events) {
+            if (rejecting) {
+                batches.incrementAndGet();
+                throw new EventRejectedException(name);
+            }
+            super.publishAll(events);
+        }
+    }
+
+    static class FailingHandler extends EventBusHandler<Event1> {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        volatile boolean healed;
+
+        @Override
+        void handle(Event1 event) {
+            calls.incrementAndGet();
+            if (!healed) {
+                throw new IllegalStateException("fail");
+            }
+        }
+    }
+}
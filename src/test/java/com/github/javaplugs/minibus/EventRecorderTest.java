@@ -0,0 +1,208 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class EventRecorderTest {
+
+    static final EventCodec<EventBusEvent> CODEC = new EventCodec<EventBusEvent>() {
+        @Override
+        public void write(EventBusEvent event, DataOutputStream out) throws IOException {
+            Recorded r = (Recorded)event;
+            out.writeInt(r.id);
+            out.writeUTF(r.name);
+        }
+
+        @Override
+        public EventBusEvent read(Class<? extends EventBusEvent> cls, DataInputStream in) throws IOException {
+            return new Recorded(in.readInt(), in.readUTF());
+        }
+    };
+
+    Path file;
+
+    @BeforeMethod
+    void init() throws IOException {
+        file = Files.createTempFile("minibus", ".rec");
+    }
+
+    @AfterMethod
+    void cleanup() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private List<Recorded> record(int count) throws Exception {
+        EventBusSimple<EventBusEvent> bus = new EventBusSimple<>();
+        List<Recorded> published = new ArrayList<>();
+        try (EventRecorder<EventBusEvent> recorder = EventRecorder.attach(bus, file, CODEC)) {
+            // Recorder is not a handler
+            assertThat(bus.hasSubscribers(Recorded.class)).isFalse();
+            for (int i = 0; i < count; i++) {
+                Recorded r = new Recorded(i, "event " + i);
+                published.add(r);
+                bus.publish(r);
+                if (i == count / 2) {
+                    Thread.sleep(50);
+                }
+            }
+            // Can not be encoded
+            bus.publish(new Recorded(-1, null));
+
+            assertThat(recorder.getRecorded()).isEqualTo(count);
+            assertThat(recorder.getFailed()).isEqualTo(1);
+        }
+        bus.publish(new Recorded(-2, "after close"));
+        return published;
+    }
+
+    @Test
+    void recordedEventsAreReplayed() throws Exception {
+        List<Recorded> published = record(100);
+
+        EventBusSimple<EventBusEvent> bus = new EventBusSimple<>();
+        Collector collector = new Collector();
+        bus.subscribe(collector);
+        ReplayStats stats = new EventReplayer<>(file, CODEC).replay(bus, 0);
+
+        assertThat(collector.events).isEqualTo(published);
+        assertThat(stats.getEvents()).isEqualTo(100);
+        assertThat(stats.getSkipped()).isZero();
+        assertThat(stats.getDelivered()).isEqualTo(100);
+        assertThat(stats.getDeliveryLatency(0.5)).isGreaterThanOrEqualTo(0.0);
+        assertThat(stats.getLag(0.99)).isEqualTo(0.0);
+        // Replay does not subscribe own handlers
+        bus.unsubscribe(collector);
+        assertThat(bus.hasSubscribers(Recorded.class)).isFalse();
+    }
+
+    @Test
+    void replayKeepsRecordedPace() throws Exception {
+        record(10);
+
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        Collector collector = new Collector();
+        bus.subscribe(collector);
+        ReplayStats stats = new EventReplayer<>(file, CODEC).replay(bus, 1);
+
+        assertThat(stats.getEvents()).isEqualTo(10);
+        assertThat(stats.getDelivered()).isEqualTo(10);
+        assertThat(stats.getDurationNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(45));
+        // Replay waits until last handler call started, not until it finished
+        for (int i = 0; i < 100 && collector.size() < 10; i++) {
+            Thread.sleep(10);
+        }
+        synchronized (collector) {
+            assertThat(collector.events).hasSize(10);
+        }
+    }
+
+    @Test
+    void otherBusIsRecordedThroughDecorator() throws Exception {
+        List<EventBusEvent> delivered = new ArrayList<>();
+        EventBus<EventBusEvent> bus = new EventBus<EventBusEvent>() {
+            @Override
+            public void subscribe(EventBusHandler<? extends EventBusEvent> subscriber) {
+            }
+
+            @Override
+            public void unsubscribe(EventBusHandler<? extends EventBusEvent> subscriber) {
+            }
+
+            @Override
+            public void publish(EventBusEvent event) {
+                delivered.add(event);
+            }
+
+            @Override
+            public boolean hasPendingEvents() {
+                return false;
+            }
+        };
+
+        try (EventRecorder<EventBusEvent> recorder = EventRecorder.attach(bus, file, CODEC)) {
+            EventBus<EventBusEvent> recording = recorder.getBus();
+            recording.publish(new Recorded(1, "one"));
+            recording.publishAll(Arrays.asList(new Recorded(2, "two"), new Recorded(3, "three")));
+            // Not seen by recorder
+            bus.publish(new Recorded(4, "four"));
+            assertThat(recorder.getRecorded()).isEqualTo(3);
+        }
+        assertThat(delivered).hasSize(4);
+
+        EventBusSimple<EventBusEvent> replayBus = new EventBusSimple<>();
+        Collector collector = new Collector();
+        replayBus.subscribe(collector);
+        new EventReplayer<>(file, CODEC).replay(replayBus, 0);
+        assertThat(collector.events).containsExactly(new Recorded(1, "one"), new Recorded(2, "two"),
+            new Recorded(3, "three"));
+
+        // Delivery of bus without listener support is not measured
+        ReplayStats stats = new EventReplayer<>(file, CODEC).replay(bus, 0);
+        assertThat(delivered).hasSize(7);
+        assertThat(stats.getEvents()).isEqualTo(3);
+        assertThat(stats.getDelivered()).isZero();
+        assertThat(stats.getDeliveryLatency(0.5)).isNaN();
+    }
+
+    @Test
+    void scheduledEventsAreRecordedWhenDue() throws Exception {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        try (EventRecorder<EventBusEvent> recorder = EventRecorder.attach(bus, file, CODEC)) {
+            assertThat(recorder.getBus()).isEqualTo(bus);
+            bus.publishAfter(new Recorded(1, "later"), 20, TimeUnit.MILLISECONDS);
+            assertThat(recorder.getRecorded()).isZero();
+            for (int i = 0; i < 100 && recorder.getRecorded() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertThat(recorder.getRecorded()).isEqualTo(1);
+        }
+    }
+
+    static class Collector extends EventBusHandler<Recorded> {
+
+        final List<Recorded> events = new ArrayList<>();
+
+        @Override
+        synchronized void handle(Recorded event) {
+            events.add(event);
+        }
+
+        synchronized int size() {
+            return events.size();
+        }
+    }
+
+    static class Recorded implements EventBusEvent {
+
+        final int id;
+
+        final String name;
+
+        Recorded(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Recorded && ((Recorded)o).id == id && Objects.equals(((Recorded)o).name, name);
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.testng.annotations.Test;
+
+public class EventTracerTest {
+
+    static final long STEP = 1_000_000_000L;
+
+    @Test
+    void wrappingWritersDoNotTearSpans() throws InterruptedException {
+        EventTracer tracer = new EventTracer(1, 8);
+        Event1 event = new Event1();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            long base = w * STEP;
+            Thread t = new Thread(() -> {
+                for (long i = 0; i < 50_000; i++) {
+                    long v = base + i;
+                    tracer.onDispatch(event, new TraceContext(tracer, v, v, v), v, v);
+                }
+            }, "writer-" + w);
+            writers.add(t);
+            t.start();
+        }
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                check(tracer, torn);
+            }
+        });
+        reader.start();
+        for (Thread t : writers) {
+            t.join();
+        }
+        done.set(true);
+        reader.join();
+
+        check(tracer, torn);
+        assertThat(torn.get()).isNull();
+        assertThat(tracer.snapshot()).hasSize(8);
+    }
+
+    private static void check(EventTracer tracer, AtomicReference<String> torn) {
+        for (EventTracer.Span s : tracer.snapshot()) {
+            long v = s.correlationId;
+            boolean ok = s.eventId == v && s.causationId == v && s.start == s.end
+                && s.threadName.equals("writer-" + (v / STEP));
+            if (!ok) {
+                torn.compareAndSet(null, v + "/" + s.eventId + "/" + s.causationId + " " + s.threadName);
+            }
+        }
+    }
+
+    @Test
+    void cascadeSharesCorrelation() throws Exception {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        EventTracer tracer = new EventTracer(1, 1024);
+        bus.setTracer(tracer);
+        CascadeHandler cascade = new CascadeHandler(bus);
+        Handler2 h2 = new Handler2();
+        bus.subscribe(cascade);
+        bus.subscribe(h2);
+
+        bus.publish(new Event1());
+        for (int i = 0; i < 100 && h2.counter.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+
+        List<EventTracer.Span> spans = tracer.snapshot();
+        assertThat(spans.size()).isGreaterThanOrEqualTo(6);
+        long correlation = spans.get(0).correlationId;
+        for (EventTracer.Span s : spans) {
+            assertThat(s.correlationId).isEqualTo(correlation);
+        }
+
+        StringWriter w = new StringWriter();
+        tracer.writeTo(w);
+        assertThat(w.toString()).contains("publish Event1", "publish Event2", "CascadeHandler", "Handler2");
+    }
+
+    static class CascadeHandler extends EventBusHandler<Event1> {
+
+        final EventBus<EventBusEvent> bus;
+
+        CascadeHandler(EventBus<EventBusEvent> bus) {
+            this.bus = bus;
+        }
+
+        @Override
+        void handle(Event1 event) {
+            bus.publish(new Event2());
+        }
+    }
+}
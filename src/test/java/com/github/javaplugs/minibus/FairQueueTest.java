@@ -0,0 +1,95 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class FairQueueTest {
+
+    private static List<Class<?>> drain(FairQueue queue, int max) {
+        List<Class<?>> polled = new ArrayList<>();
+        EventBusEvent e;
+        while (polled.size() < max && (e = queue.poll()) != null) {
+            polled.add(e.getClass());
+        }
+        return polled;
+    }
+
+    @Test
+    void classesAreServedByWeight() {
+        FairQueue queue = new FairQueue();
+        queue.setWeight(Event1.class, 3);
+        for (int i = 0; i < 9; i++) {
+            queue.offer(new Event1());
+        }
+        for (int i = 0; i < 3; i++) {
+            queue.offer(new Event2());
+        }
+        assertThat(queue.size()).isEqualTo(12);
+
+        assertThat(drain(queue, 12)).containsExactly(
+            Event1.class, Event1.class, Event1.class, Event2.class,
+            Event1.class, Event1.class, Event1.class, Event2.class,
+            Event1.class, Event1.class, Event1.class, Event2.class);
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+
+        FairQueueCounters c = queue.getCounters(Event1.class);
+        assertThat(c.getWeight()).isEqualTo(3);
+        assertThat(c.getEnqueued()).isEqualTo(9);
+        assertThat(c.getDispatched()).isEqualTo(9);
+        assertThat(c.getQueueSize()).isZero();
+    }
+
+    @Test
+    void hotClassDoesNotDelayOthers() {
+        FairQueue queue = new FairQueue();
+        for (int i = 0; i < 1000; i++) {
+            queue.offer(new Event1());
+        }
+        queue.offer(new Event2());
+        queue.offer(new Event3());
+
+        assertThat(drain(queue, 3)).containsExactly(Event1.class, Event2.class, Event3.class);
+        assertThat(queue.size()).isEqualTo(999);
+    }
+
+    @Test
+    void emptyClassLeavesRoundAndComesBack() {
+        FairQueue queue = new FairQueue();
+        queue.setWeight(Event1.class, 2);
+        queue.offer(new Event1());
+        queue.offer(new Event2());
+        queue.offer(new Event2());
+
+        // Event1 is empty after one event and loses rest of its credit
+        assertThat(drain(queue, 2)).containsExactly(Event1.class, Event2.class);
+        queue.offer(new Event1());
+        queue.offer(new Event1());
+        queue.offer(new Event1());
+        assertThat(drain(queue, 10)).containsExactly(Event2.class, Event1.class, Event1.class, Event1.class);
+        assertThat(queue.poll()).isNull();
+
+        queue.offer(new Event2());
+        assertThat(drain(queue, 10)).containsExactly(Event2.class);
+    }
+
+    @Test
+    void tracedEventUsesClassOfEvent() {
+        FairQueue queue = new FairQueue();
+        EventTracer tracer = new EventTracer(1, 8);
+        Event1 event = new Event1();
+        TracedEvent traced = new TracedEvent(event, new TraceContext(tracer, 1, 1, 1));
+        queue.offer(traced);
+
+        assertThat(queue.getCounters(Event1.class).getQueueSize()).isEqualTo(1);
+        assertThat(queue.poll()).isEqualTo(traced);
+    }
+
+    @Test
+    void invalidWeight() {
+        assertThatThrownBy(() -> new FairQueue().setWeight(Event1.class, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
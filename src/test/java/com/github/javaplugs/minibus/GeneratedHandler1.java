@@ -0,0 +1,14 @@
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@GenerateDispatcher
+public class GeneratedHandler1 extends EventBusHandler<Event1> {
+
+    AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    void handle(Event1 event) {
+        counter.incrementAndGet();
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import org.testng.annotations.Test;
+
+public class HandlerCostTest {
+
+    static final long INLINE = 1_000;
+
+    static final long OFFLOAD = 10_000;
+
+    private static HandlerCost inlineCost() {
+        HandlerCost cost = new HandlerCost(INLINE, OFFLOAD);
+        for (int i = 0; i < 8; i++) {
+            cost.add(100);
+            assertThat(cost.isInline()).isFalse();
+        }
+        cost.add(100);
+        assertThat(cost.isInline()).isTrue();
+        return cost;
+    }
+
+    @Test
+    void costBetweenThresholdsDoesNotFlip() {
+        HandlerCost cost = inlineCost();
+        for (int i = 0; i < 100; i++) {
+            cost.add(5_000);
+            assertThat(cost.isInline()).isTrue();
+        }
+
+        for (int i = 0; i < 100 && cost.isInline(); i++) {
+            cost.add(OFFLOAD * 2);
+        }
+        assertThat(cost.isInline()).isFalse();
+        for (int i = 0; i < 100; i++) {
+            cost.add(5_000);
+            assertThat(cost.isInline()).isFalse();
+        }
+    }
+
+    @Test
+    void slowerHandlerIsOffloadedByEstimate() {
+        HandlerCost cost = inlineCost();
+        cost.add(15_000);
+        assertThat(cost.isInline()).isTrue();
+        int n = 1;
+        while (cost.isInline()) {
+            cost.add(15_000);
+            n++;
+        }
+        assertThat(n).isBetween(10, 30);
+        assertThat(cost.getEstimate()).isGreaterThan((double)OFFLOAD);
+    }
+
+    @Test
+    void blockingSampleOffloadsAtOnce() {
+        HandlerCost cost = inlineCost();
+        cost.add(OFFLOAD * 100);
+        assertThat(cost.isInline()).isFalse();
+
+        // Single pause does not keep cheap handler offloaded
+        int n = 0;
+        while (!cost.isInline()) {
+            cost.add(100);
+            n++;
+        }
+        assertThat(n).isLessThan(10);
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class PerProducerQueueTest {
+
+    @Test
+    void keepsOrderPerProducerAndServesRoundRobin() throws InterruptedException {
+        PerProducerQueue<String> queue = new PerProducerQueue<>();
+        List<Thread> producers = new ArrayList<>();
+        for (String name : new String[] {"a", "b"}) {
+            Thread th = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    queue.offer(name + i);
+                }
+            });
+            producers.add(th);
+            th.start();
+        }
+        for (Thread th : producers) {
+            th.join();
+        }
+        assertThat(queue.size()).isEqualTo(400);
+
+        List<String> polled = new ArrayList<>();
+        String item;
+        while ((item = queue.poll()) != null) {
+            polled.add(item);
+        }
+        assertThat(polled).hasSize(400);
+        assertThat(queue.isEmpty()).isTrue();
+
+        int a = 0;
+        int b = 0;
+        int run = 0;
+        char last = 0;
+        for (String s : polled) {
+            char producer = s.charAt(0);
+            int n = Integer.parseInt(s.substring(1));
+            if (producer == 'a') {
+                assertThat(n).isEqualTo(a++);
+            } else {
+                assertThat(n).isEqualTo(b++);
+            }
+            run = producer == last ? run + 1 : 1;
+            last = producer;
+            // Busy producer gives turn to other one after quantum while both have items
+            if (a < 200 && b < 200) {
+                assertThat(run).isLessThanOrEqualTo(64);
+            }
+        }
+    }
+
+    @Test
+    void offerAllKeepsOrder() {
+        PerProducerQueue<Integer> queue = new PerProducerQueue<>();
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            items.add(i);
+        }
+        queue.offerAll(items);
+
+        for (int i = 0; i < 3000; i++) {
+            assertThat(queue.poll()).isEqualTo(i);
+        }
+        assertThat(queue.poll()).isNull();
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.Test;
+
+public class PipelineTest {
+
+    @Test
+    void itemsPassAllStagesAndAreCounted() throws Exception {
+        AtomicLong sum = new AtomicLong();
+        Pipeline<String> pipeline = Pipeline.<String>builder()
+            .stage("parse", 2, 16, Integer::parseInt)
+            .batchStage("even", 1, 16, 8, (List<Integer> batch) -> {
+                List<Integer> out = new ArrayList<>();
+                for (Integer i : batch) {
+                    if (i % 2 == 0) {
+                        out.add(i);
+                    }
+                }
+                return out;
+            })
+            .sink("sum", 1, 16, sum::addAndGet);
+
+        for (int i = 0; i < 1000; i++) {
+            pipeline.submit(String.valueOf(i));
+        }
+        pipeline.submit("not a number");
+        pipeline.close();
+
+        assertThat(sum.get()).isEqualTo(249500);
+        List<PipelineStage> stages = pipeline.getStages();
+        assertThat(stages.get(0).getProcessed()).isEqualTo(1000);
+        assertThat(stages.get(0).getFailed()).isEqualTo(1);
+        assertThat(stages.get(2).getProcessed()).isEqualTo(500);
+        assertThatThrownBy(() -> pipeline.offer("1")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void closeUnsubscribesFromBus() throws Exception {
+        EventBusSimple<EventBusEvent> bus = new EventBusSimple<>();
+        AtomicLong count = new AtomicLong();
+        Pipeline<Event> pipeline = Pipeline.<Event>builder()
+            .sink("count", 1, 16, e -> count.incrementAndGet());
+        pipeline.subscribe(bus, Event1.class);
+        assertThatThrownBy(() -> pipeline.subscribe(bus, Event2.class)).isInstanceOf(IllegalStateException.class);
+
+        bus.publish(new Event1());
+        bus.publish(new Event2());
+        assertThat(bus.hasSubscribers(Event1.class)).isTrue();
+        pipeline.close();
+
+        assertThat(count.get()).isEqualTo(1);
+        assertThat(bus.hasSubscribers(Event1.class)).isFalse();
+        bus.publish(new Event1());
+        assertThat(count.get()).isEqualTo(1);
+    }
+
+    @Test
+    void subscribeRequiresEventClass() {
+        Pipeline<Object> pipeline = Pipeline.builder().sink("none", 1, 1, o -> { });
+        assertThatThrownBy(() -> pipeline.subscribe(new EventBusSimple<EventBusEvent>(), String.class))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void itemsAcceptedDuringCloseAreProcessed() throws Exception {
+        AtomicLong processed = new AtomicLong();
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder()
+            .sink("count", 1, 4, i -> processed.incrementAndGet());
+        AtomicLong accepted = new AtomicLong();
+        AtomicBoolean started = new AtomicBoolean();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Thread t = new Thread(() -> {
+                try {
+                    for (int i = 0; ; i++) {
+                        pipeline.submit(i);
+                        accepted.incrementAndGet();
+                        started.set(true);
+                    }
+                } catch (IllegalStateException | InterruptedException ex) {
+                    // Closed
+                }
+            });
+            producers.add(t);
+            t.start();
+        }
+        while (!started.get()) {
+            Thread.yield();
+        }
+        pipeline.close();
+        for (Thread t : producers) {
+            t.join();
+        }
+
+        assertThat(accepted.get()).isGreaterThan(0L);
+        assertThat(processed.get()).isEqualTo(accepted.get());
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.javaplugs.minibus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PureHandler234 extends EventBusHandler<EventBusEvent> {
+
+    AtomicInteger checks = new AtomicInteger();
+
+    AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    Class<EventBusEvent> getTypeClass() {
+        return null;
+    }
+
+    @Override
+    public boolean canHandle(Class<? extends EventBusEvent> cls) {
+        checks.incrementAndGet();
+        return cls.isAssignableFrom(Event2.class)
+            || cls.isAssignableFrom(Event3.class)
+            || cls.isAssignableFrom(Event4.class);
+    }
+
+    @Override
+    public boolean isCanHandlePure() {
+        return true;
+    }
+
+    @Override
+    void handle(EventBusEvent event) {
+        counter.incrementAndGet();
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.Arrays;
+import java.util.Random;
+import org.testng.annotations.Test;
+
+public class QuantileSketchTest {
+
+    static final double ACCURACY = 0.01;
+
+    static final double[] LEVELS = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    @Test
+    void relativeAccuracy() {
+        Random rnd = new Random(1);
+        double[] values = new double[20_000];
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        for (int i = 0; i < values.length; i++) {
+            // Wide range, so store grows in both directions
+            values[i] = Math.exp(rnd.nextGaussian() * 8) * (rnd.nextInt(4) == 0 ? -1 : 1);
+            sketch.add(values[i]);
+        }
+        sketch.add(0);
+        values = Arrays.copyOf(values, values.length + 1);
+
+        assertThat(sketch.getCount()).isEqualTo(values.length);
+        assertAccurate(sketch, values);
+    }
+
+    @Test
+    void growKeepsCounts() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        // First value centers store, next ones are far below and above it
+        double[] values = {1, 1e-6, 1e-9, 1e6, 1e12, 2, 3, 1e-300, 1e300};
+        for (double v : values) {
+            sketch.add(v);
+        }
+        assertAccurate(sketch, values);
+    }
+
+    @Test
+    void mergeEqualsSingleSketch() {
+        QuantileSketch low = new QuantileSketch(ACCURACY);
+        QuantileSketch high = new QuantileSketch(ACCURACY);
+        QuantileSketch all = new QuantileSketch(ACCURACY);
+        for (int i = 1; i <= 1000; i++) {
+            low.add(-i);
+            high.add(i * 1000.0);
+            all.add(-i);
+            all.add(i * 1000.0);
+        }
+        low.merge(high);
+        assertThat(low.getCount()).isEqualTo(all.getCount());
+        for (double q : LEVELS) {
+            assertThat(low.quantile(q)).isEqualTo(all.quantile(q));
+        }
+    }
+
+    @Test
+    void clearedSketchIsReused() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        assertThat(Double.isNaN(sketch.quantile(0.5))).isTrue();
+        sketch.add(5);
+        sketch.clear();
+        assertThat(sketch.getCount()).isZero();
+        assertThat(Double.isNaN(sketch.quantile(0.5))).isTrue();
+
+        double[] values = {1e100, 2e100, 3e100};
+        for (double v : values) {
+            sketch.add(v);
+        }
+        assertAccurate(sketch, values);
+    }
+
+    private static void assertAccurate(QuantileSketch sketch, double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : LEVELS) {
+            double exact = sorted[(int)(q * (sorted.length - 1))];
+            double error = Math.abs(exact) * ACCURACY * 1.0001;
+            assertThat(sketch.quantile(q)).isBetween(exact - error, exact + error);
+        }
+    }
+
+    @Test
+    void nonFiniteValuesAndAccuracyAreRejected() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        for (double v : new double[] {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN}) {
+            assertThatThrownBy(() -> sketch.add(v)).isInstanceOf(IllegalArgumentException.class);
+        }
+        sketch.add(5);
+        assertThat(sketch.getCount()).isEqualTo(1);
+        assertThat(sketch.quantile(0.5)).isBetween(4.95, 5.05);
+
+        for (double a : new double[] {0, 1, -0.5, Double.NaN}) {
+            assertThatThrownBy(() -> new QuantileSketch(a)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RateLimiterTest {
+
+    static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    AtomicLong clock;
+
+    RateLimiter limiter;
+
+    @BeforeMethod
+    void init() {
+        clock = new AtomicLong(1_000_000 * MS);
+        limiter = new RateLimiter(clock::get);
+    }
+
+    @Test
+    void burstAndRefill() {
+        limiter.set(Event1.class, RateLimit.perSecond(10).withBurst(3));
+
+        assertThat(limiter.acquire(Event2.class)).isEqualTo(RateLimiter.PASS);
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.PASS);
+        }
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.DROP);
+
+        clock.addAndGet(99 * MS);
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.DROP);
+        clock.addAndGet(MS);
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.PASS);
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.DROP);
+
+        // Long idle period refills only up to burst
+        clock.addAndGet(10_000 * MS);
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.PASS);
+        }
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.DROP);
+
+        RateLimitCounters c = limiter.getCounters(Event1.class);
+        assertThat(c.getPassed()).isEqualTo(7);
+        assertThat(c.getDropped()).isEqualTo(4);
+        assertThat(c.getRejected()).isZero();
+        assertThat(limiter.getCounters(Event2.class)).isNull();
+    }
+
+    @Test
+    void rejectPolicy() {
+        limiter.set(Event1.class, RateLimit.perSecond(1).withPolicy(RateLimit.Policy.REJECT));
+
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.PASS);
+        assertThatThrownBy(() -> limiter.acquire(Event1.class))
+            .isInstanceOf(EventRejectedException.class)
+            .hasMessageContaining("Event1");
+        clock.addAndGet(1000 * MS);
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.PASS);
+
+        RateLimitCounters c = limiter.getCounters(Event1.class);
+        assertThat(c.getPassed()).isEqualTo(2);
+        assertThat(c.getRejected()).isEqualTo(1);
+        assertThat(c.getDropped()).isZero();
+    }
+
+    @Test
+    void delayPolicyDropsOverMaxDelay() {
+        limiter.set(Event1.class, RateLimit.perSecond(10)
+            .withPolicy(RateLimit.Policy.DELAY)
+            .withMaxDelay(250, TimeUnit.MILLISECONDS));
+
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.PASS);
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(100 * MS);
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(200 * MS);
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.DROP);
+
+        clock.addAndGet(150 * MS);
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(150 * MS);
+
+        RateLimitCounters c = limiter.getCounters(Event1.class);
+        assertThat(c.getPassed()).isEqualTo(1);
+        assertThat(c.getDelayed()).isEqualTo(3);
+        assertThat(c.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    void perProducerBuckets() throws InterruptedException {
+        limiter.set(Event1.class, RateLimit.perSecond(1).withPerProducer(true));
+
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.PASS);
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.DROP);
+
+        AtomicLong other = new AtomicLong(-2);
+        Thread t = new Thread(() -> other.set(limiter.acquire(Event1.class)));
+        t.start();
+        t.join();
+        assertThat(other.get()).isEqualTo(RateLimiter.PASS);
+
+        limiter.set(Event1.class, null);
+        assertThat(limiter.acquire(Event1.class)).isEqualTo(RateLimiter.PASS);
+        assertThat(limiter.getCounters(Event1.class)).isNull();
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.Test;
+
+public class RetriesTest {
+
+    static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void exponentialDelaysAndMaxAttempts() {
+        AtomicLong clock = new AtomicLong(1000 * MS);
+        List<Retries.Delivery<Event1>> due = new ArrayList<>();
+        Retries<Event1> retries = new Retries<>(due::add, clock::get);
+        retries.setPolicy(RetryPolicy.exponential(3, 100, TimeUnit.MILLISECONDS).withJitter(0));
+        Handler1 h = new Handler1();
+        Event1 event = new Event1();
+        RuntimeException error = new RuntimeException("fail");
+
+        assertThat(retries.onFailure(new Retries.Delivery<>(new WeakHandler(h, null), event, null, 1), h, error)).isTrue();
+        assertThat(retries.isEmpty()).isFalse();
+        retries.advance(clock.addAndGet(99 * MS));
+        assertThat(due).isEmpty();
+        retries.advance(clock.addAndGet(MS));
+        assertThat(due).hasSize(1);
+        assertThat(due.get(0).attempt).isEqualTo(2);
+
+        // Second delay is doubled
+        assertThat(retries.onFailure(due.get(0), h, error)).isTrue();
+        retries.advance(clock.addAndGet(199 * MS));
+        assertThat(due).hasSize(1);
+        retries.advance(clock.addAndGet(MS));
+        assertThat(due).hasSize(2);
+        assertThat(due.get(1).attempt).isEqualTo(3);
+        assertThat(retries.isEmpty()).isTrue();
+
+        // Out of attempts, nothing is kept without store
+        assertThat(retries.onFailure(due.get(1), h, error)).isFalse();
+        assertThat(retries.getDeadLetters()).isNull();
+
+        DeadLetterStore<Event1> store = new DeadLetterStore<>(1);
+        retries.setDeadLetters(store);
+        assertThat(retries.onFailure(due.get(1), h, error)).isFalse();
+        assertThat(retries.onFailure(due.get(1), h, error)).isFalse();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.getEvicted()).isEqualTo(1);
+        DeadLetter<Event1> dl = store.getAll().get(0);
+        assertThat(dl.getAttempts()).isEqualTo(3);
+        assertThat(dl.getError()).isEqualTo(error);
+        assertThat(dl.getEvent()).isEqualTo(event);
+        assertThat(dl.getHandler()).isEqualTo(h);
+    }
+
+    @Test
+    void waitingRetryDoesNotKeepHandler() throws InterruptedException {
+        Retries<Event1> retries = new Retries<>(d -> { });
+        retries.setPolicy(RetryPolicy.exponential(2, 1, TimeUnit.HOURS));
+        Handler1 h = new Handler1();
+        WeakReference<Handler1> ref = new WeakReference<>(h);
+        assertThat(retries.onFailure(new Retries.Delivery<>(new WeakHandler(h, null), new Event1(), null, 1), h,
+            new RuntimeException("fail"))).isTrue();
+        h = null;
+
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(ref.get()).isNull();
+        assertThat(retries.isEmpty()).isFalse();
+    }
+}
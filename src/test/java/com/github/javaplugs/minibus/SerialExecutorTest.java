@@ -0,0 +1,96 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.testng.annotations.Test;
+
+public class SerialExecutorTest {
+
+    @Test
+    void failingTaskDoesNotStopExecutor() {
+        List<Runnable> delegated = new ArrayList<>();
+        SerialExecutor ex = new SerialExecutor(delegated::add);
+        List<Integer> done = new ArrayList<>();
+
+        ex.execute(() -> done.add(1));
+        ex.execute(() -> {
+            throw new IllegalStateException("fail");
+        });
+        ex.execute(() -> done.add(3));
+        assertThat(delegated).hasSize(1);
+
+        assertThatThrownBy(() -> delegated.remove(0).run()).isInstanceOf(IllegalStateException.class);
+        assertThat(done).containsExactly(1);
+        // Rest of tasks is continued by new drain
+        assertThat(delegated).hasSize(1);
+        delegated.remove(0).run();
+        assertThat(done).containsExactly(1, 3);
+
+        ex.execute(() -> done.add(4));
+        assertThat(delegated).hasSize(1);
+        delegated.remove(0).run();
+        assertThat(done).containsExactly(1, 3, 4);
+    }
+
+    @Test
+    void rejectedDelegateDoesNotStopExecutor() {
+        AtomicBoolean reject = new AtomicBoolean(true);
+        List<Runnable> delegated = new ArrayList<>();
+        SerialExecutor ex = new SerialExecutor(r -> {
+            if (reject.get()) {
+                throw new RejectedExecutionException();
+            }
+            delegated.add(r);
+        });
+        List<Integer> done = new ArrayList<>();
+
+        assertThatThrownBy(() -> ex.execute(() -> done.add(1))).isInstanceOf(RejectedExecutionException.class);
+        reject.set(false);
+        ex.execute(() -> done.add(2));
+        assertThat(delegated).hasSize(1);
+        delegated.remove(0).run();
+        // Rejected task is not run later
+        assertThat(done).containsExactly(2);
+
+        for (int i = 0; i < 100; i++) {
+            reject.set(true);
+            assertThatThrownBy(() -> ex.execute(() -> done.add(-1))).isInstanceOf(RejectedExecutionException.class);
+        }
+        reject.set(false);
+        ex.execute(() -> done.add(3));
+        delegated.remove(0).run();
+        assertThat(done).containsExactly(2, 3);
+        assertThat(delegated).isEmpty();
+    }
+
+    @Test
+    void rejectedRescheduleDoesNotThrowFromWorker() {
+        AtomicBoolean reject = new AtomicBoolean();
+        List<Runnable> delegated = new ArrayList<>();
+        SerialExecutor ex = new SerialExecutor(r -> {
+            if (reject.get()) {
+                throw new RejectedExecutionException();
+            }
+            delegated.add(r);
+        });
+        List<Integer> done = new ArrayList<>();
+
+        ex.execute(() -> {
+            done.add(1);
+            throw new IllegalStateException("fail");
+        });
+        ex.execute(() -> done.add(2));
+        reject.set(true);
+        assertThatThrownBy(() -> delegated.remove(0).run()).isInstanceOf(IllegalStateException.class);
+        assertThat(delegated).isEmpty();
+
+        // Queued task continues with next accepted one
+        reject.set(false);
+        ex.execute(() -> done.add(3));
+        delegated.remove(0).run();
+        assertThat(done).containsExactly(1, 2, 3);
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.lang.ref.WeakReference;
+import org.testng.annotations.Test;
+
+public class SpscQueueTest {
+
+    @Test
+    void keepsOrderAcrossChunks() throws InterruptedException {
+        SpscQueue<Integer> queue = new SpscQueue<>();
+        int count = 100_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                queue.offer(i);
+            }
+        });
+        producer.start();
+
+        int expected = 0;
+        while (expected < count) {
+            Integer item = queue.poll();
+            if (item == null) {
+                Thread.yield();
+                continue;
+            }
+            assertThat(item).isEqualTo(expected++);
+        }
+        producer.join();
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void consumedItemsAreNotRetained() throws InterruptedException {
+        SpscQueue<Object> queue = new SpscQueue<>();
+        Object item = new Object();
+        WeakReference<Object> ref = new WeakReference<>(item);
+        queue.offer(item);
+        queue.offer("next");
+        item = null;
+        assertThat(queue.poll()).isNotNull();
+
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(ref.get()).isNull();
+        assertThat(queue.size()).isEqualTo(1);
+    }
+}
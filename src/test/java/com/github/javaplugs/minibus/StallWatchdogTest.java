@@ -0,0 +1,84 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+public class StallWatchdogTest {
+
+    @Test
+    void slowHandlerIsReported() throws InterruptedException {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        SleepingHandler slow = new SleepingHandler(200);
+        Handler1 fast = new Handler1();
+        bus.subscribe(slow);
+        bus.subscribe(fast);
+        BlockingQueue<StallReport> reports = new LinkedBlockingQueue<>();
+
+        try (StallWatchdog watchdog = new StallWatchdog(10_000, 50, TimeUnit.MILLISECONDS)) {
+            watchdog.setListener(reports::add);
+            watchdog.watch(bus);
+            bus.publish(new Event1());
+            bus.publish(new Event2());
+
+            StallReport r = reports.poll(1, TimeUnit.SECONDS);
+            assertThat(r).isNotNull();
+            assertThat(r.getKind()).isEqualTo(StallReport.Kind.HANDLER);
+            assertThat(r.getHandlerClass()).isEqualTo(SleepingHandler.class);
+            assertThat(r.getEventClass()).isEqualTo(Event2.class);
+            assertThat(r.getDurationNanos()).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(50));
+            assertThat(r.toString()).contains("SleepingHandler", "Thread.sleep");
+
+            Thread.sleep(300);
+            // Each stall is reported once
+            assertThat(reports).isEmpty();
+            assertThat(watchdog.getHandlerStalls()).isEqualTo(1);
+            assertThat(watchdog.getDispatcherStalls()).isZero();
+            assertThat(watchdog.getInFlight()).isZero();
+        }
+    }
+
+    @Test
+    void busHasOneWatchdog() {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        StallWatchdog first = new StallWatchdog(1, 1, TimeUnit.SECONDS);
+        StallWatchdog second = new StallWatchdog(1, 1, TimeUnit.SECONDS);
+        try {
+            first.watch(bus);
+            assertThatThrownBy(() -> second.watch(bus)).isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> first.watch(bus)).isInstanceOf(IllegalStateException.class);
+
+            // Closed watchdog detaches its monitor
+            first.close();
+            second.watch(bus);
+            assertThatThrownBy(() -> first.watch(new EventBusAsync<>())).isInstanceOf(IllegalStateException.class);
+
+            second.unwatch(bus);
+            first.unwatch(bus);
+            second.watch(bus);
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    static class SleepingHandler extends EventBusHandler<Event2> {
+
+        final long millis;
+
+        SleepingHandler(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        void handle(Event2 event) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.testng.annotations.Test;
+
+public class SubscriptionRegistryTest {
+
+    @Test
+    void randomChurnMatchesSet() {
+        SubscriptionRegistry registry = new SubscriptionRegistry();
+        List<Handler1> all = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            all.add(new Handler1());
+        }
+        Set<Handler1> expected = new HashSet<>();
+        Random rnd = new Random(42);
+
+        for (int step = 0; step < 20_000; step++) {
+            Handler1 h = all.get(rnd.nextInt(step < 10_000 ? all.size() : 20));
+            if (rnd.nextBoolean()) {
+                registry.add(new WeakHandler(h, null));
+                expected.add(h);
+            } else {
+                registry.remove(new WeakHandler(h, null));
+                expected.remove(h);
+            }
+            if (rnd.nextInt(10) == 0) {
+                registry.apply();
+                assertThat(subscribed(registry)).isEqualTo(expected);
+                assertThat(registry.count(Event1.class)).isEqualTo(expected.size());
+            }
+        }
+
+        for (Handler1 h : all) {
+            registry.remove(new WeakHandler(h, null));
+        }
+        registry.apply();
+        assertThat(registry.get(Event1.class)).isNull();
+        assertThat(registry.count(Event1.class)).isZero();
+        assertThat(registry.hasPending()).isFalse();
+    }
+
+    @Test
+    void operationsAreAppliedInOrder() {
+        SubscriptionRegistry registry = new SubscriptionRegistry();
+        Handler1 h = new Handler1();
+        registry.add(new WeakHandler(h, null));
+        registry.remove(new WeakHandler(h, null));
+        registry.add(new WeakHandler(h, null));
+        registry.add(new WeakHandler(h, null));
+        assertThat(registry.hasPending()).isTrue();
+        assertThat(registry.count(Event1.class)).isZero();
+
+        registry.apply();
+        assertThat(subscribed(registry)).containsExactly(h);
+    }
+
+    private static Set<Object> subscribed(SubscriptionRegistry registry) {
+        Set<Object> result = new HashSet<>();
+        SubscriptionRegistry.Subscribers s = registry.get(Event1.class);
+        if (s != null) {
+            for (int i = 0; i < s.size; i++) {
+                assertThat(result.add(s.handlers[i].get())).isTrue();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TimingWheelTest {
+
+    AtomicLong clock;
+
+    List<Long> fired;
+
+    TimingWheel<Long> wheel;
+
+    @BeforeMethod
+    void init() {
+        clock = new AtomicLong(1000);
+        fired = new ArrayList<>();
+        wheel = new TimingWheel<>(1, fired::add, clock::get);
+    }
+
+    @Test
+    void cascadesThroughLevels() {
+        long[] delays = {1, 63, 64, 65, 4095, 4096, 4097, 262143, 262145, (1L << 24) + 5};
+        for (long d : delays) {
+            wheel.schedule(d, d);
+        }
+
+        for (long d : delays) {
+            wheel.advance(1000 + d - 1);
+            assertThat(fired).doesNotContain(d);
+            wheel.advance(1000 + d);
+            assertThat(fired).contains(d);
+        }
+        assertThat(fired).containsExactly(1L, 63L, 64L, 65L, 4095L, 4096L, 4097L, 262143L, 262145L, (1L << 24) + 5);
+        assertThat(wheel.isEmpty()).isTrue();
+    }
+
+    @Test
+    void cancelledItemsAreNotFired() {
+        TimingWheel.Timeout<Long> first = wheel.schedule(1L, 100);
+        TimingWheel.Timeout<Long> second = wheel.schedule(2L, 5000);
+        wheel.advance(1050);
+
+        assertThat(second.cancel()).isTrue();
+        assertThat(second.isCancelled()).isTrue();
+        wheel.advance(1100);
+        assertThat(first.isPublished()).isTrue();
+        assertThat(first.cancel()).isFalse();
+
+        wheel.advance(10000);
+        assertThat(fired).containsExactly(1L);
+        assertThat(wheel.isEmpty()).isTrue();
+    }
+
+    @Test
+    void farDeadlineAliasingTopSlot() {
+        // Move wheel off the top level slot boundary, so deadline at max span
+        // lands into the same top level slot index as the current one
+        wheel.schedule(0L, 5);
+        clock.set(1005);
+        wheel.advance(1005);
+        long span = (1L << 30) - 1;
+        wheel.schedule(span, span);
+        wheel.schedule(span + 100, span + 100);
+
+        wheel.advance(1005 + span - 1);
+        assertThat(fired).containsExactly(0L);
+        wheel.advance(1005 + span);
+        assertThat(fired).containsExactly(0L, span);
+        wheel.advance(1005 + span + 99);
+        assertThat(fired).containsExactly(0L, span);
+        wheel.advance(1005 + span + 100);
+        assertThat(fired).containsExactly(0L, span, span + 100);
+    }
+
+    @Test
+    void hugeAndNegativeDelays() {
+        wheel.schedule(1L, Long.MAX_VALUE);
+        wheel.schedule(2L, Long.MAX_VALUE / 2);
+        wheel.schedule(3L, -10);
+
+        wheel.advance(1000);
+        assertThat(fired).containsExactly(3L);
+        wheel.advance(1L << 20);
+        assertThat(fired).containsExactly(3L);
+        assertThat(wheel.isEmpty()).isFalse();
+    }
+
+    @Test
+    void publishAfterLongDelay() throws InterruptedException {
+        EventBusAsync<EventBusEvent> bus = new EventBusAsync<>();
+        Handler1 h = new Handler1();
+        bus.subscribe(h);
+
+        ScheduledEvent far = bus.publishAfter(new Event1(), Long.MAX_VALUE / 2, java.util.concurrent.TimeUnit.SECONDS);
+        ScheduledEvent max = bus.publishAt(new Event1(), java.time.Instant.MAX);
+        bus.publishAt(new Event1(), java.time.Instant.MIN);
+        Thread.sleep(300);
+
+        assertThat(h.counter).hasValue(1);
+        assertThat(far.isPublished()).isFalse();
+        assertThat(max.isPublished()).isFalse();
+        assertThat(far.cancel()).isTrue();
+        assertThat(max.cancel()).isTrue();
+    }
+}
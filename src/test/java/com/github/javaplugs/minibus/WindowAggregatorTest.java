@@ -0,0 +1,180 @@
+package com.github.javaplugs.minibus;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class WindowAggregatorTest {
+
+    static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    WindowAggregator<Metric> aggregator;
+
+    @AfterMethod
+    void stop() {
+        if (aggregator != null) {
+            aggregator.stop();
+        }
+    }
+
+    // Timer step is one hour, windows are closed by test directly
+    private WindowAggregator<Metric> start(WindowAggregator<Metric> a) {
+        aggregator = a.withKey(m -> m.key).withValue(m -> m.value);
+        aggregator.start(new EventBusSimple<EventBusEvent>(), r -> null);
+        return aggregator;
+    }
+
+    @Test
+    void tumblingWindowRotatesPane() {
+        WindowAggregator<Metric> a = start(WindowAggregator.tumbling(Metric.class, 1, TimeUnit.HOURS));
+        a.handle(new Metric("a", 1));
+        a.handle(new Metric("a", 3));
+        a.handle(new Metric("b", -2));
+
+        List<WindowResult> first = a.closeWindow();
+        assertThat(first).hasSize(2);
+        WindowResult r = find(first, "a");
+        assertThat(r.getCount()).isEqualTo(2);
+        assertThat(r.getSum()).isEqualTo(4.0);
+        assertThat(r.getMin()).isEqualTo(1.0);
+        assertThat(r.getMax()).isEqualTo(3.0);
+        assertThat(r.getWindowEnd() - r.getWindowStart()).isEqualTo(HOUR);
+        assertThat(r.getWindowEnd() % HOUR).isZero();
+
+        a.handle(new Metric("a", 5));
+        List<WindowResult> second = a.closeWindow();
+        assertThat(second).hasSize(1);
+        assertThat(second.get(0).getCount()).isEqualTo(1);
+        assertThat(second.get(0).getMin()).isEqualTo(5.0);
+        assertThat(second.get(0).getWindowStart()).isEqualTo(r.getWindowEnd());
+    }
+
+    @Test
+    void slidingWindowMergesPanes() {
+        WindowAggregator<Metric> a = start(WindowAggregator.sliding(Metric.class, 3, 1, TimeUnit.HOURS));
+        long[] counts = new long[6];
+        double[] sums = new double[6];
+        long end = 0;
+        for (int i = 0; i < 6; i++) {
+            if (i < 3) {
+                a.handle(new Metric("a", i + 1));
+            }
+            List<WindowResult> rs = a.closeWindow();
+            if (!rs.isEmpty()) {
+                WindowResult r = rs.get(0);
+                counts[i] = r.getCount();
+                sums[i] = r.getSum();
+                assertThat(r.getWindowEnd() - r.getWindowStart()).isEqualTo(3 * HOUR);
+                if (end != 0) {
+                    assertThat(r.getWindowEnd() - end).isEqualTo(HOUR);
+                }
+                end = r.getWindowEnd();
+            }
+        }
+        // Value of each step stays in three windows
+        assertThat(counts).containsExactly(1, 2, 3, 2, 1, 0);
+        assertThat(sums).containsExactly(1.0, 3.0, 6.0, 5.0, 3.0, 0.0);
+    }
+
+    @Test
+    void idleKeysExpire() {
+        WindowAggregator<Metric> a = start(WindowAggregator.sliding(Metric.class, 2, 1, TimeUnit.HOURS));
+        a.handle(new Metric("a", 1));
+        a.handle(new Metric("b", 1));
+        a.closeWindow();
+        a.handle(new Metric("b", 1));
+        assertThat(a.getKeyCount()).isEqualTo(2);
+
+        // Key a is in one window more, b in two
+        assertThat(a.closeWindow()).hasSize(2);
+        assertThat(a.getKeyCount()).isEqualTo(1);
+        assertThat(a.closeWindow()).hasSize(1);
+        assertThat(a.getKeyCount()).isZero();
+        assertThat(a.closeWindow()).isEmpty();
+    }
+
+    @Test
+    void quantilesOfWindow() {
+        WindowAggregator<Metric> a = start(WindowAggregator.sliding(Metric.class, 2, 1, TimeUnit.HOURS)
+            .withQuantiles(0.5, 0.99));
+        for (int i = 1; i <= 500; i++) {
+            a.handle(new Metric("a", i));
+        }
+        a.closeWindow();
+        for (int i = 501; i <= 1000; i++) {
+            a.handle(new Metric("a", i));
+        }
+        WindowResult r = a.closeWindow().get(0);
+        assertThat(r.getCount()).isEqualTo(1000);
+        assertThat(r.getQuantile(0.5)).isBetween(500 * 0.99, 500 * 1.01);
+        assertThat(r.getQuantile(0.99)).isBetween(990 * 0.99, 990 * 1.01);
+    }
+
+    @Test
+    void nonFiniteValuesAreSkipped() {
+        WindowAggregator<Metric> a = start(WindowAggregator.sliding(Metric.class, 2, 1, TimeUnit.HOURS)
+            .withQuantiles(0.5));
+        a.handle(new Metric("a", Double.POSITIVE_INFINITY));
+        a.handle(new Metric("a", Double.NaN));
+        a.handle(new Metric("a", 5));
+        a.handle(new Metric("b", Double.NEGATIVE_INFINITY));
+
+        List<WindowResult> first = a.closeWindow();
+        WindowResult r = find(first, "a");
+        assertThat(r.getCount()).isEqualTo(1);
+        assertThat(r.getInvalid()).isEqualTo(2);
+        assertThat(r.getSum()).isEqualTo(5.0);
+        assertThat(r.getMax()).isEqualTo(5.0);
+        assertThat(r.getQuantile(0.5)).isBetween(4.95, 5.05);
+        WindowResult b = find(first, "b");
+        assertThat(b.getCount()).isZero();
+        assertThat(b.getInvalid()).isEqualTo(1);
+
+        // Aggregator keeps working after bad values
+        a.handle(new Metric("a", 7));
+        r = find(a.closeWindow(), "a");
+        assertThat(r.getCount()).isEqualTo(2);
+        assertThat(r.getInvalid()).isEqualTo(2);
+        assertThat(r.getMax()).isEqualTo(7.0);
+        assertThat(find(a.closeWindow(), "a").getInvalid()).isZero();
+        assertThat(a.getKeyCount()).isZero();
+    }
+
+    @Test
+    void invalidConfiguration() {
+        assertThatThrownBy(() -> WindowAggregator.sliding(Metric.class, 3, 2, TimeUnit.SECONDS))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> WindowAggregator.tumbling(Metric.class, 1, TimeUnit.SECONDS).withQuantiles(1.5))
+            .isInstanceOf(IllegalArgumentException.class);
+        for (double accuracy : new double[] {0, 1, -0.1, Double.NaN}) {
+            assertThatThrownBy(() -> WindowAggregator.tumbling(Metric.class, 1, TimeUnit.SECONDS).withAccuracy(accuracy))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+        WindowAggregator<Metric> a = WindowAggregator.tumbling(Metric.class, 1, TimeUnit.HOURS).withQuantiles(0.5);
+        assertThatThrownBy(() -> a.start(new EventBusSimple<EventBusEvent>(), r -> null))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static WindowResult find(List<WindowResult> results, Object key) {
+        for (WindowResult r : results) {
+            if (key.equals(r.getKey())) {
+                return r;
+            }
+        }
+        throw new AssertionError("No result for " + key);
+    }
+
+    static class Metric implements EventBusEvent {
+
+        final String key;
+
+        final double value;
+
+        Metric(String key, double value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.javaplugs.minibus.old;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.Collection;
+import org.testng.annotations.Test;
+
+public class EventPropertiesTest {
+
+    @Test
+    void kindChangeKeepsOtherValues() {
+        EventProperties p = new EventProperties();
+        p.putInt("a", 1);
+        p.put("b", "x");
+        p.putLong("c", 2L);
+        p.putDouble("d", 3.5);
+
+        p.put("b", 5);
+        p.put("c", "y");
+        assertThat(p.kind("b")).isEqualTo(EventProperties.INT);
+        assertThat(p.kind("c")).isEqualTo(EventProperties.OBJECT);
+        assertThat(p.keys()).containsExactly("a", "b", "c", "d");
+        assertThat(p.get("a")).isEqualTo(1);
+        assertThat(p.get("b")).isEqualTo(5);
+        assertThat(p.get("c")).isEqualTo("y");
+        assertThat(p.get("d")).isEqualTo(3.5);
+
+        p.put("b", "z");
+        assertThat(p.get("b")).isEqualTo("z");
+        assertThat(p.get("a")).isEqualTo(1);
+        assertThat(p.get("c")).isEqualTo("y");
+    }
+
+    @Test
+    void manyKeysUseIndex() {
+        EventProperties p = new EventProperties();
+        for (int i = 0; i < 20; i++) {
+            if (i % 3 == 0) {
+                p.putInt("k" + i, i);
+            } else if (i % 3 == 1) {
+                p.putLong("k" + i, i);
+            } else {
+                p.put("k" + i, "v" + i);
+            }
+        }
+        assertThat(p.size()).isEqualTo(20);
+        assertThat(p.get("k0")).isEqualTo(0);
+        assertThat(p.get("k13")).isEqualTo(13L);
+        assertThat(p.get("k17")).isEqualTo("v17");
+        assertThat(p.get("k20")).isNull();
+        assertThat(p.kind("k20")).isEqualTo((byte)-1);
+
+        p.putDouble("k15", 1.5);
+        assertThat(p.get("k15")).isEqualTo(1.5);
+        assertThat(p.get("k19")).isEqualTo(19L);
+        assertThat(p.keyAt(15)).isEqualTo("k15");
+    }
+
+    @Test
+    void nullKeyIsSupported() {
+        EventProperties p = new EventProperties();
+        p.put(null, "v");
+        p.putInt("a", 1);
+        assertThat(p.get(null)).isEqualTo("v");
+        assertThat(p.keys()).containsExactly(null, "a");
+
+        for (int i = 0; i < 10; i++) {
+            p.putInt("k" + i, i);
+        }
+        p.putLong(null, 7L);
+        assertThat(p.get(null)).isEqualTo(7L);
+        assertThat(p.get("a")).isEqualTo(1);
+    }
+
+    @Test
+    void sameKeysShareSchemaUpToTransitionLimit() {
+        assertThat(props("shared-root", "k1").keys()).isSameAs(props("shared-root", "k1").keys());
+
+        int limit = EventProperties.Schema.MAX_TRANSITIONS;
+        for (int i = 0; i < limit * 2; i++) {
+            props("cap-root", "k" + i);
+        }
+        int shared = 0;
+        for (int i = 0; i < limit * 2; i++) {
+            EventProperties p = props("cap-root", "k" + i);
+            if (p.keys() == props("cap-root", "k" + i).keys()) {
+                shared++;
+            }
+            // Not interned schemas work the same way
+            assertThat(p.get("k" + i)).isEqualTo(i);
+        }
+        assertThat(shared).isEqualTo(limit);
+    }
+
+    @Test
+    void eventKeysAreUnmodifiableSnapshot() {
+        Event e = new Event("TEST");
+        e.set("a", "x");
+        e.setInt("b", 1);
+        Collection<String> keys = e.getKeys();
+        assertThat(keys).containsExactly("a", "b");
+        assertThatThrownBy(() -> keys.add("c")).isInstanceOf(UnsupportedOperationException.class);
+
+        e.set("c", "y");
+        assertThat(keys).containsExactly("a", "b");
+        assertThat(e.getKeys()).containsExactly("a", "b", "c");
+    }
+
+    private static EventProperties props(String root, String key) {
+        EventProperties p = new EventProperties();
+        p.put(root, "root");
+        p.putInt(key, Integer.parseInt(key.substring(1)));
+        return p;
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.javaplugs.minibus.old;
+
+import static org.assertj.core.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class PropertyIndexTest {
+
+    @Test
+    void equalityAndRanges() {
+        Handler eu = new Handler(PropertyFilter.create().eq("region", "EU"));
+        Handler euBig = new Handler(PropertyFilter.create().eq("region", "EU").range("amount", 100, 1000));
+        Handler any = new Handler(PropertyFilter.create());
+        Handler small = new Handler(PropertyFilter.create().range("amount", 0, 10));
+        PropertyIndex index = new PropertyIndex();
+        for (Handler h : new Handler[] {eu, euBig, any, small}) {
+            index.add(new WeakHandler(h, null));
+        }
+
+        Event e = new Event("ORDER");
+        e.set("region", "EU");
+        e.setInt("amount", 500);
+        assertThat(handlers(index.match(e))).containsExactlyInAnyOrder(eu, euBig, any);
+
+        e.setDouble("amount", 5.5);
+        assertThat(handlers(index.match(e))).containsExactlyInAnyOrder(eu, any, small);
+
+        Event us = new Event("ORDER");
+        us.set("region", "US");
+        us.setLong("amount", 1000);
+        assertThat(handlers(index.match(us))).containsExactlyInAnyOrder(any);
+
+        index.remove(new WeakHandler(any, null));
+        assertThat(index.match(new Event("ORDER"))).isEmpty();
+    }
+
+    @Test
+    void nestedAndOverlappingRanges() {
+        List<Handler> handlers = new ArrayList<>();
+        PropertyIndex index = new PropertyIndex();
+        for (int i = 0; i < 50; i++) {
+            Handler h = new Handler(PropertyFilter.create().range("v", i, 100 - i));
+            handlers.add(h);
+            index.add(new WeakHandler(h, null));
+        }
+
+        for (int v = -1; v <= 101; v++) {
+            Event e = new Event("E");
+            e.setInt("v", v);
+            int expected = 0;
+            for (int i = 0; i < 50; i++) {
+                if (v >= i && v <= 100 - i) {
+                    expected++;
+                }
+            }
+            assertThat(index.match(e)).hasSize(expected);
+        }
+    }
+
+    private static Object[] handlers(List<WeakHandler> whs) {
+        Object[] hs = new Object[whs.size()];
+        for (int i = 0; i < hs.length; i++) {
+            hs[i] = whs.get(i).get();
+        }
+        return hs;
+    }
+
+    private static class Handler implements FilteredHandler<Event> {
+
+        private final PropertyFilter filter;
+
+        Handler(PropertyFilter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public PropertyFilter getPropertyFilter() {
+            return filter;
+        }
+
+        @Override
+        public String getType() {
+            return "ORDER";
+        }
+
+        @Override
+        public boolean canHandle(String eventType) {
+            return true;
+        }
+
+        @Override
+        public void handle(Event event) {
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.javaplugs.minibus.old;
+
+import static org.assertj.core.api.Assertions.*;
+import org.testng.annotations.Test;
+
+public class TopicPatternTest {
+
+    @Test
+    void exact() {
+        TopicPattern p = TopicPattern.exact("USER_CREATED");
+        assertThat(p.matches("USER_CREATED")).isTrue();
+        assertThat(p.matches("USER_CREATED_2")).isFalse();
+        assertThat(p.matches("USER")).isFalse();
+    }
+
+    @Test
+    void prefix() {
+        TopicPattern p = TopicPattern.parse("USER_#");
+        assertThat(p).isEqualTo(TopicPattern.prefix("USER_"));
+        assertThat(p.matches("USER_")).isTrue();
+        assertThat(p.matches("USER_LOGIN")).isTrue();
+        assertThat(p.matches("ORDER_CREATED")).isFalse();
+    }
+
+    @Test
+    void wildcard() {
+        TopicPattern p = TopicPattern.parse("order.*.created");
+        assertThat(p.matches("order.42.created")).isTrue();
+        assertThat(p.matches("order..created")).isFalse();
+        assertThat(p.matches("order.4.2.created")).isFalse();
+
+        TopicPattern any = TopicPattern.parse("order.*.#");
+        assertThat(any.matches("order.42.created")).isTrue();
+        assertThat(any.matches("order.42")).isFalse();
+    }
+}
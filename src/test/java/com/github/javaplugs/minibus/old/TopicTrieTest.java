@@ -0,0 +1,74 @@
+package com.github.javaplugs.minibus.old;
+
+import static org.assertj.core.api.Assertions.*;
+import org.testng.annotations.Test;
+
+public class TopicTrieTest {
+
+    @Test
+    void overlappingWildcards() {
+        TopicTrie trie = new TopicTrie();
+        Handler exact = new Handler("order.*.created");
+        Handler prefix = new Handler("order.#");
+        Handler any = new Handler("order.*.#");
+        Handler other = new Handler("user.*.created");
+        WeakHandler[] whs = {
+            new WeakHandler(exact, null), new WeakHandler(prefix, null),
+            new WeakHandler(any, null), new WeakHandler(other, null)
+        };
+        for (WeakHandler wh : whs) {
+            trie.add(wh);
+        }
+
+        assertThat(handlers(trie.route("order.42.created"))).containsExactlyInAnyOrder(exact, prefix, any);
+        assertThat(handlers(trie.route("order.42"))).containsExactlyInAnyOrder(prefix);
+        assertThat(handlers(trie.route("order..created"))).containsExactlyInAnyOrder(prefix);
+        assertThat(handlers(trie.route("user.1.created"))).containsExactlyInAnyOrder(other);
+        assertThat(handlers(trie.route("user.1.2.created"))).isEmpty();
+
+        trie.remove(whs[1]);
+        assertThat(handlers(trie.route("order.42.created"))).containsExactlyInAnyOrder(exact, any);
+        assertThat(handlers(trie.route("order.42"))).isEmpty();
+    }
+
+    @Test
+    void routesCacheIsBounded() {
+        TopicTrie trie = new TopicTrie();
+        Handler h = new Handler("t.#");
+        trie.add(new WeakHandler(h, null));
+
+        for (int i = 0; i < TopicTrie.MAX_ROUTES * 2; i++) {
+            assertThat(trie.route("t." + i)).hasSize(1);
+        }
+        assertThat(trie.routes()).isEqualTo(TopicTrie.MAX_ROUTES);
+
+        trie.add(new WeakHandler(new Handler("x.#"), null));
+        assertThat(trie.routes()).isZero();
+    }
+
+    private static Object[] handlers(WeakHandler[] whs) {
+        Object[] hs = new Object[whs.length];
+        for (int i = 0; i < whs.length; i++) {
+            hs[i] = whs[i].get();
+        }
+        return hs;
+    }
+
+    private static class Handler implements TopicHandler<Event> {
+
+        private final TopicPattern pattern;
+
+        Handler(String pattern) {
+            this.pattern = TopicPattern.parse(pattern);
+        }
+
+        @Override
+        public TopicPattern getTopicPattern() {
+            return pattern;
+        }
+
+        @Override
+        public void handle(Event event) {
+        }
+    }
+}